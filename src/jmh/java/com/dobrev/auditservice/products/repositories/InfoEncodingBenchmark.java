@@ -0,0 +1,90 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a product event to its item and back with {@code info} stored as a map and in the compact
+ * binary format. The item size, which DynamoDB bills writes and storage by, is printed at setup for
+ * each format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InfoEncodingBenchmark {
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private CompactInfoTableSchema<ProductEvent, ProductInfoEvent> schema;
+    private ProductEvent productEvent;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setUp() {
+        schema = new CompactInfoTableSchema<>(TableSchema.fromBean(ProductEvent.class),
+                CompactInfoConverter.PRODUCT_INFO, ProductEvent::getInfo, ProductEvent::setInfo, compact);
+        productEvent = ProductEvent.builder()
+                .pk("#product_PRODUCT_CREATED")
+                .sk("1700000000000-00001-0001")
+                .createdAt(1_700_000_000_000L)
+                .ttl(1_700_172_800L)
+                .productId("7a1c3e2f-58b4-4c8e-9a0d-000000000001")
+                .email("matilda@dobrev.com")
+                .info(ProductInfoEvent.builder()
+                        .id("7a1c3e2f-58b4-4c8e-9a0d-000000000001")
+                        .code("COD-1")
+                        .price(129.99f)
+                        .messageId("95df01b4-ee98-5cb9-9903-4c221d41eb5e")
+                        .requestId("c5d8e1f2-0a3b-4c5d-8e9f-102132435465")
+                        .traceId("1-5759e988-bd862e3fe1be46a994272793")
+                        .build())
+                .build();
+        item = encode();
+        System.out.printf("%ncompact=%s: %d item bytes, %d of them info%n", compact, size(item),
+                size(Map.of("info", item.get("info"))));
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> encode() {
+        return schema.itemToMap(productEvent, true);
+    }
+
+    @Benchmark
+    public ProductEvent decode() {
+        return schema.mapToItem(item);
+    }
+
+    /**
+     * Item size as DynamoDB counts it: names and values by their length, maps with 3 bytes of
+     * overhead plus one per element, and numbers approximated by their digits.
+     */
+    private static int size(Map<String, AttributeValue> attributes) {
+        int bytes = 0;
+        for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+            AttributeValue value = attribute.getValue();
+            bytes += attribute.getKey().length() + (value.hasM() ? 3 + size(value.m()) + value.m().size()
+                    : value.b() != null ? value.b().asByteArrayUnsafe().length
+                    : value.s() != null ? value.s().length() : value.n().length());
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,130 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.emitters.Emitter;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.Subsegment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shared inputs for the ingestion benchmarks: a representative SNS envelope as delivered by SQS,
+ * the ObjectMapper configured the way Spring Boot configures it, and AWS clients that answer
+ * immediately so only in-process work is measured.
+ */
+final class BenchmarkFixtures {
+    static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/000000000000/product-events";
+    static final String TRACE_ID = "1-5759e988-bd862e3fe1be46a994272793";
+
+    static final String PRODUCT_EVENT_JSON =
+            "{\"id\":\"7a1c3e2f-58b4-4c8e-9a0d-2f6b1e4d9c73\",\"code\":\"COD-4711\"," +
+            "\"email\":\"matilda@dobrev.com\",\"price\":129.99}";
+
+    static final String SNS_ENVELOPE_JSON = "{" +
+            "\"Type\":\"Notification\"," +
+            "\"MessageId\":\"0b5f7c7d-4a4e-5b8d-9f3c-1e2d3c4b5a69\"," +
+            "\"TopicArn\":\"arn:aws:sns:eu-central-1:000000000000:product-events\"," +
+            "\"Message\":\"" + PRODUCT_EVENT_JSON.replace("\"", "\\\"") + "\"," +
+            "\"Timestamp\":\"2024-11-05T10:15:30.123Z\"," +
+            "\"SignatureVersion\":\"1\"," +
+            "\"Signature\":\"EXAMPLEpH+DcEwjAPg8O9mY8dReBSwksfg2S7WKQcikcNKWLQjwu6A4VbeS0QHVCkhRS7fUQvi2egU3N858fiTDN6bkkOxYDVrY0Ad8L10Hs3zH81mtnPk5uvvolIC1CXGu43obcgFxeL3khZl8IKvO61GWB6jI9b5+gLPoBc1Q=\"," +
+            "\"SigningCertURL\":\"https://sns.eu-central-1.amazonaws.com/SimpleNotificationService-example.pem\"," +
+            "\"UnsubscribeURL\":\"https://sns.eu-central-1.amazonaws.com/?Action=Unsubscribe&SubscriptionArn=example\"," +
+            "\"MessageAttributes\":{" +
+            "\"traceId\":{\"Type\":\"String\",\"Value\":\"" + TRACE_ID + "\"}," +
+            "\"eventType\":{\"Type\":\"String\",\"Value\":\"PRODUCT_CREATED\"}," +
+            "\"requestId\":{\"Type\":\"String\",\"Value\":\"c5d8e1f2-0a3b-4c5d-8e9f-102132435465\"}" +
+            "}}";
+
+    private BenchmarkFixtures() {
+    }
+
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static Message message(long sequence) {
+        return Message.builder()
+                .messageId("message-" + sequence)
+                .receiptHandle("receipt-" + sequence)
+                .body(SNS_ENVELOPE_JSON)
+                .build();
+    }
+
+    static void installNoOpXRayRecorder() {
+        AWSXRay.setGlobalRecorder(AWSXRayRecorderBuilder.standard()
+                .withEmitter(new NoOpEmitter())
+                .build());
+    }
+
+    static final class NoOpEmitter extends Emitter {
+        @Override
+        public boolean sendSegment(Segment segment) {
+            return true;
+        }
+
+        @Override
+        public boolean sendSubsegment(Subsegment subsegment) {
+            return true;
+        }
+    }
+
+    static final class StubDynamoDbAsyncClient implements DynamoDbAsyncClient {
+        private static final CompletableFuture<BatchWriteItemResponse> BATCH_WRITE_RESPONSE =
+                CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build());
+        private static final CompletableFuture<PutItemResponse> PUT_ITEM_RESPONSE =
+                CompletableFuture.completedFuture(PutItemResponse.builder().build());
+
+        @Override
+        public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest batchWriteItemRequest) {
+            return BATCH_WRITE_RESPONSE;
+        }
+
+        @Override
+        public CompletableFuture<PutItemResponse> putItem(PutItemRequest putItemRequest) {
+            return PUT_ITEM_RESPONSE;
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    static final class StubSqsAsyncClient implements SqsAsyncClient {
+        @Override
+        public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(DeleteMessageBatchRequest request) {
+            return CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder()
+                    .successful(request.entries().stream()
+                            .map(entry -> DeleteMessageBatchResultEntry.builder().id(entry.id()).build())
+                            .toList())
+                    .build());
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.SnsEnvelopeDecoder;
+import com.dobrev.auditservice.products.repositories.AdaptiveWriteLimiter;
+import com.dobrev.auditservice.products.repositories.ArchiveSettings;
+import com.dobrev.auditservice.products.repositories.BatchWriterSettings;
+import com.dobrev.auditservice.products.repositories.EventIdGenerator;
+import com.dobrev.auditservice.products.repositories.EventRollupsRepository;
+import com.dobrev.auditservice.products.repositories.PartitionKeyStrategy;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.dobrev.auditservice.products.repositories.RangeReaderSettings;
+import com.dobrev.auditservice.products.repositories.RetentionSettings;
+import com.dobrev.auditservice.products.repositories.RollupSettings;
+import com.dobrev.auditservice.products.repositories.SpoolSettings;
+import com.dobrev.auditservice.products.repositories.WriteLimiterSettings;
+import com.dobrev.auditservice.sqs.DedupSettings;
+import com.dobrev.auditservice.sqs.RedeliverySettings;
+import com.dobrev.auditservice.sqs.SqsAckBatcher;
+import com.dobrev.auditservice.sqs.SqsFlowControl;
+import com.dobrev.auditservice.sqs.SqsQueueSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The whole per-message path of {@link ProductEventsConsumer}, from the raw SQS body to the
+ * acknowledged write, with DynamoDB and SQS answering immediately. Ten threads run concurrently so
+ * every acknowledgement batch fills up instead of waiting for the flush interval.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(10)
+@State(Scope.Benchmark)
+public class IngestionPipelineBenchmark {
+    private final AtomicLong sequence = new AtomicLong();
+    private ProductEventsRepository productEventsRepository;
+    private SqsAckBatcher sqsAckBatcher;
+    private ProductEventsConsumer productEventsConsumer;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.installNoOpXRayRecorder();
+        BenchmarkFixtures.StubSqsAsyncClient sqsAsyncClient = new BenchmarkFixtures.StubSqsAsyncClient();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        BenchmarkFixtures.StubDynamoDbAsyncClient dynamoDbAsyncClient = new BenchmarkFixtures.StubDynamoDbAsyncClient();
+        DynamoDbEnhancedAsyncClient enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+
+        productEventsRepository = new ProductEventsRepository("events",
+                enhancedClient,
+                BatchWriterSettings.builder()
+                        .flushSize(1)
+                        .lingerMillis(1)
+                        .maxInFlight(64)
+                        .maxAttempts(1)
+                        .baseBackoffMillis(1)
+                        .maxBackoffMillis(1)
+                        .build(),
+                RangeReaderSettings.builder()
+                        .segmentItems(100)
+                        .maxSegments(8)
+                        .maxParallel(16)
+                        .build(),
+                SpoolSettings.builder()
+                        .enabled(false)
+                        .segmentBytes(1 << 20)
+                        .maxBytes(1 << 20)
+                        .drainBatchSize(1)
+                        .build(),
+                new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                        .initialLimit(64)
+                        .minLimit(64)
+                        .maxLimit(64)
+                        .backoffRatio(0.5)
+                        .latencyThresholdMillis(1000)
+                        .failureThreshold(1)
+                        .openMillis(0)
+                        .build(), meterRegistry),
+                // Counts in memory only: the rollups are never flushed here.
+                new EventRollupsRepository("events", dynamoDbAsyncClient, enhancedClient, RollupSettings.builder()
+                        .enabled(true)
+                        .flushIntervalMillis(60_000)
+                        .bucketSeconds(List.of(60, 3600))
+                        .build(), "1", meterRegistry),
+                new EventIdGenerator("1"),
+                new PartitionKeyStrategy(1, PartitionKeyStrategy.ShardStrategy.HASH),
+                RetentionSettings.builder()
+                        .hotSeconds(172_800)
+                        .build(),
+                ArchiveSettings.builder()
+                        .enabled(false)
+                        .blockRows(1000)
+                        .build(),
+                null,
+                meterRegistry,
+                false,
+                false);
+        sqsAckBatcher = new SqsAckBatcher(sqsAsyncClient, meterRegistry, 1, 1, 0, 0);
+
+        productEventsConsumer = new ProductEventsConsumer(
+                new SnsEnvelopeDecoder(BenchmarkFixtures.objectMapper()), sqsAsyncClient,
+                SqsQueueSettings.builder()
+                        .queueUrl(BenchmarkFixtures.QUEUE_URL)
+                        .batchSize(10)
+                        .waitTimeSeconds(20)
+                        .receivers(1)
+                        .bufferCapacity(10)
+                        .concurrency(1)
+                        .build(),
+                productEventsRepository,
+                new ProductEventsQueryCache(1000, 5000, meterRegistry),
+                sqsAckBatcher,
+                SqsFlowControl.NONE,
+                meterRegistry,
+                new MessageTracer("product-events-consumer", "product-events", false),
+                // Every benchmark message carries the same SNS MessageId.
+                DedupSettings.builder()
+                        .enabled(false)
+                        .capacity(1)
+                        .windowMillis(1)
+                        .build(),
+                (queueName, message, reason) -> CompletableFuture.completedFuture(null),
+                RedeliverySettings.builder()
+                        .baseVisibilitySeconds(5)
+                        .maxVisibilitySeconds(900)
+                        .poisonAfterReceives(3)
+                        .build(),
+                new ProductEventsTail(productEventsRepository, null, 256, 60_000, 1000, meterRegistry));
+    }
+
+    @TearDown
+    public void tearDown() {
+        productEventsRepository.close();
+        sqsAckBatcher.shutdown();
+    }
+
+    @Benchmark
+    public void receiveProductEventMessage() {
+        Message message = BenchmarkFixtures.message(sequence.incrementAndGet());
+        productEventsConsumer.receiveProductEventMessage(message);
+    }
+}
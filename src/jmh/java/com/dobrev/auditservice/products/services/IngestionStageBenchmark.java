@@ -0,0 +1,112 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.TraceID;
+import com.dobrev.auditservice.events.SnsEnvelopeDecoder;
+import com.dobrev.auditservice.events.dto.ProductEventDto;
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.events.dto.SnsEnvelope;
+import com.dobrev.auditservice.events.dto.SnsMessageDto;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each step the consumers perform per message, measured in isolation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestionStageBenchmark {
+    private ObjectMapper objectMapper;
+    private SnsEnvelopeDecoder snsEnvelopeDecoder;
+    private SnsMessageDto snsMessageDto;
+    private ProductEventDto productEventDto;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkFixtures.installNoOpXRayRecorder();
+        objectMapper = BenchmarkFixtures.objectMapper();
+        snsEnvelopeDecoder = new SnsEnvelopeDecoder(objectMapper);
+        snsMessageDto = objectMapper.readValue(BenchmarkFixtures.SNS_ENVELOPE_JSON, SnsMessageDto.class);
+        productEventDto = objectMapper.readValue(snsMessageDto.message(), ProductEventDto.class);
+    }
+
+    @Benchmark
+    public SnsMessageDto parseSnsEnvelope() throws Exception {
+        return objectMapper.readValue(BenchmarkFixtures.SNS_ENVELOPE_JSON, SnsMessageDto.class);
+    }
+
+    @Benchmark
+    public ProductEventDto parseProductEvent() throws Exception {
+        return objectMapper.readValue(snsMessageDto.message(), ProductEventDto.class);
+    }
+
+    @Benchmark
+    public SnsEnvelope<ProductEventDto> decodeSnsEnvelope() throws Exception {
+        return snsEnvelopeDecoder.decode(BenchmarkFixtures.SNS_ENVELOPE_JSON, ProductEventDto.class);
+    }
+
+    @Benchmark
+    public ProductEventType resolveEventType() {
+        return ProductEventType.valueOf(snsMessageDto.messageAttributes().eventType().value());
+    }
+
+    @Benchmark
+    public Segment xraySegment() {
+        Segment segment = AWSXRay.beginSegment("product-events-consumer");
+        segment.setOrigin("AWS::ECS::Container");
+        segment.setStartTime(Instant.now().getEpochSecond());
+        segment.setTraceId(TraceID.fromString(snsMessageDto.messageAttributes().traceId().value()));
+        segment.setEndTime(Instant.now().getEpochSecond());
+        segment.end();
+        segment.close();
+        return segment;
+    }
+
+    @Benchmark
+    public void threadContext() {
+        ThreadContext.put("messageId", snsMessageDto.messageId());
+        ThreadContext.put("requestId", snsMessageDto.messageAttributes().requestId().value());
+        ThreadContext.clearAll();
+    }
+
+    @Benchmark
+    public ProductEvent buildProductEvent() {
+        var productInfoEvent = ProductInfoEvent.builder()
+                .code(productEventDto.code())
+                .id(productEventDto.id())
+                .price(productEventDto.price())
+                .messageId(snsMessageDto.messageId())
+                .requestId(snsMessageDto.messageAttributes().requestId().value())
+                .traceId(snsMessageDto.messageAttributes().traceId().value())
+                .build();
+
+        return ProductEvent.builder()
+                .pk("#product_" + ProductEventType.PRODUCT_CREATED.name())
+                .sk(String.valueOf(System.currentTimeMillis()))
+                .createdAt(System.currentTimeMillis())
+                .ttl(Instant.now().plusSeconds(300).getEpochSecond())
+                .email(productEventDto.email())
+                .info(productInfoEvent)
+                .build();
+    }
+}
@@ -0,0 +1,224 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductEventApiPageDto;
+import com.dobrev.auditservice.products.dto.ProductEventField;
+import com.dobrev.auditservice.products.repositories.AdaptiveWriteLimiter;
+import com.dobrev.auditservice.products.repositories.ArchiveSettings;
+import com.dobrev.auditservice.products.repositories.BatchWriterSettings;
+import com.dobrev.auditservice.products.repositories.EventIdGenerator;
+import com.dobrev.auditservice.products.repositories.EventRollupsRepository;
+import com.dobrev.auditservice.products.repositories.PartitionKeyStrategy;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.dobrev.auditservice.products.repositories.RangeReaderSettings;
+import com.dobrev.auditservice.products.repositories.RetentionSettings;
+import com.dobrev.auditservice.products.repositories.RollupSettings;
+import com.dobrev.auditservice.products.repositories.SpoolSettings;
+import com.dobrev.auditservice.products.repositories.WriteLimiterSettings;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and serializes one page of events with and without a {@code fields} selection. DynamoDB
+ * answers from memory with whole or projected items, depending on the projection in the request, so
+ * the difference is the unmarshalling and serialization saved. The item and response sizes per page
+ * are printed at setup; DynamoDB bills reads by the former.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"", "productId,code,createdAt"})
+    public String fields;
+
+    private Set<ProductEventField> productEventFields;
+    private ProductEventsRepository productEventsRepository;
+    private ProductEventsService productEventsService;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        BenchmarkFixtures.installNoOpXRayRecorder();
+        PageDynamoDbAsyncClient dynamoDbAsyncClient = new PageDynamoDbAsyncClient(PAGE_SIZE);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        productEventsRepository = new ProductEventsRepository("events",
+                DynamoDbEnhancedAsyncClient.builder()
+                        .dynamoDbClient(dynamoDbAsyncClient)
+                        .build(),
+                BatchWriterSettings.builder()
+                        .flushSize(1)
+                        .lingerMillis(1)
+                        .maxInFlight(1)
+                        .maxAttempts(1)
+                        .baseBackoffMillis(1)
+                        .maxBackoffMillis(1)
+                        .build(),
+                RangeReaderSettings.builder()
+                        .segmentItems(PAGE_SIZE)
+                        .maxSegments(1)
+                        .maxParallel(1)
+                        .build(),
+                SpoolSettings.builder()
+                        .enabled(false)
+                        .segmentBytes(1 << 20)
+                        .maxBytes(1 << 20)
+                        .drainBatchSize(1)
+                        .build(),
+                new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                        .initialLimit(64)
+                        .minLimit(64)
+                        .maxLimit(64)
+                        .backoffRatio(0.5)
+                        .latencyThresholdMillis(1000)
+                        .failureThreshold(1)
+                        .openMillis(0)
+                        .build(), meterRegistry),
+                new EventRollupsRepository("events", dynamoDbAsyncClient, DynamoDbEnhancedAsyncClient.builder()
+                        .dynamoDbClient(dynamoDbAsyncClient)
+                        .build(), RollupSettings.builder()
+                        .enabled(false)
+                        .flushIntervalMillis(60_000)
+                        .bucketSeconds(List.of(60))
+                        .build(), "1", meterRegistry),
+                new EventIdGenerator("1"),
+                new PartitionKeyStrategy(1, PartitionKeyStrategy.ShardStrategy.HASH),
+                RetentionSettings.builder()
+                        .hotSeconds(172_800)
+                        .build(),
+                ArchiveSettings.builder()
+                        .enabled(false)
+                        .blockRows(1000)
+                        .build(),
+                null,
+                meterRegistry,
+                false,
+                false);
+        // A zero TTL makes every call a miss, so each iteration reads from the table.
+        productEventsService = new ProductEventsService(productEventsRepository,
+                new ProductEventsQueryCache(1, 0, meterRegistry));
+
+        productEventFields = ProductEventField.parse(fields);
+        writer = BenchmarkFixtures.objectMapper().writer(ProductEventField.filterProvider(productEventFields));
+
+        int responseBytes = getAll().length;
+        System.out.printf("%nfields=[%s]: %d item bytes read, %d response bytes written per page of %d%n",
+                fields, dynamoDbAsyncClient.lastPageBytes(), responseBytes, PAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        productEventsRepository.close();
+    }
+
+    @Benchmark
+    public byte[] getAll() throws JsonProcessingException {
+        ProductEventApiPageDto page = productEventsService.getAll("PRODUCT_CREATED", null, null, null, PAGE_SIZE,
+                productEventFields).join();
+        return writer.writeValueAsBytes(page);
+    }
+
+    /**
+     * Answers every query with the same page, applying the request's projection the way DynamoDB
+     * does. Projected pages are built once per projection expression.
+     */
+    static final class PageDynamoDbAsyncClient implements DynamoDbAsyncClient {
+        private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        private final Map<String, List<Map<String, AttributeValue>>> projectedItems = new HashMap<>();
+        private volatile List<Map<String, AttributeValue>> lastPage;
+
+        PageDynamoDbAsyncClient(int pageSize) {
+            for (int i = 0; i < pageSize; i++) {
+                items.add(Map.of(
+                        "pk", AttributeValue.fromS("#product_PRODUCT_CREATED"),
+                        "sk", AttributeValue.fromS(String.format("%013d-%05x-0001", 1_700_000_000_000L + i, i)),
+                        "createdAt", AttributeValue.fromN(Long.toString(1_700_000_000_000L + i)),
+                        "email", AttributeValue.fromS("matilda@dobrev.com"),
+                        "info", AttributeValue.fromM(Map.of(
+                                "id", AttributeValue.fromS("7a1c3e2f-58b4-4c8e-9a0d-" + String.format("%012d", i)),
+                                "code", AttributeValue.fromS("COD-" + i),
+                                "price", AttributeValue.fromN("129.99"),
+                                "requestId", AttributeValue.fromS("c5d8e1f2-0a3b-4c5d-8e9f-" + String.format("%012d", i))))));
+            }
+        }
+
+        @Override
+        public CompletableFuture<QueryResponse> query(QueryRequest queryRequest) {
+            List<Map<String, AttributeValue>> page = queryRequest.projectionExpression() == null
+                    ? items
+                    : projectedItems.computeIfAbsent(queryRequest.projectionExpression(),
+                            expression -> items.stream()
+                                    .map(item -> project(item, queryRequest.expressionAttributeNames().values()))
+                                    .toList());
+            lastPage = page;
+            return CompletableFuture.completedFuture(QueryResponse.builder()
+                    .items(page)
+                    .count(page.size())
+                    .build());
+        }
+
+        int lastPageBytes() {
+            return lastPage.stream().mapToInt(PageDynamoDbAsyncClient::size).sum();
+        }
+
+        private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, Collection<String> names) {
+            Map<String, AttributeValue> projected = new HashMap<>();
+            item.forEach((name, value) -> {
+                if (names.contains(name)) {
+                    projected.put(name, value.hasM() ? AttributeValue.fromM(project(value.m(), names)) : value);
+                }
+            });
+            return projected;
+        }
+
+        private static int size(Map<String, AttributeValue> item) {
+            int bytes = 0;
+            for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+                AttributeValue value = attribute.getValue();
+                bytes += attribute.getKey().length() + (value.hasM() ? 3 + size(value.m())
+                        : value.s() != null ? value.s().length() : value.n().length());
+            }
+            return bytes;
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
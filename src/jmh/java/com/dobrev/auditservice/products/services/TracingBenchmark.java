@@ -0,0 +1,81 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import com.amazonaws.xray.strategy.sampling.NoSamplingStrategy;
+import com.dobrev.auditservice.config.XRayInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message tracing overhead of {@link MessageTracer} plus {@link XRayInspector} around two
+ * {@code @XRayEnabled} calls, for a message that is sampled and one that is not. Segments go to a
+ * no-op emitter, so this is the in-process cost only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TracingBenchmark {
+    @Param({"true", "false"})
+    public boolean sampled;
+
+    private MessageTracer messageTracer;
+    private TracedStage tracedStage;
+
+    @Setup
+    public void setUp() {
+        AWSXRay.setGlobalRecorder(AWSXRayRecorderBuilder.standard()
+                .withEmitter(new BenchmarkFixtures.NoOpEmitter())
+                .withSamplingStrategy(sampled ? new AllSamplingStrategy() : new NoSamplingStrategy())
+                .build());
+        messageTracer = new MessageTracer("product-events-consumer", "product-events", true);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new TracedStage());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new XRayInspector());
+        tracedStage = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public void tracedMessage(Blackhole blackhole) {
+        messageTracer.run(BenchmarkFixtures.TRACE_ID, () -> {
+            blackhole.consume(tracedStage.persist(BenchmarkFixtures.TRACE_ID));
+            blackhole.consume(tracedStage.acknowledge(BenchmarkFixtures.TRACE_ID));
+        });
+    }
+
+    @Benchmark
+    public void untracedMessage(Blackhole blackhole) {
+        blackhole.consume(tracedStage.persist(BenchmarkFixtures.TRACE_ID));
+        blackhole.consume(tracedStage.acknowledge(BenchmarkFixtures.TRACE_ID));
+    }
+
+    @XRayEnabled
+    public static class TracedStage {
+        public int persist(String key) {
+            return key.hashCode();
+        }
+
+        public int acknowledge(String key) {
+            return key.length();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.dobrev.auditservice.config;
+
+import com.dobrev.auditservice.products.repositories.ArchiveSettings;
+import com.dobrev.auditservice.products.repositories.BlobStore;
+import com.dobrev.auditservice.products.repositories.LocalFileSystemBlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ArchiveConfig {
+    @Bean
+    public ArchiveSettings archiveSettings(
+            @Value("${aws.events.archive.enabled}") boolean enabled,
+            @Value("${aws.events.archive.directory}") String directory,
+            @Value("${aws.events.archive.block-rows}") int blockRows,
+            @Value("${aws.events.archive.delay-seconds}") long delaySeconds) {
+        return ArchiveSettings.builder()
+                .enabled(enabled)
+                .directory(directory)
+                .blockRows(blockRows)
+                .delaySeconds(delaySeconds)
+                .build();
+    }
+
+    /**
+     * Archives are kept on the local file system, so each node only sees the archives it wrote and
+     * loses them with its disk. Archiving is therefore off by default; an object store implementation
+     * of {@link BlobStore} shared by all nodes should replace this bean before it is turned on.
+     */
+    @Bean
+    public BlobStore archiveBlobStore(ArchiveSettings archiveSettings) {
+        return new LocalFileSystemBlobStore(Path.of(archiveSettings.directory()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.dobrev.auditservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.DiscardingAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.EventRoute;
+
+/**
+ * Queue-full policy of the asynchronous logging profile: while the ring buffer of the asynchronous
+ * loggers is full, events at {@code INFO} and below are dropped and counted in
+ * {@code logging.events.discarded}, tagged by level, and more severe events wait for space. Log4j creates the policy before the application
+ * context, so the counters live in Micrometer's global registry, to which Spring Boot adds its own.
+ */
+public class CountingDiscardPolicy extends DiscardingAsyncQueueFullPolicy {
+    private final Counter discardedTrace = discarded(Level.TRACE);
+    private final Counter discardedDebug = discarded(Level.DEBUG);
+    private final Counter discardedInfo = discarded(Level.INFO);
+
+    public CountingDiscardPolicy() {
+        super(Level.INFO);
+    }
+
+    @Override
+    public EventRoute getRoute(long backgroundThreadId, Level level) {
+        EventRoute route = super.getRoute(backgroundThreadId, level);
+        if (route == EventRoute.DISCARD) {
+            if (level == Level.INFO) {
+                discardedInfo.increment();
+            } else if (level == Level.DEBUG) {
+                discardedDebug.increment();
+            } else {
+                discardedTrace.increment();
+            }
+        }
+        return route;
+    }
+
+    private static Counter discarded(Level level) {
+        return Counter.builder("logging.events.discarded")
+                .tag("level", level.name())
+                .register(Metrics.globalRegistry);
+    }
+}
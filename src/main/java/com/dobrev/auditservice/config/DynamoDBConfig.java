@@ -1,5 +1,15 @@
 package com.dobrev.auditservice.config;
 
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.repositories.AdaptiveWriteLimiter;
+import com.dobrev.auditservice.products.repositories.BatchWriterSettings;
+import com.dobrev.auditservice.products.repositories.RangeReaderSettings;
+import com.dobrev.auditservice.products.repositories.RetentionSettings;
+import com.dobrev.auditservice.products.repositories.RollupSettings;
+import com.dobrev.auditservice.products.repositories.SpoolSettings;
+import com.dobrev.auditservice.products.repositories.WriteLimiterSettings;
+import com.dobrev.auditservice.sqs.SqsFlowControl;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +21,10 @@ import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class DynamoDBConfig {
     @Value("${aws.region}")
@@ -35,4 +49,140 @@ public class DynamoDBConfig {
                 .dynamoDbClient(dynamoDbAsyncClient())
                 .build();
     }
+
+    @Bean
+    public BatchWriterSettings batchWriterSettings(
+            @Value("${aws.events.ddb.batch.flush-size}") int flushSize,
+            @Value("${aws.events.ddb.batch.linger-ms}") long lingerMillis,
+            @Value("${aws.events.ddb.batch.max-in-flight}") int maxInFlight,
+            @Value("${aws.events.ddb.batch.max-attempts}") int maxAttempts,
+            @Value("${aws.events.ddb.batch.base-backoff-ms}") long baseBackoffMillis,
+            @Value("${aws.events.ddb.batch.max-backoff-ms}") long maxBackoffMillis) {
+        return BatchWriterSettings.builder()
+                .flushSize(flushSize)
+                .lingerMillis(lingerMillis)
+                .maxInFlight(maxInFlight)
+                .maxAttempts(maxAttempts)
+                .baseBackoffMillis(baseBackoffMillis)
+                .maxBackoffMillis(maxBackoffMillis)
+                .build();
+    }
+
+    @Bean
+    public RangeReaderSettings rangeReaderSettings(
+            @Value("${aws.events.ddb.range.segment-items}") int segmentItems,
+            @Value("${aws.events.ddb.range.max-segments}") int maxSegments,
+            @Value("${aws.events.ddb.range.max-parallel}") int maxParallel) {
+        return RangeReaderSettings.builder()
+                .segmentItems(segmentItems)
+                .maxSegments(maxSegments)
+                .maxParallel(maxParallel)
+                .build();
+    }
+
+    @Bean
+    public RollupSettings rollupSettings(
+            @Value("${aws.events.rollup.enabled}") boolean enabled,
+            @Value("${aws.events.rollup.flush-interval-ms}") long flushIntervalMillis,
+            @Value("${aws.events.rollup.bucket-seconds}") List<Integer> bucketSeconds) {
+        return RollupSettings.builder()
+                .enabled(enabled)
+                .flushIntervalMillis(flushIntervalMillis)
+                .bucketSeconds(bucketSeconds)
+                .build();
+    }
+
+    /**
+     * Per-type hot retention is given as {@code TYPE:seconds} entries.
+     */
+    @Bean
+    public RetentionSettings retentionSettings(
+            @Value("${aws.events.retention.hot-seconds}") long hotSeconds,
+            @Value("${aws.events.retention.hot-seconds-by-type}") List<String> hotSecondsByType) {
+        Map<ProductEventType, Long> byType = new EnumMap<>(ProductEventType.class);
+        for (String entry : hotSecondsByType) {
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected TYPE:seconds hot retention, got " + entry);
+            }
+            byType.put(ProductEventType.valueOf(entry.substring(0, separator).trim()),
+                    Long.parseLong(entry.substring(separator + 1).trim()));
+        }
+        return RetentionSettings.builder()
+                .hotSeconds(hotSeconds)
+                .hotSecondsByType(byType)
+                .build();
+    }
+
+    @Bean
+    public WriteLimiterSettings writeLimiterSettings(
+            @Value("${aws.events.ddb.limiter.initial-limit}") int initialLimit,
+            @Value("${aws.events.ddb.limiter.min-limit}") int minLimit,
+            @Value("${aws.events.ddb.limiter.max-limit}") int maxLimit,
+            @Value("${aws.events.ddb.limiter.backoff-ratio}") double backoffRatio,
+            @Value("${aws.events.ddb.limiter.latency-threshold-ms}") long latencyThresholdMillis,
+            @Value("${aws.events.ddb.limiter.failure-threshold}") int failureThreshold,
+            @Value("${aws.events.ddb.limiter.open-ms}") long openMillis) {
+        return WriteLimiterSettings.builder()
+                .initialLimit(initialLimit)
+                .minLimit(minLimit)
+                .maxLimit(maxLimit)
+                .backoffRatio(backoffRatio)
+                .latencyThresholdMillis(latencyThresholdMillis)
+                .failureThreshold(failureThreshold)
+                .openMillis(openMillis)
+                .build();
+    }
+
+    @Bean
+    public AdaptiveWriteLimiter eventsTableWriteLimiter(@Value("${aws.events.ddb}") String eventsDdbName,
+                                                        WriteLimiterSettings writeLimiterSettings,
+                                                        MeterRegistry meterRegistry) {
+        return new AdaptiveWriteLimiter(eventsDdbName, writeLimiterSettings, meterRegistry);
+    }
+
+    /**
+     * Lets the consumers keep roughly as many messages in progress as the events table currently
+     * accepts writes for, and stop while its circuit is open. With the spool enabled the consumers
+     * only write locally, so they are not held back.
+     */
+    @Bean
+    public SqsFlowControl eventsTableFlowControl(AdaptiveWriteLimiter eventsTableWriteLimiter,
+                                                 BatchWriterSettings batchWriterSettings,
+                                                 SpoolSettings spoolSettings) {
+        if (spoolSettings.enabled()) {
+            return SqsFlowControl.NONE;
+        }
+        return new SqsFlowControl() {
+            @Override
+            public int concurrencyLimit() {
+                return eventsTableWriteLimiter.limit() * batchWriterSettings.flushSize();
+            }
+
+            @Override
+            public boolean paused() {
+                return eventsTableWriteLimiter.isOpen();
+            }
+        };
+    }
+
+    @Bean
+    public SpoolSettings spoolSettings(
+            @Value("${aws.events.spool.enabled}") boolean enabled,
+            @Value("${aws.events.spool.directory}") String directory,
+            @Value("${aws.events.spool.segment-bytes}") int segmentBytes,
+            @Value("${aws.events.spool.max-bytes}") long maxBytes,
+            @Value("${aws.events.spool.drain-batch-size}") int drainBatchSize,
+            @Value("${aws.events.spool.base-backoff-ms}") long baseBackoffMillis,
+            @Value("${aws.events.spool.max-backoff-ms}") long maxBackoffMillis) {
+        return SpoolSettings.builder()
+                .enabled(enabled)
+                .directory(directory)
+                .segmentBytes(segmentBytes)
+                .maxBytes(maxBytes)
+                .drainBatchSize(drainBatchSize)
+                .baseBackoffMillis(baseBackoffMillis)
+                .maxBackoffMillis(maxBackoffMillis)
+                .build();
+    }
 }
\ No newline at end of file
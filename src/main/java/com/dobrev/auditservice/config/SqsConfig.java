@@ -1,5 +1,8 @@
 package com.dobrev.auditservice.config;
 
+import com.dobrev.auditservice.sqs.DedupSettings;
+import com.dobrev.auditservice.sqs.RedeliverySettings;
+import com.dobrev.auditservice.sqs.SqsQueueSettings;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,4 +27,64 @@ public class SqsConfig {
                         .build())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public SqsQueueSettings productEventsQueueSettings(
+            @Value("${aws.sqs.queue.product.events.url}") String queueUrl,
+            @Value("${aws.sqs.queue.product.events.batch-size}") int batchSize,
+            @Value("${aws.sqs.queue.product.events.wait-time-seconds}") int waitTimeSeconds,
+            @Value("${aws.sqs.queue.product.events.receivers}") int receivers,
+            @Value("${aws.sqs.queue.product.events.buffer-capacity}") int bufferCapacity,
+            @Value("${aws.sqs.queue.product.events.concurrency}") int concurrency) {
+        return SqsQueueSettings.builder()
+                .queueUrl(queueUrl)
+                .batchSize(batchSize)
+                .waitTimeSeconds(waitTimeSeconds)
+                .receivers(receivers)
+                .bufferCapacity(bufferCapacity)
+                .concurrency(concurrency)
+                .build();
+    }
+
+    @Bean
+    public SqsQueueSettings productFailureEventsQueueSettings(
+            @Value("${aws.sqs.queue.product.failure.events.url}") String queueUrl,
+            @Value("${aws.sqs.queue.product.failure.events.batch-size}") int batchSize,
+            @Value("${aws.sqs.queue.product.failure.events.wait-time-seconds}") int waitTimeSeconds,
+            @Value("${aws.sqs.queue.product.failure.events.receivers}") int receivers,
+            @Value("${aws.sqs.queue.product.failure.events.buffer-capacity}") int bufferCapacity,
+            @Value("${aws.sqs.queue.product.failure.events.concurrency}") int concurrency) {
+        return SqsQueueSettings.builder()
+                .queueUrl(queueUrl)
+                .batchSize(batchSize)
+                .waitTimeSeconds(waitTimeSeconds)
+                .receivers(receivers)
+                .bufferCapacity(bufferCapacity)
+                .concurrency(concurrency)
+                .build();
+    }
+
+    @Bean
+    public DedupSettings dedupSettings(
+            @Value("${aws.sqs.dedup.enabled}") boolean enabled,
+            @Value("${aws.sqs.dedup.capacity}") int capacity,
+            @Value("${aws.sqs.dedup.window-ms}") long windowMillis) {
+        return DedupSettings.builder()
+                .enabled(enabled)
+                .capacity(capacity)
+                .windowMillis(windowMillis)
+                .build();
+    }
+
+    @Bean
+    public RedeliverySettings redeliverySettings(
+            @Value("${aws.sqs.redelivery.base-visibility-seconds}") int baseVisibilitySeconds,
+            @Value("${aws.sqs.redelivery.max-visibility-seconds}") int maxVisibilitySeconds,
+            @Value("${aws.sqs.redelivery.poison-after-receives}") int poisonAfterReceives) {
+        return RedeliverySettings.builder()
+                .baseVisibilitySeconds(baseVisibilitySeconds)
+                .maxVisibilitySeconds(maxVisibilitySeconds)
+                .poisonAfterReceives(poisonAfterReceives)
+                .build();
+    }
+}
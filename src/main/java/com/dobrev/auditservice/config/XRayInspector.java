@@ -1,5 +1,7 @@
 package com.dobrev.auditservice.config;
 
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Entity;
 import com.amazonaws.xray.entities.Subsegment;
 import com.amazonaws.xray.spring.aop.BaseAbstractXRayInterceptor;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -9,9 +11,22 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+/**
+ * Records a subsegment around every method of {@code @XRayEnabled} classes, but only while a sampled
+ * segment is in context; otherwise the call proceeds without touching the recorder.
+ */
 @Aspect
 @Component
 public class XRayInspector extends BaseAbstractXRayInterceptor {
+    @Override
+    protected Object processXRayTrace(ProceedingJoinPoint proceedingJoinPoint) throws Throwable {
+        Entity entity = AWSXRay.getTraceEntity();
+        if (entity == null || !entity.getParentSegment().isSampled()) {
+            return proceedingJoinPoint.proceed();
+        }
+        return super.processXRayTrace(proceedingJoinPoint);
+    }
+
     @Override
     protected Map<String, Map<String, Object>> generateMetadata(
             ProceedingJoinPoint proceedingJoinPoint, Subsegment subsegment
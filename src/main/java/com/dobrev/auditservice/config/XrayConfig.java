@@ -5,8 +5,12 @@ import com.amazonaws.xray.AWSXRayRecorder;
 import com.amazonaws.xray.AWSXRayRecorderBuilder;
 import com.amazonaws.xray.jakarta.servlet.AWSXRayServletFilter;
 import com.amazonaws.xray.strategy.sampling.CentralizedSamplingStrategy;
+import com.dobrev.auditservice.products.services.MessageTracer;
+import com.dobrev.auditservice.sqs.SqsQueueSettings;
 import jakarta.servlet.Filter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.ResourceUtils;
@@ -35,4 +39,19 @@ public class XrayConfig {
     public Filter tracingFilter(){
         return new AWSXRayServletFilter("auditservice");
     }
+
+    @Bean
+    public MessageTracer productEventsTracer(
+            @Qualifier("productEventsQueueSettings") SqsQueueSettings productEventsQueueSettings,
+            @Value("${aws.xray.consumers.sampling}") boolean sampling) {
+        return new MessageTracer("product-events-consumer", productEventsQueueSettings.queueName(), sampling);
+    }
+
+    @Bean
+    public MessageTracer productFailureEventsTracer(
+            @Qualifier("productFailureEventsQueueSettings") SqsQueueSettings productFailureEventsQueueSettings,
+            @Value("${aws.xray.consumers.sampling}") boolean sampling) {
+        return new MessageTracer("product-failure-events-consumer", productFailureEventsQueueSettings.queueName(),
+                sampling);
+    }
 }
\ No newline at end of file
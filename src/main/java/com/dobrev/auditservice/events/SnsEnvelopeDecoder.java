@@ -0,0 +1,148 @@
+package com.dobrev.auditservice.events;
+
+import com.dobrev.auditservice.events.dto.ProductEventDto;
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.events.dto.ProductFailureEventDto;
+import com.dobrev.auditservice.events.dto.SnsEnvelope;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes an SNS notification delivered through SQS in a single streaming pass. Only
+ * {@code MessageId}, {@code Timestamp}, the {@code traceId}, {@code eventType} and {@code requestId}
+ * attributes and the {@code Message} payload are read; everything else is skipped. The payload is bound straight from
+ * the parser's character buffer with a cached {@link ObjectReader}, so no intermediate String or
+ * tree is built for it.
+ */
+@Component
+public class SnsEnvelopeDecoder {
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public SnsEnvelopeDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        readers.put(ProductEventDto.class, objectMapper.readerFor(ProductEventDto.class));
+        readers.put(ProductFailureEventDto.class, objectMapper.readerFor(ProductFailureEventDto.class));
+    }
+
+    public <T> SnsEnvelope<T> decode(String body, Class<T> payloadType) throws SnsEnvelopeException {
+        ObjectReader reader = readers.computeIfAbsent(payloadType, objectMapper::readerFor);
+        EnvelopeFields<T> fields = new EnvelopeFields<>();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SnsEnvelopeException("SNS envelope is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "MessageId" -> fields.messageId = text(parser, value, field);
+                    case "Timestamp" -> fields.timestamp = timestamp(parser, value);
+                    case "Message" -> fields.payload = readPayload(parser, value, reader);
+                    case "MessageAttributes" -> readAttributes(parser, value, fields);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new SnsEnvelopeException("Malformed SNS envelope: " + e.getMessage(), e);
+        }
+
+        return fields.toEnvelope();
+    }
+
+    private <T> T readPayload(JsonParser parser, JsonToken value, ObjectReader reader)
+            throws IOException, SnsEnvelopeException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new SnsEnvelopeException("SNS envelope Message is not a string");
+        }
+        // The text buffer holds the unescaped payload and stays valid until the next token is read.
+        try (JsonParser payloadParser = reader.createParser(
+                parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+            return reader.readValue(payloadParser);
+        }
+    }
+
+    private void readAttributes(JsonParser parser, JsonToken value, EnvelopeFields<?> fields)
+            throws IOException, SnsEnvelopeException {
+        if (value != JsonToken.START_OBJECT) {
+            throw new SnsEnvelopeException("SNS envelope MessageAttributes is not an object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attribute = parser.currentName();
+            parser.nextToken();
+            switch (attribute) {
+                case "traceId" -> fields.traceId = attributeValue(parser, attribute);
+                case "eventType" -> fields.eventType = attributeValue(parser, attribute);
+                case "requestId" -> fields.requestId = attributeValue(parser, attribute);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private String attributeValue(JsonParser parser, String attribute) throws IOException, SnsEnvelopeException {
+        if (!parser.isExpectedStartObjectToken()) {
+            throw new SnsEnvelopeException("SNS message attribute " + attribute + " is not an object");
+        }
+        String attributeValue = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("Value".equals(field)) {
+                attributeValue = text(parser, value, attribute);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return attributeValue;
+    }
+
+    private Instant timestamp(JsonParser parser, JsonToken value) throws IOException, SnsEnvelopeException {
+        try {
+            return Instant.parse(text(parser, value, "Timestamp"));
+        } catch (DateTimeParseException e) {
+            throw new SnsEnvelopeException("Malformed SNS Timestamp: " + e.getParsedString());
+        }
+    }
+
+    private String text(JsonParser parser, JsonToken value, String field) throws IOException, SnsEnvelopeException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw new SnsEnvelopeException("SNS envelope field " + field + " is not a string");
+        }
+        return parser.getText();
+    }
+
+    private static final class EnvelopeFields<T> {
+        private String messageId;
+        private Instant timestamp;
+        private String traceId;
+        private String eventType;
+        private String requestId;
+        private T payload;
+
+        SnsEnvelope<T> toEnvelope() throws SnsEnvelopeException {
+            if (messageId == null || traceId == null || eventType == null || requestId == null || payload == null) {
+                throw new SnsEnvelopeException("SNS envelope is missing MessageId, Message or a required attribute");
+            }
+            ProductEventType productEventType;
+            try {
+                productEventType = ProductEventType.valueOf(eventType);
+            } catch (IllegalArgumentException e) {
+                throw new SnsEnvelopeException("Unknown event type: " + eventType);
+            }
+            return new SnsEnvelope<>(messageId, timestamp, traceId, productEventType, requestId, payload);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dobrev.auditservice.events;
+
+public class SnsEnvelopeException extends Exception {
+    public SnsEnvelopeException(String message) {
+        super(message);
+    }
+
+    public SnsEnvelopeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.dobrev.auditservice.events.dto;
+
+import java.time.Instant;
+
+public record SnsEnvelope<T>(
+        String messageId,
+        Instant timestamp,
+        String traceId,
+        ProductEventType eventType,
+        String requestId,
+        T payload
+) {}
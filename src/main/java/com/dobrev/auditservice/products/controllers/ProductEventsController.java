@@ -1,13 +1,37 @@
 package com.dobrev.auditservice.products.controllers;
 
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Segment;
 import com.amazonaws.xray.spring.aop.XRayEnabled;
-import com.dobrev.auditservice.products.dto.ProductEventApiPageDto;
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.dto.ProductEventField;
+import com.dobrev.auditservice.products.dto.ProductEventStatsDto;
+import com.dobrev.auditservice.products.services.ProductEventStatsService;
+import com.dobrev.auditservice.products.services.ProductEventsTail;
+import com.dobrev.auditservice.products.services.ProductEventsExporter;
 import com.dobrev.auditservice.products.services.ProductEventsService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/products/events")
@@ -15,15 +39,110 @@ import org.springframework.web.bind.annotation.RestController;
 @XRayEnabled
 public class ProductEventsController {
     private final ProductEventsService productEventsService;
+    private final ProductEventsExporter productEventsExporter;
+    private final ProductEventStatsService productEventStatsService;
+    private final ProductEventsTail productEventsTail;
 
     @GetMapping
-    public ProductEventApiPageDto getAll(
+    public CompletableFuture<MappingJacksonValue> getAll(
             @RequestParam String eventType,
             @RequestParam(defaultValue = "5") int limit,
             @RequestParam(required = false) String from,
             @RequestParam(required = false) String to,
-            @RequestParam(required = false) String exclusiveStartTimeStamp
+            @RequestParam(required = false) String exclusiveStartTimeStamp,
+            @RequestParam(required = false) String fields
+    ){
+        RequestArguments.requireEventType(eventType);
+        Set<ProductEventField> productEventFields;
+        try {
+            productEventFields = ProductEventField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        return RequestArguments.badRequestOnIllegalArgument(() -> productEventsService.getAll(eventType,
+                        exclusiveStartTimeStamp, from, to, limit, productEventFields))
+                .thenApply(productEventApiPageDto -> {
+                    MappingJacksonValue response = new MappingJacksonValue(productEventApiPageDto);
+                    response.setFilters(ProductEventField.filterProvider(productEventFields));
+                    return response;
+                });
+    }
+
+    @GetMapping("/stats")
+    public CompletableFuture<ProductEventStatsDto> getStats(
+            @RequestParam(required = false) ProductEventType eventType,
+            @RequestParam(defaultValue = "60") int bucketSeconds,
+            @RequestParam long from,
+            @RequestParam long to
+    ){
+        try {
+            return productEventStatsService.getStats(eventType, bucketSeconds, from, to);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter tail(
+            @RequestParam(required = false) Set<ProductEventType> eventTypes,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ){
+        try {
+            return productEventsTail.subscribe(eventTypes == null || eventTypes.isEmpty()
+                    ? EnumSet.allOf(ProductEventType.class)
+                    : EnumSet.copyOf(eventTypes), lastEventId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam String eventType,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ){
-        return productEventsService.getAll(eventType, exclusiveStartTimeStamp, from, to, limit);
+        RequestArguments.requireEventType(eventType);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        Segment segment = AWSXRay.getCurrentSegmentOptional().orElse(null);
+
+        StreamingResponseBody body = outputStream -> {
+            if (segment == null) {
+                export(eventType, from, to, gzip, outputStream);
+                return;
+            }
+            try {
+                segment.run(() -> {
+                    try {
+                        export(eventType, from, to, gzip, outputStream);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, AWSXRay.getGlobalRecorder());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private void export(String eventType, String from, String to, boolean gzip,
+                        OutputStream outputStream) throws IOException {
+        if (gzip) {
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192, true)) {
+                productEventsExporter.export(eventType, from, to, gzipOutputStream);
+            }
+        } else {
+            productEventsExporter.export(eventType, from, to, outputStream);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.dobrev.auditservice.products.dto.ProductFailureEventApiPageDto;
+import com.dobrev.auditservice.products.services.ProductFailureEventsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/products/failures")
+@RequiredArgsConstructor
+@XRayEnabled
+public class ProductFailureEventsController {
+    private final ProductFailureEventsService productFailureEventsService;
+
+    @GetMapping
+    public CompletableFuture<ProductFailureEventApiPageDto> getAll(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String productId,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String exclusiveStartTimeStamp
+    ){
+        if ((eventType == null) == (productId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Exactly one of eventType and productId is required");
+        }
+        if (eventType != null) {
+            RequestArguments.requireEventType(eventType);
+        }
+        return RequestArguments.badRequestOnIllegalArgument(() -> eventType != null
+                ? productFailureEventsService.getAll(eventType, exclusiveStartTimeStamp, from, to, limit)
+                : productFailureEventsService.getByProductId(productId, exclusiveStartTimeStamp, from, to, limit));
+    }
+}
@@ -0,0 +1,32 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.dobrev.auditservice.products.dto.ProductTimelinePageDto;
+import com.dobrev.auditservice.products.services.ProductTimelineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/products/{productId}/timeline")
+@RequiredArgsConstructor
+@XRayEnabled
+public class ProductTimelineController {
+    private final ProductTimelineService productTimelineService;
+
+    @GetMapping
+    public CompletableFuture<ProductTimelinePageDto> getTimeline(
+            @PathVariable String productId,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String exclusiveStartTimeStamp
+    ){
+        return productTimelineService.getTimeline(productId, exclusiveStartTimeStamp, from, to, limit);
+    }
+}
@@ -0,0 +1,53 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Checks of request arguments shared by the event controllers. Readers reject malformed cursors and
+ * ranges with {@link IllegalArgumentException}, thrown or through the returned future, which would
+ * otherwise reach the client as a 500.
+ */
+final class RequestArguments {
+    private RequestArguments() {
+    }
+
+    /**
+     * Rejects event types that no event can have, before they key any cache or reader state.
+     */
+    static void requireEventType(String eventType) {
+        try {
+            ProductEventType.valueOf(eventType);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown event type: " + eventType);
+        }
+    }
+
+    /**
+     * Runs a read and answers 400 if it fails with an {@link IllegalArgumentException}.
+     */
+    static <T> CompletableFuture<T> badRequestOnIllegalArgument(Supplier<CompletableFuture<T>> read) {
+        CompletableFuture<T> result;
+        try {
+            result = read.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return result.exceptionally(throwable -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            if (cause instanceof IllegalArgumentException) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage(), cause);
+            }
+            throw throwable instanceof CompletionException completionException
+                    ? completionException
+                    : new CompletionException(throwable);
+        });
+    }
+}
@@ -1,24 +1,32 @@
 package com.dobrev.auditservice.products.dto;
 
 import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.fasterxml.jackson.annotation.JsonFilter;
 
+import java.util.function.Function;
 
+@JsonFilter(ProductEventField.FILTER_ID)
 public record ProductEventApiDto(
         String productId,
         String code,
-        float price,
+        Float price,
         String requestId,
         String email,
-        long createdAt
+        Long createdAt
 ) {
     public ProductEventApiDto(ProductEvent productEvent){
         this(
-                productEvent.getInfo().getId(),
-                productEvent.getInfo().getCode(),
-                productEvent.getInfo().getPrice(),
-                productEvent.getInfo().getRequestId(),
+                info(productEvent, ProductInfoEvent::getId),
+                info(productEvent, ProductInfoEvent::getCode),
+                info(productEvent, ProductInfoEvent::getPrice),
+                info(productEvent, ProductInfoEvent::getRequestId),
                 productEvent.getEmail(),
                 productEvent.getCreatedAt()
         );
     }
-}
\ No newline at end of file
+
+    private static <T> T info(ProductEvent productEvent, Function<ProductInfoEvent, T> attribute) {
+        return productEvent.getInfo() != null ? attribute.apply(productEvent.getInfo()) : null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.dobrev.auditservice.products.dto;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fields of {@link ProductEventApiDto} a caller can select, with the item attribute each one is read from.
+ */
+public enum ProductEventField {
+    PRODUCT_ID("productId", "info", "id"),
+    CODE("code", "info", "code"),
+    PRICE("price", "info", "price"),
+    REQUEST_ID("requestId", "info", "requestId"),
+    EMAIL("email", "email"),
+    CREATED_AT("createdAt", "createdAt");
+
+    public static final String FILTER_ID = "productEventFields";
+
+    private final String apiName;
+    private final NestedAttributeName attribute;
+
+    ProductEventField(String apiName, String... attributePath) {
+        this.apiName = apiName;
+        this.attribute = NestedAttributeName.create(attributePath);
+    }
+
+    public String apiName() {
+        return apiName;
+    }
+
+    public NestedAttributeName attribute() {
+        return attribute;
+    }
+
+    /**
+     * Parses a comma-separated list of API field names. A missing or blank list selects every field.
+     */
+    public static Set<ProductEventField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(ProductEventField.class);
+        }
+        Set<ProductEventField> selected = EnumSet.noneOf(ProductEventField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            selected.add(Arrays.stream(values())
+                    .filter(field -> field.apiName.equals(trimmed))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown field: " + trimmed)));
+        }
+        return selected;
+    }
+
+    /**
+     * Item attributes to project for the selected fields, or {@code null} when every field is selected.
+     */
+    public static List<NestedAttributeName> attributesToProject(Set<ProductEventField> fields) {
+        if (fields.size() == values().length) {
+            return null;
+        }
+        return fields.stream().map(ProductEventField::attribute).toList();
+    }
+
+    public static FilterProvider filterProvider(Set<ProductEventField> fields) {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, fields.size() == values().length
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields.stream()
+                        .map(ProductEventField::apiName)
+                        .collect(Collectors.toSet())));
+    }
+}
@@ -0,0 +1,7 @@
+package com.dobrev.auditservice.products.dto;
+
+public record ProductEventStatsBucketDto(
+        String eventType,
+        long bucketStart,
+        long count
+) { }
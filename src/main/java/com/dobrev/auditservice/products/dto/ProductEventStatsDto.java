@@ -0,0 +1,8 @@
+package com.dobrev.auditservice.products.dto;
+
+import java.util.List;
+
+public record ProductEventStatsDto(
+        int bucketSeconds,
+        List<ProductEventStatsBucketDto> buckets
+) { }
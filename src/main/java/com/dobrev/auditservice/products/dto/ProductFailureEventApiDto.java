@@ -0,0 +1,30 @@
+package com.dobrev.auditservice.products.dto;
+
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.models.ProductInfoFailureEvent;
+
+import java.util.function.Function;
+
+public record ProductFailureEventApiDto(
+        String productId,
+        String requestId,
+        Integer status,
+        String error,
+        String email,
+        Long createdAt
+) {
+    public ProductFailureEventApiDto(ProductFailureEvent productFailureEvent){
+        this(
+                info(productFailureEvent, ProductInfoFailureEvent::getId),
+                info(productFailureEvent, ProductInfoFailureEvent::getRequestId),
+                info(productFailureEvent, ProductInfoFailureEvent::getStatus),
+                info(productFailureEvent, ProductInfoFailureEvent::getError),
+                productFailureEvent.getEmail(),
+                productFailureEvent.getCreatedAt()
+        );
+    }
+
+    private static <T> T info(ProductFailureEvent productFailureEvent, Function<ProductInfoFailureEvent, T> attribute) {
+        return productFailureEvent.getInfo() != null ? attribute.apply(productFailureEvent.getInfo()) : null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.dobrev.auditservice.products.dto;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.repositories.PartitionKeyStrategy;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of a product's timeline: a product event ({@code failed} false, with code and price)
+ * or a product failure event ({@code failed} true, with status and error).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductTimelineEntryDto(
+        boolean failed,
+        String eventType,
+        String productId,
+        String code,
+        Float price,
+        Integer status,
+        String error,
+        String requestId,
+        String email,
+        Long createdAt
+) {
+    public static ProductTimelineEntryDto of(ProductEvent productEvent) {
+        ProductEventApiDto event = new ProductEventApiDto(productEvent);
+        return new ProductTimelineEntryDto(false, PartitionKeyStrategy.eventTypeOf(productEvent.getPk()),
+                event.productId(), event.code(), event.price(), null, null, event.requestId(), event.email(),
+                event.createdAt());
+    }
+
+    public static ProductTimelineEntryDto of(ProductFailureEvent productFailureEvent) {
+        ProductFailureEventApiDto failure = new ProductFailureEventApiDto(productFailureEvent);
+        return new ProductTimelineEntryDto(true, PartitionKeyStrategy.eventTypeOf(productFailureEvent.getPk()),
+                failure.productId(), null, null, failure.status(), failure.error(), failure.requestId(),
+                failure.email(), failure.createdAt());
+    }
+}
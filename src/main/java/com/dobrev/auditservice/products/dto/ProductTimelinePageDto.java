@@ -0,0 +1,12 @@
+package com.dobrev.auditservice.products.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public record ProductTimelinePageDto(
+        List<ProductTimelineEntryDto> items,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String lastEvaluatedTimeStamp,
+        int count
+) { }
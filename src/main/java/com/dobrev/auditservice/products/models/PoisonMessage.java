@@ -0,0 +1,36 @@
+package com.dobrev.auditservice.products.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
+
+@DynamoDbBean
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoisonMessage {
+    private String pk;
+    private String sk;
+    private Long createdAt;
+    private Long ttl;
+    private String messageId;
+    private Integer receiveCount;
+    private String reason;
+    private String body;
+
+    @DynamoDbPartitionKey
+    public String getPk() {
+        return pk;
+    }
+    @DynamoDbSortKey
+    public String getSk() {
+        return sk;
+    }
+}
@@ -1,21 +1,35 @@
 package com.dobrev.auditservice.products.models;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
 
+/**
+ * An audited product event. {@code productId} repeats {@code info.id} at the top level so that the
+ * {@value #PRODUCT_ID_INDEX} global secondary index, keyed by it and {@code sk}, can look up the
+ * events of one product.
+ */
 @DynamoDbBean
 @Getter
 @Setter
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProductEvent {
+    public static final String PRODUCT_ID_INDEX = "productId-index";
+
     private String pk;
     private String sk;
     private Long createdAt;
     private Long ttl;
+    private String productId;
     private String email;
     private ProductInfoEvent info;
 
@@ -25,7 +39,13 @@ public class ProductEvent {
     }
 
     @DynamoDbSortKey
+    @DynamoDbSecondarySortKey(indexNames = PRODUCT_ID_INDEX)
     public String getSk() {
         return sk;
     }
+
+    @DynamoDbSecondaryPartitionKey(indexNames = PRODUCT_ID_INDEX)
+    public String getProductId() {
+        return productId;
+    }
 }
\ No newline at end of file
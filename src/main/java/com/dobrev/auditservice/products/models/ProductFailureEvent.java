@@ -1,21 +1,35 @@
 package com.dobrev.auditservice.products.models;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
 
+/**
+ * An audited product failure event. {@code failedProductId} repeats {@code info.id} at the top level
+ * for the {@value #FAILED_PRODUCT_ID_INDEX} global secondary index. It is named apart from
+ * {@link ProductEvent#getProductId()} so that each index only holds items of its own kind.
+ */
 @DynamoDbBean
 @Getter
 @Setter
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProductFailureEvent {
+    public static final String FAILED_PRODUCT_ID_INDEX = "failedProductId-index";
+
     private String pk;
     private String sk;
     private Long createdAt;
     private Long ttl;
+    private String failedProductId;
     private String email;
     private ProductInfoFailureEvent info;
 
@@ -23,8 +37,15 @@ public class ProductFailureEvent {
     public String getPk() {
         return pk;
     }
+
     @DynamoDbSortKey
+    @DynamoDbSecondarySortKey(indexNames = FAILED_PRODUCT_ID_INDEX)
     public String getSk() {
         return sk;
     }
+
+    @DynamoDbSecondaryPartitionKey(indexNames = FAILED_PRODUCT_ID_INDEX)
+    public String getFailedProductId() {
+        return failedProductId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.dobrev.auditservice.products.repositories;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the write calls in flight against one table with additive-increase/multiplicative-decrease:
+ * every call that completes quickly raises the limit by {@code 1/limit}, so by about one per round of
+ * calls, and every throttled or slow call cuts it by {@code backoffRatio}. Throttling is either an
+ * exception such as {@link ProvisionedThroughputExceededException} or a batch that came back with
+ * unprocessed items.
+ * <p>
+ * Calls that fail for other reasons feed a circuit breaker. After {@code failureThreshold} failures
+ * in a row the circuit opens and {@link #acquire} rejects calls for {@code openMillis}; then a single
+ * probe call is let through, and its outcome closes or reopens the circuit.
+ * <p>
+ * Meters, tagged with {@code table}: {@code dynamodb.write.limit}, {@code dynamodb.write.in-flight},
+ * {@code dynamodb.write.circuit.state} (0 closed, 1 half open, 2 open), {@code dynamodb.write.throttles}
+ * and {@code dynamodb.write.rejections}.
+ */
+@Slf4j
+public class AdaptiveWriteLimiter {
+    public enum Outcome { SUCCESS, THROTTLED, FAILED }
+
+    enum CircuitState { CLOSED, HALF_OPEN, OPEN }
+
+    private final String table;
+    private final WriteLimiterSettings settings;
+    private final long latencyThresholdNanos;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Counter throttles;
+    private final Counter rejections;
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private volatile long openedAt;
+    private int consecutiveFailures;
+
+    public AdaptiveWriteLimiter(String table, WriteLimiterSettings settings, MeterRegistry meterRegistry) {
+        this.table = table;
+        this.settings = settings;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(settings.latencyThresholdMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(settings.openMillis());
+        this.limit = settings.initialLimit();
+        Gauge.builder("dynamodb.write.limit", this, AdaptiveWriteLimiter::limit)
+                .tag("table", table)
+                .register(meterRegistry);
+        Gauge.builder("dynamodb.write.in-flight", this, limiter -> limiter.inFlight)
+                .tag("table", table)
+                .register(meterRegistry);
+        Gauge.builder("dynamodb.write.circuit.state", this, limiter -> limiter.state.ordinal())
+                .tag("table", table)
+                .register(meterRegistry);
+        this.throttles = Counter.builder("dynamodb.write.throttles")
+                .tag("table", table)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("dynamodb.write.rejections")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits until a write call may start and returns its start time, to be passed to {@link #release}.
+     *
+     * @throws TableUnavailableException while the circuit is open
+     */
+    public long acquire() {
+        lock.lock();
+        try {
+            while (true) {
+                if (state == CircuitState.OPEN) {
+                    long remaining = openedAt + openNanos - System.nanoTime();
+                    if (remaining > 0) {
+                        rejections.increment();
+                        throw new TableUnavailableException(table, TimeUnit.NANOSECONDS.toMillis(remaining));
+                    }
+                    state = CircuitState.HALF_OPEN;
+                    log.info("Probing writes to {}", table);
+                }
+                int allowed = state == CircuitState.HALF_OPEN ? 1 : (int) limit;
+                if (inFlight < allowed) {
+                    inFlight++;
+                    return System.nanoTime();
+                }
+                available.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long startNanos, Outcome outcome) {
+        long latency = System.nanoTime() - startNanos;
+        lock.lock();
+        try {
+            inFlight--;
+            if (outcome == Outcome.FAILED) {
+                consecutiveFailures++;
+                if (state == CircuitState.HALF_OPEN || consecutiveFailures >= settings.failureThreshold()) {
+                    open();
+                }
+            } else {
+                consecutiveFailures = 0;
+                if (state == CircuitState.HALF_OPEN) {
+                    state = CircuitState.CLOSED;
+                    log.info("Writes to {} resumed", table);
+                }
+                if (outcome == Outcome.THROTTLED) {
+                    throttles.increment();
+                    decrease();
+                } else if (latency > latencyThresholdNanos) {
+                    decrease();
+                } else {
+                    limit = Math.min(settings.maxLimit(), limit + 1 / limit);
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Current concurrency limit, rounded down.
+     */
+    public int limit() {
+        return state == CircuitState.HALF_OPEN ? 1 : (int) limit;
+    }
+
+    /**
+     * Whether calls are currently being rejected. Once the open period has passed this is false even
+     * before the probe call is made, so that callers waiting on it go on to make that call.
+     */
+    public boolean isOpen() {
+        return state == CircuitState.OPEN && System.nanoTime() - openedAt < openNanos;
+    }
+
+    public static Outcome outcomeOf(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (cause instanceof ProvisionedThroughputExceededException
+                || cause instanceof RequestLimitExceededException
+                || (cause instanceof AwsServiceException serviceException && serviceException.isThrottlingException())) {
+            return Outcome.THROTTLED;
+        }
+        return Outcome.FAILED;
+    }
+
+    CircuitState state() {
+        return state;
+    }
+
+    private void decrease() {
+        limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+    }
+
+    private void open() {
+        if (state != CircuitState.OPEN) {
+            log.error("Suspending writes to {} for {} ms after {} consecutive failures", table,
+                    settings.openMillis(), consecutiveFailures);
+        }
+        state = CircuitState.OPEN;
+        openedAt = System.nanoTime();
+    }
+}
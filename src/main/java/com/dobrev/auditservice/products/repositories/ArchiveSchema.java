@@ -0,0 +1,93 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.models.ProductInfoFailureEvent;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Columns an item is archived as, sort key first. Rows are read back by column name, so columns can
+ * be added without rewriting older archives; columns missing from an archive read as {@code null}.
+ */
+record ArchiveSchema<T>(
+        List<String> columns,
+        Function<T, String[]> toRow,
+        Function<String[], T> fromRow
+) {
+    static final ArchiveSchema<ProductEvent> PRODUCT_EVENTS = new ArchiveSchema<>(
+            List.of("sk", "pk", "createdAt", "ttl", "productId", "email",
+                    "info.id", "info.code", "info.price", "info.messageId", "info.requestId", "info.traceId"),
+            event -> {
+                ProductInfoEvent info = event.getInfo() != null ? event.getInfo() : new ProductInfoEvent();
+                return new String[]{event.getSk(), event.getPk(), string(event.getCreatedAt()),
+                        string(event.getTtl()), event.getProductId(), event.getEmail(),
+                        info.getId(), info.getCode(), string(info.getPrice()), info.getMessageId(),
+                        info.getRequestId(), info.getTraceId()};
+            },
+            row -> ProductEvent.builder()
+                    .sk(row[0])
+                    .pk(row[1])
+                    .createdAt(row[2] != null ? Long.valueOf(row[2]) : null)
+                    .ttl(row[3] != null ? Long.valueOf(row[3]) : null)
+                    .productId(row[4])
+                    .email(row[5])
+                    .info(ProductInfoEvent.builder()
+                            .id(row[6])
+                            .code(row[7])
+                            .price(row[8] != null ? Float.valueOf(row[8]) : null)
+                            .messageId(row[9])
+                            .requestId(row[10])
+                            .traceId(row[11])
+                            .build())
+                    .build());
+
+    static final ArchiveSchema<ProductFailureEvent> PRODUCT_FAILURE_EVENTS = new ArchiveSchema<>(
+            List.of("sk", "pk", "createdAt", "ttl", "failedProductId", "email",
+                    "info.id", "info.requestId", "info.messageId", "info.status", "info.error", "info.traceId"),
+            event -> {
+                ProductInfoFailureEvent info = event.getInfo() != null
+                        ? event.getInfo()
+                        : new ProductInfoFailureEvent();
+                return new String[]{event.getSk(), event.getPk(), string(event.getCreatedAt()),
+                        string(event.getTtl()), event.getFailedProductId(), event.getEmail(),
+                        info.getId(), info.getRequestId(), info.getMessageId(), String.valueOf(info.getStatus()),
+                        info.getError(), info.getTraceId()};
+            },
+            row -> ProductFailureEvent.builder()
+                    .sk(row[0])
+                    .pk(row[1])
+                    .createdAt(row[2] != null ? Long.valueOf(row[2]) : null)
+                    .ttl(row[3] != null ? Long.valueOf(row[3]) : null)
+                    .failedProductId(row[4])
+                    .email(row[5])
+                    .info(ProductInfoFailureEvent.builder()
+                            .id(row[6])
+                            .requestId(row[7])
+                            .messageId(row[8])
+                            .status(row[9] != null ? Integer.parseInt(row[9]) : 0)
+                            .error(row[10])
+                            .traceId(row[11])
+                            .build())
+                    .build());
+
+    /**
+     * Reads rows of an archive with the given columns, matching them to this schema's columns by name.
+     */
+    Function<String[], T> reader(List<String> archivedColumns) {
+        int[] positions = columns.stream().mapToInt(archivedColumns::indexOf).toArray();
+        return archivedRow -> {
+            String[] row = new String[positions.length];
+            for (int column = 0; column < row.length; column++) {
+                row[column] = positions[column] >= 0 ? archivedRow[positions[column]] : null;
+            }
+            return fromRow.apply(row);
+        };
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+@Builder
+public record ArchiveSettings(
+        boolean enabled,
+        String directory,
+        int blockRows,
+        long delaySeconds
+) {
+    public ArchiveSettings {
+        if (enabled && (directory == null || directory.isBlank())) {
+            throw new IllegalArgumentException("Archive directory is required when archiving is enabled");
+        }
+        if (blockRows < 1 || delaySeconds < 0) {
+            throw new IllegalArgumentException("Archive block rows must be positive and the delay not negative");
+        }
+    }
+}
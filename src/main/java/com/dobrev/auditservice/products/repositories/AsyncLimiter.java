@@ -0,0 +1,66 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of asynchronous calls in flight without blocking the caller: calls beyond the
+ * limit are queued and started as earlier ones complete.
+ */
+final class AsyncLimiter {
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int available;
+
+    AsyncLimiter(int limit) {
+        this.available = limit;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, throwable) -> {
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = available > 0;
+            if (startNow) {
+                available--;
+            } else {
+                waiting.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                available++;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+}
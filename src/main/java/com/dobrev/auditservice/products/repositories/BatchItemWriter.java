@@ -0,0 +1,203 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage that groups single-item writes into BatchWriteItem calls. The future returned
+ * by {@link #write} completes once the item has been accepted by DynamoDB, including any retries of
+ * unprocessed or throttled items, so callers can acknowledge the source message from it. Every call,
+ * retries included, goes through the table's {@link AdaptiveWriteLimiter}.
+ */
+@Slf4j
+public class BatchItemWriter<T> implements ItemWriter<T> {
+    private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private final DynamoDbAsyncTable<T> table;
+    private final Class<T> itemClass;
+    private final BatchWriterSettings settings;
+    private final AdaptiveWriteLimiter writeLimiter;
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadFactory senderThreads;
+    private List<PendingWrite<T>> pending;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public BatchItemWriter(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
+                           DynamoDbAsyncTable<T> table, Class<T> itemClass, BatchWriterSettings settings,
+                           AdaptiveWriteLimiter writeLimiter) {
+        this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
+        this.table = table;
+        this.itemClass = itemClass;
+        this.settings = settings;
+        this.writeLimiter = writeLimiter;
+        this.inFlight = new Semaphore(settings.maxInFlight());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(itemClass.getSimpleName() + "-batch-writer").daemon().factory());
+        this.senderThreads = Thread.ofVirtual().name(itemClass.getSimpleName() + "-batch-sender-", 0).factory();
+        this.pending = new ArrayList<>(settings.flushSize());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> write(T item) {
+        PendingWrite<T> pendingWrite = new PendingWrite<>(item, new CompletableFuture<>());
+        List<PendingWrite<T>> batch = null;
+        synchronized (this) {
+            pending.add(pendingWrite);
+            if (pending.size() >= settings.flushSize()) {
+                batch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(() -> senderThreads.newThread(this::flush).start(),
+                        settings.lingerMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            submit(batch);
+        }
+        return pendingWrite.future();
+    }
+
+    public void flush() {
+        List<PendingWrite<T>> batch;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = drain();
+        }
+        submit(batch);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        inFlight.acquireUninterruptibly(settings.maxInFlight());
+        scheduler.shutdownNow();
+    }
+
+    private List<PendingWrite<T>> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingWrite<T>> batch = pending;
+        pending = new ArrayList<>(settings.flushSize());
+        return batch;
+    }
+
+    private void submit(List<PendingWrite<T>> batch) {
+        // BatchWriteItem rejects duplicate keys, so later writes to the same key replace earlier ones
+        // exactly as consecutive putItem calls would.
+        Map<Key, List<PendingWrite<T>>> writesByKey = new LinkedHashMap<>();
+        for (PendingWrite<T> pendingWrite : batch) {
+            writesByKey.computeIfAbsent(table.keyFrom(pendingWrite.item()), key -> new ArrayList<>(1))
+                    .add(pendingWrite);
+        }
+        inFlight.acquireUninterruptibly();
+        send(writesByKey, 1);
+    }
+
+    private void send(Map<Key, List<PendingWrite<T>>> writesByKey, int attempt) {
+        long permit;
+        try {
+            permit = writeLimiter.acquire();
+        } catch (TableUnavailableException e) {
+            complete(writesByKey, e);
+            inFlight.release();
+            return;
+        }
+
+        WriteBatch.Builder<T> writeBatch = WriteBatch.builder(itemClass).mappedTableResource(table);
+        writesByKey.values().forEach(writes -> writeBatch.addPutItem(writes.getLast().item()));
+
+        dynamoDbEnhancedAsyncClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                        .addWriteBatch(writeBatch.build())
+                        .build())
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        AdaptiveWriteLimiter.Outcome outcome = AdaptiveWriteLimiter.outcomeOf(throwable);
+                        writeLimiter.release(permit, outcome);
+                        if (outcome == AdaptiveWriteLimiter.Outcome.THROTTLED) {
+                            retry(writesByKey, attempt, throwable);
+                            return;
+                        }
+                        log.error("Failed to write batch of {} items", writesByKey.size(), throwable);
+                        complete(writesByKey, throwable);
+                        inFlight.release();
+                        return;
+                    }
+
+                    Map<Key, List<PendingWrite<T>>> unprocessed = new LinkedHashMap<>();
+                    for (T item : result.unprocessedPutItemsForTable(table)) {
+                        Key key = table.keyFrom(item);
+                        List<PendingWrite<T>> writes = writesByKey.remove(key);
+                        if (writes != null) {
+                            unprocessed.put(key, writes);
+                        }
+                    }
+                    complete(writesByKey, null);
+                    writeLimiter.release(permit, unprocessed.isEmpty()
+                            ? AdaptiveWriteLimiter.Outcome.SUCCESS
+                            : AdaptiveWriteLimiter.Outcome.THROTTLED);
+
+                    if (unprocessed.isEmpty()) {
+                        inFlight.release();
+                    } else {
+                        retry(unprocessed, attempt, null);
+                    }
+                });
+    }
+
+    private void retry(Map<Key, List<PendingWrite<T>>> writesByKey, int attempt, Throwable throttle) {
+        if (attempt >= settings.maxAttempts()) {
+            log.error("Giving up on {} unprocessed items after {} attempts", writesByKey.size(), attempt);
+            IllegalStateException exception = new IllegalStateException(
+                    "Items still unprocessed after " + attempt + " batch write attempts", throttle);
+            complete(writesByKey, exception);
+            inFlight.release();
+            return;
+        }
+        log.warn("Retrying {} unprocessed items, attempt {}", writesByKey.size(), attempt + 1);
+        // The scheduler only times lingers and backoffs and never blocks: linger flushes wait for an
+        // in-flight permit, and retries for the limiter, on virtual threads of their own. A flush blocked
+        // on the scheduler would keep the retries that hold the permits from ever being sent.
+        scheduler.schedule(() -> senderThreads.newThread(() -> send(writesByKey, attempt + 1)).start(),
+                backoffMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(settings.maxBackoffMillis(), settings.baseBackoffMillis() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void complete(Map<Key, List<PendingWrite<T>>> writesByKey, Throwable throwable) {
+        for (List<PendingWrite<T>> writes : writesByKey.values()) {
+            for (PendingWrite<T> pendingWrite : writes) {
+                if (throwable == null) {
+                    pendingWrite.future().complete(true);
+                } else {
+                    pendingWrite.future().completeExceptionally(throwable);
+                }
+            }
+        }
+    }
+
+    private record PendingWrite<T>(T item, CompletableFuture<Boolean> future) {}
+}
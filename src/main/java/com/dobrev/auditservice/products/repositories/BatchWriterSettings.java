@@ -0,0 +1,22 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+@Builder
+public record BatchWriterSettings(
+        int flushSize,
+        long lingerMillis,
+        int maxInFlight,
+        int maxAttempts,
+        long baseBackoffMillis,
+        long maxBackoffMillis
+) {
+    public BatchWriterSettings {
+        if (flushSize < 1 || flushSize > 25) {
+            throw new IllegalArgumentException("Batch write flush size must be between 1 and 25: " + flushSize);
+        }
+        if (maxInFlight < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Batch write in-flight limit and attempts must be positive");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.io.IOException;
+
+/**
+ * Immutable objects addressed by key, read by byte range, as in an object store. Keys use
+ * {@code /} as separator.
+ */
+public interface BlobStore {
+    /**
+     * Stores {@code content} under {@code key}, replacing any object already there. Readers see
+     * either the old or the new object, never a partial one.
+     */
+    void put(String key, byte[] content) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Size in bytes of the object under {@code key}.
+     *
+     * @throws java.nio.file.NoSuchFileException if there is none
+     */
+    long size(String key) throws IOException;
+
+    byte[] read(String key, long offset, int length) throws IOException;
+}
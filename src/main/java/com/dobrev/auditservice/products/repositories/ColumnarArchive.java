@@ -0,0 +1,223 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * File format for an archive of string rows sorted by their first column, the sort key. Rows are
+ * cut into blocks of {@code blockRows}; each block stores its values column by column, so similar
+ * values sit together, and is deflated on its own. An index after the blocks holds the column names
+ * and, per block, its first and last sort key, position and row count, so a reader fetches the footer,
+ * then the index, then only the blocks that overlap the range it reads.
+ * <pre>
+ * "EVAR" version:u8
+ * block*                    deflated: per column, per row, length:i32 (-1 for null) utf8
+ * index                     columns:i32 name:utf* blocks:i32 (first:utf last:utf offset:i64 length:i32 rows:i32)*
+ * indexOffset:i64 "EVAR"
+ * </pre>
+ */
+final class ColumnarArchive {
+    private static final byte[] MAGIC = "EVAR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 1;
+    private static final int FOOTER_BYTES = Long.BYTES + MAGIC.length;
+
+    private ColumnarArchive() {
+    }
+
+    static byte[] write(List<String> columns, List<String[]> rows, int blockRows) {
+        try {
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            file.write(MAGIC);
+            file.write(VERSION);
+
+            List<BlockIndex> blocks = new ArrayList<>();
+            for (int start = 0; start < rows.size(); start += blockRows) {
+                List<String[]> blockRowsList = rows.subList(start, Math.min(rows.size(), start + blockRows));
+                byte[] block = deflate(encode(columns.size(), blockRowsList));
+                blocks.add(new BlockIndex(blockRowsList.getFirst()[0], blockRowsList.getLast()[0], file.size(),
+                        block.length, blockRowsList.size()));
+                file.write(block);
+            }
+
+            long indexOffset = file.size();
+            DataOutputStream index = new DataOutputStream(file);
+            index.writeInt(columns.size());
+            for (String column : columns) {
+                index.writeUTF(column);
+            }
+            index.writeInt(blocks.size());
+            for (BlockIndex block : blocks) {
+                index.writeUTF(block.first());
+                index.writeUTF(block.last());
+                index.writeLong(block.offset());
+                index.writeInt(block.length());
+                index.writeInt(block.rows());
+            }
+            index.writeLong(indexOffset);
+            index.write(MAGIC);
+            index.flush();
+            return file.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Reader open(BlobStore blobStore, String key) throws IOException {
+        long size = blobStore.size(key);
+        if (size < MAGIC.length + 1 + FOOTER_BYTES) {
+            throw new IOException("Archive " + key + " is too short");
+        }
+        byte[] head = blobStore.read(key, 0, MAGIC.length + 1);
+        ByteBuffer footer = ByteBuffer.wrap(blobStore.read(key, size - FOOTER_BYTES, FOOTER_BYTES));
+        long indexOffset = footer.getLong();
+        byte[] trailingMagic = new byte[MAGIC.length];
+        footer.get(trailingMagic);
+        if (!Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC) || !Arrays.equals(trailingMagic, MAGIC)) {
+            throw new IOException("Not an event archive: " + key);
+        }
+        if (head[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported version " + head[MAGIC.length] + " of archive " + key);
+        }
+
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(
+                blobStore.read(key, indexOffset, (int) (size - FOOTER_BYTES - indexOffset))));
+        List<String> columns = new ArrayList<>();
+        for (int i = index.readInt(); i > 0; i--) {
+            columns.add(index.readUTF());
+        }
+        List<BlockIndex> blocks = new ArrayList<>();
+        for (int i = index.readInt(); i > 0; i--) {
+            blocks.add(new BlockIndex(index.readUTF(), index.readUTF(), index.readLong(), index.readInt(),
+                    index.readInt()));
+        }
+        return new Reader(blobStore, key, columns, blocks);
+    }
+
+    private static byte[] encode(int columns, List<String[]> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int column = 0; column < columns; column++) {
+            for (String[] row : rows) {
+                String value = row[column];
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.length / 4 + 16);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(block);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] block) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated archive block");
+                }
+                bytes.write(buffer, 0, inflated);
+            }
+            return bytes.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private record BlockIndex(String first, String last, long offset, int length, int rows) {}
+
+    static final class Reader {
+        private final BlobStore blobStore;
+        private final String key;
+        private final List<String> columns;
+        private final List<BlockIndex> blocks;
+
+        private Reader(BlobStore blobStore, String key, List<String> columns, List<BlockIndex> blocks) {
+            this.blobStore = blobStore;
+            this.key = key;
+            this.columns = columns;
+            this.blocks = blocks;
+        }
+
+        List<String> columns() {
+            return columns;
+        }
+
+        /**
+         * Rows with a sort key above {@code after} when it is set, otherwise from {@code from}, up to
+         * and including {@code to}, in order, at most {@code limit} of them. Null bounds are open.
+         */
+        List<String[]> read(String from, String after, String to, int limit) throws IOException {
+            List<String[]> rows = new ArrayList<>();
+            for (BlockIndex block : blocks) {
+                if (rows.size() >= limit || (to != null && block.first().compareTo(to) > 0)) {
+                    break;
+                }
+                if ((after != null && block.last().compareTo(after) <= 0)
+                        || (after == null && from != null && block.last().compareTo(from) < 0)) {
+                    continue;
+                }
+                for (String[] row : decode(block)) {
+                    String sortKey = row[0];
+                    if ((after != null && sortKey.compareTo(after) <= 0)
+                            || (after == null && from != null && sortKey.compareTo(from) < 0)) {
+                        continue;
+                    }
+                    if ((to != null && sortKey.compareTo(to) > 0) || rows.size() >= limit) {
+                        break;
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        }
+
+        private List<String[]> decode(BlockIndex block) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    inflate(blobStore.read(key, block.offset(), block.length()))));
+            String[][] rows = new String[block.rows()][columns.size()];
+            for (int column = 0; column < columns.size(); column++) {
+                for (String[] row : rows) {
+                    int length = in.readInt();
+                    if (length >= 0) {
+                        row[column] = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            return Arrays.asList(rows);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.models.ProductInfoFailureEvent;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stores the {@code info} of an event as one binary attribute instead of a map of named attributes,
+ * which repeats every attribute name in every item and stores IDs as text.
+ * <pre>
+ * version:u8 present:varint field*     present has bit i set when field i is not null
+ * string   kind:u8 then                0 index:varint of an equal string earlier in the attribute
+ *                                      1 UUID, 16 bytes
+ *                                      2 X-Ray trace ID, 4 bytes time and 12 bytes ID
+ *                                      3 length:varint utf8
+ * float    4 bytes
+ * int      zigzag varint
+ * </pre>
+ * Strings are dictionary-encoded within the attribute, so a value repeated across fields is stored
+ * once. UUIDs, such as message and request IDs, and X-Ray trace IDs are packed when they are in
+ * their canonical lowercase form and written as text otherwise, so every value reads back exactly.
+ * Fields are only ever appended to a version's list; a decoder rejects versions it does not know.
+ * <p>
+ * Attributes stored as maps, before the binary format or while it is off, are read as well.
+ */
+final class CompactInfoConverter<I> implements AttributeConverter<I> {
+    private static final byte VERSION = 1;
+    private static final byte KIND_REFERENCE = 0;
+    private static final byte KIND_UUID = 1;
+    private static final byte KIND_TRACE_ID = 2;
+    private static final byte KIND_TEXT = 3;
+    private static final int UUID_LENGTH = 36;
+    private static final int TRACE_ID_LENGTH = 35;
+
+    static final CompactInfoConverter<ProductInfoEvent> PRODUCT_INFO = new CompactInfoConverter<>(
+            ProductInfoEvent.class, ProductInfoEvent::new, List.of(
+            string(ProductInfoEvent::getId, ProductInfoEvent::setId),
+            string(ProductInfoEvent::getCode, ProductInfoEvent::setCode),
+            floating(ProductInfoEvent::getPrice, ProductInfoEvent::setPrice),
+            string(ProductInfoEvent::getMessageId, ProductInfoEvent::setMessageId),
+            string(ProductInfoEvent::getRequestId, ProductInfoEvent::setRequestId),
+            string(ProductInfoEvent::getTraceId, ProductInfoEvent::setTraceId)));
+
+    static final CompactInfoConverter<ProductInfoFailureEvent> PRODUCT_INFO_FAILURE = new CompactInfoConverter<>(
+            ProductInfoFailureEvent.class, ProductInfoFailureEvent::new, List.of(
+            string(ProductInfoFailureEvent::getId, ProductInfoFailureEvent::setId),
+            string(ProductInfoFailureEvent::getRequestId, ProductInfoFailureEvent::setRequestId),
+            string(ProductInfoFailureEvent::getMessageId, ProductInfoFailureEvent::setMessageId),
+            integer(ProductInfoFailureEvent::getStatus, ProductInfoFailureEvent::setStatus),
+            string(ProductInfoFailureEvent::getError, ProductInfoFailureEvent::setError),
+            string(ProductInfoFailureEvent::getTraceId, ProductInfoFailureEvent::setTraceId)));
+
+    private final EnhancedType<I> type;
+    private final Supplier<I> newInfo;
+    private final List<Field<I>> fields;
+    private final TableSchema<I> mapSchema;
+
+    private CompactInfoConverter(Class<I> infoClass, Supplier<I> newInfo, List<Field<I>> fields) {
+        this.type = EnhancedType.of(infoClass);
+        this.newInfo = newInfo;
+        this.fields = fields;
+        this.mapSchema = TableSchema.fromBean(infoClass);
+    }
+
+    @Override
+    public AttributeValue transformFrom(I info) {
+        Encoder encoder = new Encoder();
+        encoder.bytes.write(VERSION);
+        int present = 0;
+        for (int field = 0; field < fields.size(); field++) {
+            if (fields.get(field).present(info)) {
+                present |= 1 << field;
+            }
+        }
+        encoder.varint(present);
+        for (int field = 0; field < fields.size(); field++) {
+            if ((present & 1 << field) != 0) {
+                fields.get(field).write(info, encoder);
+            }
+        }
+        return AttributeValue.fromB(SdkBytes.fromByteArrayUnsafe(encoder.bytes.toByteArray()));
+    }
+
+    @Override
+    public I transformTo(AttributeValue attributeValue) {
+        if (attributeValue.m() != null && attributeValue.b() == null) {
+            return mapSchema.mapToItem(attributeValue.m());
+        }
+        if (attributeValue.b() == null) {
+            return null;
+        }
+        Decoder decoder = new Decoder(attributeValue.b().asByteBuffer());
+        try {
+            byte version = decoder.buffer.get();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported info encoding version " + version);
+            }
+            int present = decoder.varint();
+            I info = newInfo.get();
+            for (int field = 0; field < fields.size(); field++) {
+                if ((present & 1 << field) != 0) {
+                    fields.get(field).read(info, decoder);
+                }
+            }
+            return info;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated info attribute", e);
+        }
+    }
+
+    @Override
+    public EnhancedType<I> type() {
+        return type;
+    }
+
+    @Override
+    public AttributeValueType attributeValueType() {
+        return AttributeValueType.B;
+    }
+
+    private interface Field<I> {
+        boolean present(I info);
+
+        void write(I info, Encoder encoder);
+
+        void read(I info, Decoder decoder);
+    }
+
+    private static <I> Field<I> string(Function<I, String> getter, BiConsumer<I, String> setter) {
+        return new Field<>() {
+            @Override
+            public boolean present(I info) {
+                return getter.apply(info) != null;
+            }
+
+            @Override
+            public void write(I info, Encoder encoder) {
+                encoder.string(getter.apply(info));
+            }
+
+            @Override
+            public void read(I info, Decoder decoder) {
+                setter.accept(info, decoder.string());
+            }
+        };
+    }
+
+    private static <I> Field<I> floating(Function<I, Float> getter, BiConsumer<I, Float> setter) {
+        return new Field<>() {
+            @Override
+            public boolean present(I info) {
+                return getter.apply(info) != null;
+            }
+
+            @Override
+            public void write(I info, Encoder encoder) {
+                int bits = Float.floatToRawIntBits(getter.apply(info));
+                for (int shift = 24; shift >= 0; shift -= 8) {
+                    encoder.bytes.write(bits >>> shift);
+                }
+            }
+
+            @Override
+            public void read(I info, Decoder decoder) {
+                setter.accept(info, decoder.buffer.getFloat());
+            }
+        };
+    }
+
+    private static <I> Field<I> integer(ToIntFunction<I> getter, ObjIntConsumer<I> setter) {
+        return new Field<>() {
+            @Override
+            public boolean present(I info) {
+                return true;
+            }
+
+            @Override
+            public void write(I info, Encoder encoder) {
+                int value = getter.applyAsInt(info);
+                encoder.varint((value << 1) ^ (value >> 31));
+            }
+
+            @Override
+            public void read(I info, Decoder decoder) {
+                int zigzag = decoder.varint();
+                setter.accept(info, (zigzag >>> 1) ^ -(zigzag & 1));
+            }
+        };
+    }
+
+    private static final class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final List<String> strings = new ArrayList<>(4);
+
+        void varint(int value) {
+            while ((value & ~0x7f) != 0) {
+                bytes.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write(value);
+        }
+
+        void string(String value) {
+            int earlier = strings.indexOf(value);
+            if (earlier >= 0) {
+                bytes.write(KIND_REFERENCE);
+                varint(earlier);
+                return;
+            }
+            strings.add(value);
+            if (isUuid(value)) {
+                bytes.write(KIND_UUID);
+                hex(value, 0, 8);
+                hex(value, 9, 13);
+                hex(value, 14, 18);
+                hex(value, 19, 23);
+                hex(value, 24, UUID_LENGTH);
+            } else if (isTraceId(value)) {
+                bytes.write(KIND_TRACE_ID);
+                hex(value, 2, 10);
+                hex(value, 11, TRACE_ID_LENGTH);
+            } else {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                bytes.write(KIND_TEXT);
+                varint(utf8.length);
+                bytes.writeBytes(utf8);
+            }
+        }
+
+        private void hex(String value, int from, int to) {
+            for (int i = from; i < to; i += 2) {
+                bytes.write(Character.digit(value.charAt(i), 16) << 4 | Character.digit(value.charAt(i + 1), 16));
+            }
+        }
+    }
+
+    private static final class Decoder {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final ByteBuffer buffer;
+        private final List<String> strings = new ArrayList<>(4);
+
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint in info attribute");
+        }
+
+        String string() {
+            byte kind = buffer.get();
+            if (kind == KIND_REFERENCE) {
+                int earlier = varint();
+                if (earlier >= strings.size()) {
+                    throw new IllegalStateException("Reference to unknown string " + earlier + " in info attribute");
+                }
+                return strings.get(earlier);
+            }
+            String value = switch (kind) {
+                case KIND_UUID -> {
+                    long most = buffer.getLong();
+                    long least = buffer.getLong();
+                    yield new UUID(most, least).toString();
+                }
+                case KIND_TRACE_ID -> {
+                    StringBuilder traceId = new StringBuilder(TRACE_ID_LENGTH).append("1-");
+                    hex(traceId, 4);
+                    traceId.append('-');
+                    hex(traceId, 12);
+                    yield traceId.toString();
+                }
+                case KIND_TEXT -> {
+                    byte[] utf8 = new byte[varint()];
+                    buffer.get(utf8);
+                    yield new String(utf8, StandardCharsets.UTF_8);
+                }
+                default -> throw new IllegalStateException("Unknown string kind " + kind + " in info attribute");
+            };
+            strings.add(value);
+            return value;
+        }
+
+        private void hex(StringBuilder builder, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get();
+                builder.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            }
+        }
+    }
+
+    private static boolean isUuid(String value) {
+        if (value.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !isLowerHex(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTraceId(String value) {
+        if (value.length() != TRACE_ID_LENGTH || !value.startsWith("1-") || value.charAt(10) != '-') {
+            return false;
+        }
+        for (int i = 2; i < TRACE_ID_LENGTH; i++) {
+            if (i != 10 && !isLowerHex(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+    }
+}
@@ -0,0 +1,131 @@
+package com.dobrev.auditservice.products.repositories;
+
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Table schema of an event that reads its {@value #INFO} attribute through a {@link CompactInfoConverter},
+ * so items whose info is stored either as a map or in the binary format map to the same bean. Info is
+ * written in the binary format when {@code compactWrites} is set and as a map otherwise, so the format
+ * can be switched on, and back off, while items of both formats are in the table.
+ * <p>
+ * The rest of the item is mapped by the bean schema it wraps.
+ */
+class CompactInfoTableSchema<T, I> implements TableSchema<T> {
+    static final String INFO = "info";
+
+    private final TableSchema<T> beanSchema;
+    private final CompactInfoConverter<I> infoConverter;
+    private final Function<T, I> getInfo;
+    private final BiConsumer<T, I> setInfo;
+    private final boolean compactWrites;
+
+    CompactInfoTableSchema(TableSchema<T> beanSchema, CompactInfoConverter<I> infoConverter,
+                           Function<T, I> getInfo, BiConsumer<T, I> setInfo, boolean compactWrites) {
+        this.beanSchema = beanSchema;
+        this.infoConverter = infoConverter;
+        this.getInfo = getInfo;
+        this.setInfo = setInfo;
+        this.compactWrites = compactWrites;
+    }
+
+    /**
+     * Projections of fields within a binary info attribute cannot be applied by the table, so with
+     * binary writes on they read the whole attribute instead.
+     */
+    List<NestedAttributeName> projection(List<NestedAttributeName> attributes) {
+        if (!compactWrites || attributes == null) {
+            return attributes;
+        }
+        return attributes.stream()
+                .map(attribute -> attribute.elements().getFirst().equals(INFO) ? NestedAttributeName.create(INFO)
+                        : attribute)
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public T mapToItem(Map<String, AttributeValue> attributeMap) {
+        return mapToItem(attributeMap, false);
+    }
+
+    @Override
+    public T mapToItem(Map<String, AttributeValue> attributeMap, boolean preserveEmptyObject) {
+        AttributeValue info = attributeMap.get(INFO);
+        if (info == null || info.b() == null) {
+            return beanSchema.mapToItem(attributeMap, preserveEmptyObject);
+        }
+        Map<String, AttributeValue> withoutInfo = new HashMap<>(attributeMap);
+        withoutInfo.remove(INFO);
+        T item = beanSchema.mapToItem(withoutInfo, preserveEmptyObject);
+        if (item != null) {
+            setInfo.accept(item, infoConverter.transformTo(info));
+        }
+        return item;
+    }
+
+    @Override
+    public Map<String, AttributeValue> itemToMap(T item, boolean ignoreNulls) {
+        return compact(item, beanSchema.itemToMap(item, ignoreNulls));
+    }
+
+    @Override
+    public Map<String, AttributeValue> itemToMap(T item, Collection<String> attributes) {
+        return compact(item, beanSchema.itemToMap(item, attributes));
+    }
+
+    @Override
+    public AttributeValue attributeValue(T item, String attributeName) {
+        I info = getInfo.apply(item);
+        if (compactWrites && INFO.equals(attributeName) && info != null) {
+            return infoConverter.transformFrom(info);
+        }
+        return beanSchema.attributeValue(item, attributeName);
+    }
+
+    @Override
+    public TableMetadata tableMetadata() {
+        return beanSchema.tableMetadata();
+    }
+
+    @Override
+    public EnhancedType<T> itemType() {
+        return beanSchema.itemType();
+    }
+
+    @Override
+    public List<String> attributeNames() {
+        return beanSchema.attributeNames();
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return beanSchema.isAbstract();
+    }
+
+    @Override
+    public AttributeConverter<T> converterForAttribute(Object key) {
+        return beanSchema.converterForAttribute(key);
+    }
+
+    private Map<String, AttributeValue> compact(T item, Map<String, AttributeValue> attributes) {
+        I info = getInfo.apply(item);
+        if (!compactWrites || info == null || !attributes.containsKey(INFO)) {
+            return attributes;
+        }
+        Map<String, AttributeValue> compacted = new HashMap<>(attributes);
+        compacted.put(INFO, infoConverter.transformFrom(info));
+        return compacted;
+    }
+}
@@ -0,0 +1,71 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Writes each item with its own PutItem call conditioned on {@code attribute_not_exists} of the
+ * partition key, so an item whose key is already in the table is left as it is and the write counts
+ * as done, reporting that nothing new was written. Paired with keys derived from the source message, this keeps redelivered messages that
+ * slipped past the consumer's dedup window from overwriting, or duplicating, what was written first.
+ * Calls go through the table's {@link AdaptiveWriteLimiter}; throttled writes fail rather than retry,
+ * leaving the message to be redelivered.
+ */
+@Slf4j
+public class ConditionalItemWriter<T> implements ItemWriter<T> {
+    private final DynamoDbAsyncTable<T> table;
+    private final Class<T> itemClass;
+    private final AdaptiveWriteLimiter writeLimiter;
+    private final Expression notExists;
+
+    public ConditionalItemWriter(DynamoDbAsyncTable<T> table, Class<T> itemClass, AdaptiveWriteLimiter writeLimiter) {
+        this.table = table;
+        this.itemClass = itemClass;
+        this.writeLimiter = writeLimiter;
+        this.notExists = Expression.builder()
+                .expression("attribute_not_exists(#pk)")
+                .putExpressionName("#pk", table.tableSchema().tableMetadata().primaryPartitionKey())
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> write(T item) {
+        long permit;
+        try {
+            permit = writeLimiter.acquire();
+        } catch (TableUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return table.putItem(PutItemEnhancedRequest.builder(itemClass)
+                        .item(item)
+                        .conditionExpression(notExists)
+                        .build())
+                .handle((written, throwable) -> {
+                    if (throwable == null) {
+                        writeLimiter.release(permit, AdaptiveWriteLimiter.Outcome.SUCCESS);
+                        return true;
+                    }
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause()
+                            : throwable;
+                    if (cause instanceof ConditionalCheckFailedException) {
+                        writeLimiter.release(permit, AdaptiveWriteLimiter.Outcome.SUCCESS);
+                        log.debug("Skipped write of existing item {}", table.keyFrom(item));
+                        return false;
+                    }
+                    writeLimiter.release(permit, AdaptiveWriteLimiter.outcomeOf(cause));
+                    throw new CompletionException(cause);
+                });
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,110 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Hourly {@link ColumnarArchive} files of one kind of event, one per event type and hour, under
+ * {@code <name>/<type>/yyyy/MM/dd/HH.evar} in UTC. An hour is archived once all of its events are
+ * written, so an existing file is complete; an hour without events still gets an empty file.
+ * <p>
+ * {@code <name>/<type>/start} holds the first hour ever archived. Hours before it predate archiving
+ * and read as empty; an hour from it on without a file was never archived, and reading it fails
+ * with {@link MissingArchiveException} rather than returning a page with a hole.
+ */
+class EventArchive<T> {
+    static final long HOUR_MILLIS = 3_600_000;
+    private static final int MILLIS_DIGITS = 13;
+    private static final DateTimeFormatter HOUR_PATH = DateTimeFormatter.ofPattern("yyyy/MM/dd/HH")
+            .withZone(ZoneOffset.UTC);
+
+    private final String name;
+    private final BlobStore blobStore;
+    private final ArchiveSchema<T> schema;
+    private final Function<T, String> sortKey;
+    private final int blockRows;
+
+    EventArchive(String name, BlobStore blobStore, ArchiveSchema<T> schema, Function<T, String> sortKey,
+                 int blockRows) {
+        this.name = name;
+        this.blobStore = blobStore;
+        this.schema = schema;
+        this.sortKey = sortKey;
+        this.blockRows = blockRows;
+    }
+
+    boolean contains(ProductEventType productEventType, long hourStart) throws IOException {
+        return blobStore.exists(key(productEventType, hourStart));
+    }
+
+    void write(ProductEventType productEventType, long hourStart, List<T> items) throws IOException {
+        // The start moves first: an hour archived before a crash is then never mistaken for one that
+        // predates archiving, and one that is not yet written reads as missing until it is.
+        if (hourStart < start(productEventType)) {
+            blobStore.put(startKey(productEventType),
+                    Long.toString(hourStart).getBytes(StandardCharsets.US_ASCII));
+        }
+        List<String[]> rows = items.stream()
+                .sorted(Comparator.comparing(sortKey))
+                .map(schema.toRow())
+                .toList();
+        blobStore.put(key(productEventType, hourStart), ColumnarArchive.write(schema.columns(), rows, blockRows));
+    }
+
+    /**
+     * Archived events with a sort key above {@code after} when it is set, otherwise from {@code from},
+     * up to and including {@code to}, in sort key order, at most {@code limit} of them. Hours before
+     * the first archived hour are skipped.
+     *
+     * @throws MissingArchiveException if an hour from the first archived one on has no archive
+     */
+    List<T> read(ProductEventType productEventType, String from, String after, String to, int limit)
+            throws IOException {
+        long firstHour = Math.max(hourOf(after != null ? after : from), start(productEventType));
+        long lastHour = hourOf(to);
+        List<T> items = new ArrayList<>();
+        for (long hour = firstHour; hour <= lastHour && items.size() < limit; hour += HOUR_MILLIS) {
+            String key = key(productEventType, hour);
+            if (!blobStore.exists(key)) {
+                throw new MissingArchiveException(productEventType, Instant.ofEpochMilli(hour));
+            }
+            ColumnarArchive.Reader reader = ColumnarArchive.open(blobStore, key);
+            reader.read(from, after, to, limit - items.size()).stream()
+                    .map(schema.reader(reader.columns()))
+                    .forEach(items::add);
+        }
+        return items;
+    }
+
+    String key(ProductEventType productEventType, long hourStart) {
+        return name + "/" + productEventType.name() + "/" + HOUR_PATH.format(Instant.ofEpochMilli(hourStart))
+                + ".evar";
+    }
+
+    private long start(ProductEventType productEventType) throws IOException {
+        String key = startKey(productEventType);
+        if (!blobStore.exists(key)) {
+            return Long.MAX_VALUE;
+        }
+        byte[] content = blobStore.read(key, 0, (int) blobStore.size(key));
+        return Long.parseLong(new String(content, StandardCharsets.US_ASCII));
+    }
+
+    private String startKey(ProductEventType productEventType) {
+        return name + "/" + productEventType.name() + "/start";
+    }
+
+    private static long hourOf(String sortKey) {
+        long millis = Long.parseLong(sortKey.substring(0, MILLIS_DIGITS));
+        return millis - Math.floorMod(millis, HOUR_MILLIS);
+    }
+}
@@ -0,0 +1,114 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates sort keys of the form {@code <13 digit epoch millis>-<5 hex sequence>-<4 hex node>}.
+ * Keys are unique per node, strictly increasing, and sort lexicographically in time order, so they
+ * stay compatible with range queries and pagination on plain epoch-millis bounds. The millisecond
+ * and sequence are packed into one {@code AtomicLong} and advanced with CAS; if the sequence runs out
+ * within a millisecond the generator borrows the next one rather than waiting.
+ * <p>
+ * {@link #forMessage} derives a key from a message instead, for writes that must land on the same
+ * item however often the message is delivered: the publish time followed by 36 bits of a hash of the
+ * message ID in place of the sequence and node.
+ * <p>
+ * Keys are only unique across nodes if every running instance has its own {@code aws.events.node-id}
+ * (one to four hex digits): two instances sharing a node id produce identical keys within the same
+ * millisecond, and the later write silently replaces the earlier one. The node id is therefore
+ * required, and not derived from the host.
+ */
+@Component
+@Slf4j
+public class EventIdGenerator {
+    private static final int SEQUENCE_BITS = 20;
+    private static final int MILLIS_DIGITS = 13;
+    private static final int SEQUENCE_DIGITS = 5;
+    private static final int NODE_DIGITS = 4;
+    private static final int ID_LENGTH = MILLIS_DIGITS + 1 + SEQUENCE_DIGITS + 1 + NODE_DIGITS;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String MAX_SUFFIX = "-fffff-ffff";
+
+    private final Clock clock;
+    private final char[] nodeDigits;
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Autowired
+    public EventIdGenerator(@Value("${aws.events.node-id:}") String nodeId) {
+        this(Clock.systemUTC(), parseNodeId(nodeId));
+    }
+
+    EventIdGenerator(Clock clock, int nodeId) {
+        this.clock = clock;
+        this.nodeDigits = new char[NODE_DIGITS];
+        for (int i = NODE_DIGITS - 1, value = nodeId & 0xFFFF; i >= 0; i--, value >>>= 4) {
+            nodeDigits[i] = HEX[value & 0xF];
+        }
+        log.info("Event id node: {}", new String(nodeDigits));
+    }
+
+    public EventId next() {
+        long now = clock.millis() << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = lastId.get();
+            next = Math.max(now, previous + 1);
+        } while (!lastId.compareAndSet(previous, next));
+        return new EventId(next >>> SEQUENCE_BITS, format(next));
+    }
+
+    public static EventId forMessage(long publishedAtMillis, String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash = (hash ^ messageId.charAt(i)) * 0x100000001b3L;
+        }
+        char[] chars = new char[ID_LENGTH];
+        writeMillis(chars, publishedAtMillis);
+        writeHex(chars, MILLIS_DIGITS + 1, SEQUENCE_DIGITS, hash >>> (4 * NODE_DIGITS));
+        writeHex(chars, ID_LENGTH - NODE_DIGITS, NODE_DIGITS, hash);
+        return new EventId(publishedAtMillis, new String(chars));
+    }
+
+    public static String rangeEnd(String to) {
+        return to.indexOf('-') < 0 ? to.concat(MAX_SUFFIX) : to;
+    }
+
+    private String format(long id) {
+        char[] chars = new char[ID_LENGTH];
+        writeMillis(chars, id >>> SEQUENCE_BITS);
+        writeHex(chars, MILLIS_DIGITS + 1, SEQUENCE_DIGITS, id & ((1L << SEQUENCE_BITS) - 1));
+        System.arraycopy(nodeDigits, 0, chars, ID_LENGTH - NODE_DIGITS, NODE_DIGITS);
+        return new String(chars);
+    }
+
+    private static void writeMillis(char[] chars, long millis) {
+        for (int i = MILLIS_DIGITS - 1; i >= 0; i--, millis /= 10) {
+            chars[i] = (char) ('0' + millis % 10);
+        }
+        chars[MILLIS_DIGITS] = '-';
+        chars[MILLIS_DIGITS + SEQUENCE_DIGITS + 1] = '-';
+    }
+
+    private static void writeHex(char[] chars, int from, int digits, long value) {
+        for (int i = from + digits - 1; i >= from; i--, value >>>= 4) {
+            chars[i] = HEX[(int) (value & 0xF)];
+        }
+    }
+
+    static int parseNodeId(String nodeId) {
+        if (nodeId == null || !nodeId.matches("[0-9a-fA-F]{1,4}")) {
+            throw new IllegalArgumentException("aws.events.node-id must be set to one to four hex digits, unique "
+                    + "per running instance, but was '" + nodeId + "'");
+        }
+        return Integer.parseInt(nodeId, 16);
+    }
+
+    public record EventId(long timestamp, String value) {}
+}
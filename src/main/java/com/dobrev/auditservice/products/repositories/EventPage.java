@@ -0,0 +1,8 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.util.List;
+
+public record EventPage<T>(
+        List<T> items,
+        String cursor
+) { }
@@ -0,0 +1,235 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.models.EventRollup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Event counts per event type and time bucket, for dashboards that would otherwise page through
+ * every event to count it. Each count is kept in a {@link LongAdder} per event type, bucket size and
+ * bucket, and every flush interval the counts gathered since the last flush are added to rollup items
+ * {@code #rollup_<type>#<bucket seconds>} / {@code <13 digit bucket start millis>} in the events table
+ * with {@code UpdateItem ADD}. Additions commute, so every node flushes its own counts into the same
+ * items. Events are counted by {@link RollupCountingItemWriter} as they are newly written to the
+ * table. With conditional writes, redelivered events that the table already holds are not counted
+ * again; without them, counts are at least once.
+ * <p>
+ * Every flush of a bucket takes the next number of a sequence of the node, and the update stores it in
+ * the item's {@code flushed_<aws.events.node-id>} attribute on condition that the number there is
+ * lower. A failed flush is retried with the same count and number before the counts gathered in the
+ * meantime are flushed; an update that failed ambiguously but was applied then fails its condition on
+ * retry and is not added twice. The node id is stable across restarts, so items carry one such
+ * attribute per instance rather than one per process ever started, and the sequence starts from the
+ * clock in microseconds so that it stays above every number the node stored before it restarted.
+ * <p>
+ * Counters of a bucket that has ended are dropped once they stay idle for a whole flush interval.
+ * Counts racing with the drop are made into a new counter for the bucket.
+ */
+@Repository
+@Slf4j
+public class EventRollupsRepository {
+    private static final String PARTITION_KEY_PREFIX = "#rollup_";
+    private static final String FLUSHED_PREFIX = "flushed_";
+    private static final String ADD_COUNT = "ADD #count :count SET #flushed = :flush";
+    private static final String NOT_YET_FLUSHED = "attribute_not_exists(#flushed) OR #flushed < :flush";
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final DynamoDbAsyncTable<EventRollup> rollupsTable;
+    private final String eventsDdbName;
+    private final RollupSettings settings;
+    private final Counter flushFailures;
+    private final String flushedAttribute;
+    private final AtomicLong flushSequence = new AtomicLong(ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now()));
+    private final Map<RollupKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public EventRollupsRepository(@Value("${aws.events.ddb}") String eventsDdbName,
+                                  DynamoDbAsyncClient dynamoDbAsyncClient,
+                                  DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
+                                  RollupSettings settings,
+                                  @Value("${aws.events.node-id:}") String nodeId,
+                                  MeterRegistry meterRegistry) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.rollupsTable = dynamoDbEnhancedAsyncClient.table(eventsDdbName, TableSchema.fromBean(EventRollup.class));
+        this.eventsDdbName = eventsDdbName;
+        this.settings = settings;
+        this.flushedAttribute = FLUSHED_PREFIX + String.format("%04x", EventIdGenerator.parseNodeId(nodeId));
+        this.flushFailures = Counter.builder("events.rollups.flush.failures")
+                .tag("table", eventsDdbName)
+                .register(meterRegistry);
+    }
+
+    public void count(ProductEventType productEventType, long createdAt) {
+        if (!settings.enabled()) {
+            return;
+        }
+        for (int bucketSeconds : settings.bucketSeconds()) {
+            long bucketMillis = bucketSeconds * 1000L;
+            RollupKey key = new RollupKey(productEventType, bucketSeconds,
+                    createdAt - Math.floorMod(createdAt, bucketMillis));
+            while (!buckets.computeIfAbsent(key, ignored -> new Bucket()).increment()) {
+                // The bucket was dropped after it was looked up; count into the one replacing it.
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${aws.events.rollup.flush-interval-ms}")
+    public synchronized void flush() {
+        long now = System.currentTimeMillis();
+        List<CompletableFuture<Void>> updates = new ArrayList<>();
+        buckets.forEach((key, bucket) -> updates.add(flush(key, bucket, now)));
+        CompletableFuture.allOf(updates.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private CompletableFuture<Void> flush(RollupKey key, Bucket bucket, long now) {
+        CompletableFuture<Boolean> confirmed = bucket.unconfirmed != null
+                ? send(key, bucket)
+                : CompletableFuture.completedFuture(true);
+        return confirmed.thenCompose(ready -> {
+            if (!ready) {
+                return CompletableFuture.completedFuture(null);
+            }
+            long count = bucket.counter.sumThenReset();
+            if (count == 0) {
+                if (key.bucketEnd() < now - settings.flushIntervalMillis() && bucket.dropIfEmpty()) {
+                    buckets.remove(key, bucket);
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+            bucket.unconfirmed = new Flush(flushSequence.incrementAndGet(), count);
+            return send(key, bucket).thenApply(sent -> null);
+        });
+    }
+
+    private CompletableFuture<Boolean> send(RollupKey key, Bucket bucket) {
+        Flush flush = bucket.unconfirmed;
+        return add(key, flush).handle((updated, throwable) -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            if (cause == null || cause instanceof ConditionalCheckFailedException) {
+                bucket.unconfirmed = null;
+                return true;
+            }
+            flushFailures.increment();
+            log.warn("Failed to flush {} {} events to rollup bucket {}", flush.count(), key.eventType(),
+                    key.bucketStart(), cause);
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Rollup items of one event type and bucket size whose bucket starts between {@code from} and
+     * {@code to}, in bucket order.
+     *
+     * @throws IllegalArgumentException if events are not rolled up into buckets of that size
+     */
+    public CompletableFuture<List<EventRollup>> findBuckets(ProductEventType productEventType, int bucketSeconds,
+                                                            long from, long to) {
+        if (!settings.bucketSeconds().contains(bucketSeconds)) {
+            throw new IllegalArgumentException("Events are not rolled up into " + bucketSeconds + " s buckets");
+        }
+        String partitionKey = partitionKey(productEventType, bucketSeconds);
+        List<EventRollup> rollups = new ArrayList<>();
+        return rollupsTable.query(QueryConditional.sortBetween(
+                        Key.builder().partitionValue(partitionKey).sortValue(sortKey(from)).build(),
+                        Key.builder().partitionValue(partitionKey).sortValue(sortKey(to)).build()))
+                .items()
+                .subscribe(rollups::add)
+                .thenApply(ignored -> rollups);
+    }
+
+    private CompletableFuture<Void> add(RollupKey key, Flush flush) {
+        return dynamoDbAsyncClient.updateItem(UpdateItemRequest.builder()
+                        .tableName(eventsDdbName)
+                        .key(Map.of(
+                                "pk", AttributeValue.fromS(partitionKey(key.eventType(), key.bucketSeconds())),
+                                "sk", AttributeValue.fromS(sortKey(key.bucketStart()))))
+                        .updateExpression(ADD_COUNT)
+                        .conditionExpression(NOT_YET_FLUSHED)
+                        .expressionAttributeNames(Map.of("#count", "count", "#flushed", flushedAttribute))
+                        .expressionAttributeValues(Map.of(
+                                ":count", AttributeValue.fromN(Long.toString(flush.count())),
+                                ":flush", AttributeValue.fromN(Long.toString(flush.sequence()))))
+                        .build())
+                .thenApply(updated -> null);
+    }
+
+    private static String partitionKey(ProductEventType productEventType, int bucketSeconds) {
+        return PARTITION_KEY_PREFIX + productEventType.name() + "#" + bucketSeconds;
+    }
+
+    private static String sortKey(long bucketStart) {
+        return String.format("%013d", bucketStart);
+    }
+
+    private static final class Bucket {
+        private final LongAdder counter = new LongAdder();
+        private final ReadWriteLock dropLock = new ReentrantReadWriteLock();
+        private boolean dropped;
+        private volatile Flush unconfirmed;
+
+        boolean increment() {
+            dropLock.readLock().lock();
+            try {
+                if (dropped) {
+                    return false;
+                }
+                counter.increment();
+                return true;
+            } finally {
+                dropLock.readLock().unlock();
+            }
+        }
+
+        boolean dropIfEmpty() {
+            dropLock.writeLock().lock();
+            try {
+                dropped = counter.sum() == 0;
+                return dropped;
+            } finally {
+                dropLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private record Flush(long sequence, long count) {}
+
+    private record RollupKey(ProductEventType eventType, int bucketSeconds, long bucketStart) {
+        long bucketEnd() {
+            return bucketStart + bucketSeconds * 1000L;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Accepts items for the table. The returned future completes once the item is durable, either in
+ * DynamoDB or somewhere it is guaranteed to be written to DynamoDB from, with whether the item was
+ * newly written: {@code false} when the write found an item with the same key in the table and left
+ * it there. Writers that do not check, or cannot tell yet, complete with {@code true}.
+ */
+public interface ItemWriter<T> {
+    CompletableFuture<Boolean> write(T item);
+
+    void close();
+}
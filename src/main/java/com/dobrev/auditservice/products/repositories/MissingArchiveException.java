@@ -0,0 +1,16 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * An hour below the hot boundary was never archived, so its events that have expired from the
+ * table can no longer be read.
+ */
+public class MissingArchiveException extends IOException {
+    public MissingArchiveException(ProductEventType productEventType, Instant hourStart) {
+        super("No archive of " + productEventType + " events for the hour starting at " + hourStart);
+    }
+}
@@ -0,0 +1,79 @@
+package com.dobrev.auditservice.products.repositories;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+@Component
+public class PartitionKeyStrategy {
+    private static final String PARTITION_KEY_PREFIX = "#product_";
+
+    public enum ShardStrategy {
+        HASH,
+        ROUND_ROBIN
+    }
+
+    private final int shards;
+    private final ShardStrategy shardStrategy;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public PartitionKeyStrategy(@Value("${aws.events.ddb.shards}") int shards,
+                                @Value("${aws.events.ddb.shard-strategy}") ShardStrategy shardStrategy) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.shards = shards;
+        this.shardStrategy = shardStrategy;
+    }
+
+    public String partitionKeyFor(String productEventType, String productId) {
+        return partitionKeyFor(productEventType, productId, null);
+    }
+
+    /**
+     * Partition key of an event that must land on the same shard every time its message is delivered,
+     * as conditional writes need. Events that round-robin, or that hash without a product id, are
+     * spread over the shards by {@code messageId} instead when it is given.
+     */
+    public String partitionKeyFor(String productEventType, String productId, String messageId) {
+        if (shards == 1) {
+            return PARTITION_KEY_PREFIX.concat(productEventType);
+        }
+        int shard;
+        if (shardStrategy == ShardStrategy.HASH && productId != null) {
+            shard = Math.floorMod(productId.hashCode(), shards);
+        } else if (messageId != null) {
+            shard = Math.floorMod(messageId.hashCode(), shards);
+        } else {
+            shard = Math.floorMod(nextShard.getAndIncrement(), shards);
+        }
+        return shardKey(productEventType, shard);
+    }
+
+    public List<String> partitionKeys(String productEventType) {
+        if (shards == 1) {
+            return List.of(PARTITION_KEY_PREFIX.concat(productEventType));
+        }
+        return IntStream.range(0, shards).mapToObj(shard -> shardKey(productEventType, shard)).toList();
+    }
+
+    /**
+     * Event type a partition key was built for, with any shard suffix removed.
+     */
+    public static String eventTypeOf(String partitionKey) {
+        if (partitionKey == null || !partitionKey.startsWith(PARTITION_KEY_PREFIX)) {
+            return null;
+        }
+        int shardSeparator = partitionKey.indexOf('#', PARTITION_KEY_PREFIX.length());
+        return shardSeparator < 0
+                ? partitionKey.substring(PARTITION_KEY_PREFIX.length())
+                : partitionKey.substring(PARTITION_KEY_PREFIX.length(), shardSeparator);
+    }
+
+    private String shardKey(String productEventType, int shard) {
+        return PARTITION_KEY_PREFIX + productEventType + "#" + shard;
+    }
+}
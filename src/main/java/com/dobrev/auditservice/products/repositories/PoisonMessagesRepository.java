@@ -0,0 +1,57 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.PoisonMessage;
+import com.dobrev.auditservice.sqs.PoisonMessageStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps poison messages in the events table under {@code #poison_<queue>}, with the raw body, for
+ * inspection and manual replay until their TTL expires.
+ */
+@Repository
+public class PoisonMessagesRepository implements PoisonMessageStore {
+    private static final String PARTITION_KEY_PREFIX = "#poison_";
+
+    private final DynamoDbAsyncTable<PoisonMessage> poisonMessagesTable;
+    private final EventIdGenerator eventIdGenerator;
+    private final Duration ttl;
+
+    public PoisonMessagesRepository(@Value("${aws.events.ddb}") String eventsDdbName,
+                                    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
+                                    EventIdGenerator eventIdGenerator,
+                                    @Value("${aws.sqs.poison.ttl-days}") long ttlDays) {
+        this.poisonMessagesTable = dynamoDbEnhancedAsyncClient.table(eventsDdbName,
+                TableSchema.fromBean(PoisonMessage.class));
+        this.eventIdGenerator = eventIdGenerator;
+        this.ttl = Duration.ofDays(ttlDays);
+    }
+
+    @Override
+    public CompletableFuture<Void> store(String queueName, Message message, String reason) {
+        EventIdGenerator.EventId eventId = eventIdGenerator.next();
+        String receiveCount = message.attributes().get(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT);
+
+        var poisonMessage = PoisonMessage.builder()
+                .pk(PARTITION_KEY_PREFIX.concat(queueName))
+                .sk(eventId.value())
+                .createdAt(eventId.timestamp())
+                .ttl(Instant.now().plus(ttl).getEpochSecond())
+                .messageId(message.messageId())
+                .receiveCount(receiveCount == null ? null : Integer.valueOf(receiveCount))
+                .reason(reason)
+                .body(message.body())
+                .build();
+
+        return poisonMessagesTable.putItem(poisonMessage);
+    }
+}
@@ -5,21 +5,19 @@ import com.dobrev.auditservice.events.dto.ProductEventDto;
 import com.dobrev.auditservice.events.dto.ProductEventType;
 import com.dobrev.auditservice.products.models.ProductEvent;
 import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
-import software.amazon.awssdk.core.async.SdkPublisher;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
-import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
-import software.amazon.awssdk.enhanced.dynamodb.model.Page;
-import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
-import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.io.IOException;
 import java.time.Instant;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Repository
@@ -27,28 +25,64 @@ import java.util.concurrent.CompletableFuture;
 @XRayEnabled
 public class ProductEventsRepository {
     private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private final EventIdGenerator eventIdGenerator;
+    private final CompactInfoTableSchema<ProductEvent, ProductInfoEvent> eventsSchema;
     private final DynamoDbAsyncTable<ProductEvent> eventsTable;
+    private final ItemWriter<ProductEvent> eventsWriter;
+    private final ShardedQueryReader<ProductEvent> eventsReader;
+    private final ProductIndexReader<ProductEvent> productIdReader;
+    private final TieredEventStore<ProductEvent> tieredStore;
+    private final PartitionKeyStrategy partitionKeyStrategy;
+    private final RetentionSettings retentionSettings;
+    private final boolean conditionalWrites;
 
     public ProductEventsRepository(@Value("${aws.events.ddb}") String eventsDdbName,
                                    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
-                                   DynamoDbAsyncTable<ProductEvent> eventsTable) {
+                                   BatchWriterSettings batchWriterSettings,
+                                   RangeReaderSettings rangeReaderSettings,
+                                   SpoolSettings spoolSettings,
+                                   AdaptiveWriteLimiter eventsTableWriteLimiter,
+                                   EventRollupsRepository eventRollupsRepository,
+                                   EventIdGenerator eventIdGenerator,
+                                   PartitionKeyStrategy partitionKeyStrategy,
+                                   RetentionSettings retentionSettings,
+                                   ArchiveSettings archiveSettings,
+                                   BlobStore archiveBlobStore,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${aws.events.ddb.conditional-writes}") boolean conditionalWrites,
+                                   @Value("${aws.events.ddb.compact-info}") boolean compactInfo) {
         this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
-        this.eventsTable = dynamoDbEnhancedAsyncClient.table(eventsDdbName, TableSchema.fromBean(ProductEvent.class));
+        this.eventIdGenerator = eventIdGenerator;
+        this.eventsSchema = new CompactInfoTableSchema<>(TableSchema.fromBean(ProductEvent.class),
+                CompactInfoConverter.PRODUCT_INFO, ProductEvent::getInfo, ProductEvent::setInfo, compactInfo);
+        this.eventsTable = dynamoDbEnhancedAsyncClient.table(eventsDdbName, eventsSchema);
+        ItemWriter<ProductEvent> tableWriter = new RollupCountingItemWriter<>(conditionalWrites
+                ? new ConditionalItemWriter<>(eventsTable, ProductEvent.class, eventsTableWriteLimiter)
+                : new BatchItemWriter<>(dynamoDbEnhancedAsyncClient, eventsTable, ProductEvent.class,
+                        batchWriterSettings, eventsTableWriteLimiter),
+                eventRollupsRepository, ProductEvent::getPk, ProductEvent::getCreatedAt);
+        this.eventsWriter = SpooledItemWriter.wrap(tableWriter, ProductEvent.class, "product-events", spoolSettings,
+                meterRegistry);
+        this.eventsReader = new ShardedQueryReader<>(eventsTable, ProductEvent::getSk, rangeReaderSettings);
+        this.productIdReader = new ProductIndexReader<>(eventsTable, ProductEvent.PRODUCT_ID_INDEX,
+                ProductEvent::getSk);
+        this.tieredStore = new TieredEventStore<>(eventsReader,
+                new EventArchive<>("product-events", archiveBlobStore, ArchiveSchema.PRODUCT_EVENTS,
+                        ProductEvent::getSk, archiveSettings.blockRows()),
+                ProductEvent::getSk, retentionSettings, archiveSettings);
+        this.partitionKeyStrategy = partitionKeyStrategy;
+        this.retentionSettings = retentionSettings;
+        this.conditionalWrites = conditionalWrites;
     }
 
-    public CompletableFuture<Void> create(ProductEventDto productEventDto,
-                                          ProductEventType productEventType,
-                                          String messageId, String requestId, String traceId){
-        long timestamp = Instant.now().toEpochMilli();
-        long ttl = Instant.now().plusSeconds(300).getEpochSecond();
-
-        var productEvent = ProductEvent.builder()
-                .pk(buildProductPartitionKey(productEventType.name()))
-                .sk(String.valueOf(timestamp))
-                .createdAt(timestamp)
-                .ttl(ttl)
-                .email(productEventDto.email())
-                .build();
+    public CompletableFuture<ProductEvent> create(ProductEventDto productEventDto,
+                                                  ProductEventType productEventType,
+                                                  String messageId, Instant publishedAt,
+                                                  String requestId, String traceId){
+        EventIdGenerator.EventId eventId = conditionalWrites && publishedAt != null
+                ? EventIdGenerator.forMessage(publishedAt.toEpochMilli(), messageId)
+                : eventIdGenerator.next();
+        long ttl = retentionSettings.expiresAt(productEventType, eventId.timestamp());
 
         var productInfoEvent = ProductInfoEvent.builder()
                 .code(productEventDto.code())
@@ -59,41 +93,58 @@ public class ProductEventsRepository {
                 .traceId(traceId)
                 .build();
 
-        return eventsTable.putItem(productEvent);
+        var productEvent = ProductEvent.builder()
+                .pk(partitionKeyStrategy.partitionKeyFor(productEventType.name(), productEventDto.id(),
+                        conditionalWrites ? messageId : null))
+                .sk(eventId.value())
+                .createdAt(eventId.timestamp())
+                .ttl(ttl)
+                .productId(productEventDto.id())
+                .email(productEventDto.email())
+                .info(productInfoEvent)
+                .build();
+
+        return eventsWriter.write(productEvent).thenApply(written -> productEvent);
+    }
+
+    @PreDestroy
+    public void close() {
+        eventsWriter.close();
+        tieredStore.close();
+    }
+
+    public CompletableFuture<EventPage<ProductEvent>> findPage(String productEventType, String cursor,
+                                                              String from, String to, int limit,
+                                                              List<NestedAttributeName> attributesToProject){
+        return tieredStore.read(productEventType, partitionKeyStrategy.partitionKeys(productEventType), cursor,
+                from, to, limit, eventsSchema.projection(attributesToProject));
     }
 
-    public SdkPublisher<Page<ProductEvent>> findByType(String productEventType, String exclusiveStartTimestamp, int limit){
-        String pk = buildProductPartitionKey(productEventType);
-        return eventsTable.query(QueryEnhancedRequest.builder()
-                        .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(pk).build()))
-                        .exclusiveStartKey(buildExclusiveStartKey(pk, exclusiveStartTimestamp))
-                        .limit(limit)
-                .build())
-                .limit(1);
+    /**
+     * Same as {@link #findPage}, reading the archives as well when {@code from} or {@code to} is open.
+     */
+    public CompletableFuture<EventPage<ProductEvent>> findPageAcrossTiers(String productEventType, String cursor,
+                                                                         String from, String to, int limit) {
+        return tieredStore.readAll(productEventType, partitionKeyStrategy.partitionKeys(productEventType), cursor,
+                from, to, limit, null);
     }
 
-    public SdkPublisher<Page<ProductEvent>> findByTypeAndRange(String productEventType, String exclusiveStartTimestamp,
-                                                               String from, String to, int limit){
-        String pk = buildProductPartitionKey(productEventType);
-        return eventsTable.query(QueryEnhancedRequest.builder()
-                        .queryConditional(QueryConditional.sortBetween(
-                                Key.builder().partitionValue(pk).sortValue(from).build(),
-                                Key.builder().partitionValue(pk).sortValue(to).build()))
-                        .exclusiveStartKey(buildExclusiveStartKey(pk, exclusiveStartTimestamp))
-                        .limit(limit)
-                .build())
-                .limit(1);
+    public CompletableFuture<EventPage<ProductEvent>> findPageByProductId(String productId, String cursor,
+                                                                         String from, String to, int limit) {
+        return productIdReader.read(productId, cursor, from, to, limit);
     }
 
-    private String buildProductPartitionKey(String productEventType) {
-        return "#product_".concat(productEventType);
+    /**
+     * Compacts the events of one type and hour into their archive.
+     *
+     * @return the number of events archived
+     */
+    public CompletableFuture<Integer> archive(ProductEventType productEventType, long hourStart) {
+        return tieredStore.archive(productEventType, partitionKeyStrategy.partitionKeys(productEventType.name()),
+                hourStart);
     }
 
-    private Map<String, AttributeValue> buildExclusiveStartKey(String pk, String exclusiveStartTimestamp){
-        return (exclusiveStartTimestamp != null) ?
-                Map.of(
-                        "pk", AttributeValue.builder().s(pk).build(),
-                        "sk", AttributeValue.builder().s(exclusiveStartTimestamp).build())
-                : null;
+    public boolean isArchived(ProductEventType productEventType, long hourStart) throws IOException {
+        return tieredStore.isArchived(productEventType, hourStart);
     }
-}
\ No newline at end of file
+}
@@ -4,32 +4,82 @@ import com.dobrev.auditservice.events.dto.ProductEventType;
 import com.dobrev.auditservice.events.dto.ProductFailureEventDto;
 import com.dobrev.auditservice.products.models.ProductFailureEvent;
 import com.dobrev.auditservice.products.models.ProductInfoFailureEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Repository
 public class ProductFailureEventsRepository {
     private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private final EventIdGenerator eventIdGenerator;
     private final DynamoDbAsyncTable<ProductFailureEvent> productFailureEventsTable;
+    private final ItemWriter<ProductFailureEvent> productFailureEventsWriter;
+    private final ShardedQueryReader<ProductFailureEvent> productFailureEventsReader;
+    private final ProductIndexReader<ProductFailureEvent> failedProductIdReader;
+    private final TieredEventStore<ProductFailureEvent> tieredStore;
+    private final PartitionKeyStrategy partitionKeyStrategy;
+    private final RetentionSettings retentionSettings;
+    private final boolean conditionalWrites;
 
     public ProductFailureEventsRepository(@Value("${aws.events.ddb}") String eventsDdbName,
-                                          DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+                                          DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
+                                          BatchWriterSettings batchWriterSettings,
+                                          RangeReaderSettings rangeReaderSettings,
+                                          SpoolSettings spoolSettings,
+                                          AdaptiveWriteLimiter eventsTableWriteLimiter,
+                                          EventRollupsRepository eventRollupsRepository,
+                                          EventIdGenerator eventIdGenerator,
+                                          PartitionKeyStrategy partitionKeyStrategy,
+                                          RetentionSettings retentionSettings,
+                                          ArchiveSettings archiveSettings,
+                                          BlobStore archiveBlobStore,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${aws.events.ddb.conditional-writes}") boolean conditionalWrites,
+                                          @Value("${aws.events.ddb.compact-info}") boolean compactInfo) {
         this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
+        this.eventIdGenerator = eventIdGenerator;
         this.productFailureEventsTable = dynamoDbEnhancedAsyncClient.table(eventsDdbName,
-                TableSchema.fromBean(ProductFailureEvent.class));
+                new CompactInfoTableSchema<>(TableSchema.fromBean(ProductFailureEvent.class),
+                        CompactInfoConverter.PRODUCT_INFO_FAILURE, ProductFailureEvent::getInfo,
+                        ProductFailureEvent::setInfo, compactInfo));
+        ItemWriter<ProductFailureEvent> tableWriter = new RollupCountingItemWriter<>(conditionalWrites
+                ? new ConditionalItemWriter<>(productFailureEventsTable, ProductFailureEvent.class,
+                        eventsTableWriteLimiter)
+                : new BatchItemWriter<>(dynamoDbEnhancedAsyncClient, productFailureEventsTable,
+                        ProductFailureEvent.class, batchWriterSettings, eventsTableWriteLimiter),
+                eventRollupsRepository, ProductFailureEvent::getPk, ProductFailureEvent::getCreatedAt);
+        this.productFailureEventsWriter = SpooledItemWriter.wrap(tableWriter, ProductFailureEvent.class,
+                "product-failure-events", spoolSettings, meterRegistry);
+        this.productFailureEventsReader = new ShardedQueryReader<>(productFailureEventsTable,
+                ProductFailureEvent::getSk, rangeReaderSettings);
+        this.failedProductIdReader = new ProductIndexReader<>(productFailureEventsTable,
+                ProductFailureEvent.FAILED_PRODUCT_ID_INDEX, ProductFailureEvent::getSk);
+        this.tieredStore = new TieredEventStore<>(productFailureEventsReader,
+                new EventArchive<>("product-failure-events", archiveBlobStore,
+                        ArchiveSchema.PRODUCT_FAILURE_EVENTS, ProductFailureEvent::getSk, archiveSettings.blockRows()),
+                ProductFailureEvent::getSk, retentionSettings, archiveSettings);
+        this.partitionKeyStrategy = partitionKeyStrategy;
+        this.retentionSettings = retentionSettings;
+        this.conditionalWrites = conditionalWrites;
     }
 
-    public CompletableFuture<Void> create(ProductFailureEventDto productFailureEventDto,
-                                          ProductEventType productEventType,
-                                          String messageId, String requestId, String traceId) {
-        long timestamp = Instant.now().toEpochMilli();
-        long ttl = Instant.now().plusSeconds(300).getEpochSecond();
+    public CompletableFuture<ProductFailureEvent> create(ProductFailureEventDto productFailureEventDto,
+                                                         ProductEventType productEventType,
+                                                         String messageId, Instant publishedAt,
+                                                         String requestId, String traceId) {
+        EventIdGenerator.EventId eventId = conditionalWrites && publishedAt != null
+                ? EventIdGenerator.forMessage(publishedAt.toEpochMilli(), messageId)
+                : eventIdGenerator.next();
+        long ttl = retentionSettings.expiresAt(productEventType, eventId.timestamp());
 
         var productInfoFailureEvent = ProductInfoFailureEvent.builder()
                 .id(productFailureEventDto.id())
@@ -41,14 +91,47 @@ public class ProductFailureEventsRepository {
                 .build();
 
         var productFailureEvent = ProductFailureEvent.builder()
-                .pk("#product_".concat(productEventType.name()))
-                .sk(String.valueOf(timestamp))
-                .createdAt(timestamp)
+                .pk(partitionKeyStrategy.partitionKeyFor(productEventType.name(), productFailureEventDto.id(),
+                        conditionalWrites ? messageId : null))
+                .sk(eventId.value())
+                .createdAt(eventId.timestamp())
                 .ttl(ttl)
+                .failedProductId(productFailureEventDto.id())
                 .email(productFailureEventDto.email())
                 .info(productInfoFailureEvent)
                 .build();
 
-        return productFailureEventsTable.putItem(productFailureEvent);
+        return productFailureEventsWriter.write(productFailureEvent).thenApply(written -> productFailureEvent);
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void close() {
+        productFailureEventsWriter.close();
+        tieredStore.close();
+    }
+
+    public CompletableFuture<EventPage<ProductFailureEvent>> findPage(String productEventType, String cursor,
+                                                                     String from, String to, int limit) {
+        return tieredStore.read(productEventType, partitionKeyStrategy.partitionKeys(productEventType), cursor,
+                from, to, limit, null);
+    }
+
+    public CompletableFuture<EventPage<ProductFailureEvent>> findPageByProductId(String productId, String cursor,
+                                                                                String from, String to, int limit) {
+        return failedProductIdReader.read(productId, cursor, from, to, limit);
+    }
+
+    /**
+     * Compacts the failure events of one type and hour into their archive.
+     *
+     * @return the number of events archived
+     */
+    public CompletableFuture<Integer> archive(ProductEventType productEventType, long hourStart) {
+        return tieredStore.archive(productEventType, partitionKeyStrategy.partitionKeys(productEventType.name()),
+                hourStart);
+    }
+
+    public boolean isArchived(ProductEventType productEventType, long hourStart) throws IOException {
+        return tieredStore.isArchived(productEventType, hourStart);
+    }
+}
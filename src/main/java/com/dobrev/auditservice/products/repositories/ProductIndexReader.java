@@ -0,0 +1,88 @@
+package com.dobrev.auditservice.products.repositories;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Reads one page of a product's events from a global secondary index keyed by product ID and the
+ * table's sort key, in sort key order. Instead of an exclusive start key, which for an index would
+ * need the table key of the last item, a page continues from the last sort key returned, so the
+ * cursor is a plain sort key that fits any index sharing the table's sort key. An optional time
+ * range applies as for {@link ShardedQueryReader}.
+ */
+public class ProductIndexReader<T> {
+    private final DynamoDbAsyncIndex<T> index;
+    private final Function<T, String> sortKey;
+
+    public ProductIndexReader(DynamoDbAsyncTable<T> table, String indexName, Function<T, String> sortKey) {
+        this.index = table.index(indexName);
+        this.sortKey = sortKey;
+    }
+
+    public CompletableFuture<EventPage<T>> read(String productId, String cursor, String from, String to, int limit) {
+        String upper = to != null ? EventIdGenerator.rangeEnd(to) : null;
+        // A range with an upper bound can only start inclusively, so the cursor item is read again and skipped.
+        boolean skipCursor = cursor != null && upper != null;
+
+        CompletableFuture<Page<T>> page = new CompletableFuture<>();
+        index.query(QueryEnhancedRequest.builder()
+                        .queryConditional(conditional(productId, cursor, from, upper))
+                        .limit(skipCursor ? limit + 1 : limit)
+                        .build())
+                .limit(1)
+                .subscribe(page::complete)
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        page.completeExceptionally(throwable);
+                    } else {
+                        page.complete(null);
+                    }
+                });
+
+        return page.thenApply(result -> {
+            if (result == null) {
+                return new EventPage<T>(List.of(), null);
+            }
+            List<T> items = result.items();
+            if (skipCursor && !items.isEmpty() && sortKey.apply(items.getFirst()).equals(cursor)) {
+                items = items.subList(1, items.size());
+            }
+            if (items.size() > limit) {
+                items = items.subList(0, limit);
+            }
+            boolean more = result.lastEvaluatedKey() != null && !items.isEmpty();
+            return new EventPage<>(items, more ? sortKey.apply(items.getLast()) : null);
+        });
+    }
+
+    private static QueryConditional conditional(String productId, String cursor, String from, String upper) {
+        if (cursor != null && upper != null) {
+            return QueryConditional.sortBetween(key(productId, cursor), key(productId, upper));
+        }
+        if (cursor != null) {
+            return QueryConditional.sortGreaterThan(key(productId, cursor));
+        }
+        if (from != null && upper != null) {
+            return QueryConditional.sortBetween(key(productId, from), key(productId, upper));
+        }
+        if (from != null) {
+            return QueryConditional.sortGreaterThanOrEqualTo(key(productId, from));
+        }
+        if (upper != null) {
+            return QueryConditional.sortLessThanOrEqualTo(key(productId, upper));
+        }
+        return QueryConditional.keyEqualTo(Key.builder().partitionValue(productId).build());
+    }
+
+    private static Key key(String productId, String sortKey) {
+        return Key.builder().partitionValue(productId).sortValue(sortKey).build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+@Builder
+public record RangeReaderSettings(
+        int segmentItems,
+        int maxSegments,
+        int maxParallel
+) {
+    public RangeReaderSettings {
+        if (segmentItems < 1 || maxSegments < 1 || maxParallel < 1) {
+            throw new IllegalArgumentException("Range reader segment size, segment count and parallelism must be positive");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import lombok.Builder;
+
+import java.util.Map;
+
+/**
+ * How long events stay in the events table, per event type, falling back to {@code hotSeconds}.
+ * Older events are read from their hourly archives.
+ */
+@Builder
+public record RetentionSettings(
+        long hotSeconds,
+        Map<ProductEventType, Long> hotSecondsByType
+) {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    public RetentionSettings {
+        hotSecondsByType = hotSecondsByType == null ? Map.of() : Map.copyOf(hotSecondsByType);
+        if (hotSeconds < 1 || hotSecondsByType.values().stream().anyMatch(seconds -> seconds < 1)) {
+            throw new IllegalArgumentException("Hot retention must be positive: " + hotSeconds + ", "
+                    + hotSecondsByType);
+        }
+    }
+
+    public long hotSeconds(ProductEventType productEventType) {
+        return hotSecondsByType.getOrDefault(productEventType, hotSeconds);
+    }
+
+    /**
+     * Epoch second at which the events table expires an event created at {@code createdAt}.
+     */
+    public long expiresAt(ProductEventType productEventType, long createdAt) {
+        return createdAt / 1000 + hotSeconds(productEventType);
+    }
+
+    /**
+     * Start of the first whole hour whose events are all still in the events table at {@code now}.
+     * Events created before it are read from the archives.
+     */
+    public long hotBoundary(ProductEventType productEventType, long now) {
+        long oldest = now - hotSeconds(productEventType) * 1000;
+        return Math.floorDiv(oldest + HOUR_MILLIS - 1, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+}
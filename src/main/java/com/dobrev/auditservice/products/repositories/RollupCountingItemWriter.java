@@ -0,0 +1,48 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counts the items its delegate newly writes in the {@link EventRollupsRepository}. It wraps the
+ * table writer, below any spool, so items are counted as they reach the table.
+ * <p>
+ * Only the conditional writer can tell an item the table already had, such as one of a redelivered
+ * message or of a spool replayed after a crash, from a new one. The batch writer used without
+ * {@code aws.events.ddb.conditional-writes} reports every item as newly written, so rollup counts
+ * are then at least once: redelivered and replayed events are counted again.
+ */
+class RollupCountingItemWriter<T> implements ItemWriter<T> {
+    private final ItemWriter<T> delegate;
+    private final EventRollupsRepository eventRollupsRepository;
+    private final Function<T, String> partitionKey;
+    private final ToLongFunction<T> createdAt;
+
+    RollupCountingItemWriter(ItemWriter<T> delegate, EventRollupsRepository eventRollupsRepository,
+                             Function<T, String> partitionKey, ToLongFunction<T> createdAt) {
+        this.delegate = delegate;
+        this.eventRollupsRepository = eventRollupsRepository;
+        this.partitionKey = partitionKey;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> write(T item) {
+        return delegate.write(item).thenApply(written -> {
+            if (written) {
+                eventRollupsRepository.count(
+                        ProductEventType.valueOf(PartitionKeyStrategy.eventTypeOf(partitionKey.apply(item))),
+                        createdAt.applyAsLong(item));
+            }
+            return written;
+        });
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,23 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record RollupSettings(
+        boolean enabled,
+        long flushIntervalMillis,
+        List<Integer> bucketSeconds
+) {
+    public RollupSettings {
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Rollup flush interval must be positive: " + flushIntervalMillis);
+        }
+        if (bucketSeconds == null || bucketSeconds.isEmpty()
+                || bucketSeconds.stream().anyMatch(seconds -> seconds < 1)) {
+            throw new IllegalArgumentException("Rollup bucket sizes must be positive: " + bucketSeconds);
+        }
+        bucketSeconds = List.copyOf(bucketSeconds);
+    }
+}
@@ -0,0 +1,175 @@
+package com.dobrev.auditservice.products.repositories;
+
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Reads one page of a time range from a single partition. The part of the range expected to fill
+ * the page is split into consecutive time segments that are queried concurrently and reassembled
+ * in sort key order. The split follows the density observed on earlier reads of the partition:
+ * ranges expected to hold fewer than {@code segmentItems} events, and partitions not read before,
+ * use a single query, while denser ones get one segment per {@code segmentItems} events up to
+ * {@code maxSegments}. Densities are kept for at most {@value #MAX_PARTITIONS} partitions; reads of
+ * any further partition are not segmented.
+ */
+class SegmentedRangeReader<T> {
+    private static final int MILLIS_DIGITS = 13;
+    private static final double DENSITY_WEIGHT = 0.5;
+    static final int MAX_PARTITIONS = 4096;
+
+    @FunctionalInterface
+    interface PageQuery<T> {
+        CompletableFuture<Page<T>> query(String partitionKey, String exclusiveStartSortKey,
+                                         String from, String to, int limit, List<NestedAttributeName> projection);
+    }
+
+    private final PageQuery<T> pageQuery;
+    private final Class<T> itemClass;
+    private final Function<T, String> sortKey;
+    private final RangeReaderSettings settings;
+    private final AsyncLimiter limiter;
+    private final Map<String, Double> densities = new ConcurrentHashMap<>();
+
+    SegmentedRangeReader(PageQuery<T> pageQuery, Class<T> itemClass, Function<T, String> sortKey,
+                         RangeReaderSettings settings) {
+        this.pageQuery = pageQuery;
+        this.itemClass = itemClass;
+        this.sortKey = sortKey;
+        this.settings = settings;
+        this.limiter = new AsyncLimiter(settings.maxParallel());
+    }
+
+    CompletableFuture<Page<T>> read(String partitionKey, String exclusiveStartSortKey,
+                                    String from, String to, int limit, List<NestedAttributeName> projection) {
+        long lower = millis(exclusiveStartSortKey != null ? exclusiveStartSortKey : from);
+        long upper = millis(to);
+        if (lower < 0 || upper < lower) {
+            return pageQuery.query(partitionKey, exclusiveStartSortKey, from, to, limit, projection);
+        }
+
+        long span = upper - lower + 1;
+        Double density = densities.get(partitionKey);
+        int segments = segmentCount(density, span, limit);
+        if (segments == 1) {
+            return pageQuery.query(partitionKey, exclusiveStartSortKey, from, to, limit, projection)
+                    .thenApply(page -> {
+                        observe(partitionKey, lower, upper, page.items(), page.lastEvaluatedKey() == null);
+                        return page;
+                    });
+        }
+
+        long window = Math.min(span, (long) Math.ceil(limit / density));
+        long width = window / segments;
+        List<CompletableFuture<Segment<T>>> reads = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            String segmentFrom = i == 0 ? from : format(lower + i * width);
+            String segmentTo = i == segments - 1 ? to : format(lower + (i + 1) * width - 1);
+            reads.add(readSegment(partitionKey, i == 0 ? exclusiveStartSortKey : null,
+                    segmentFrom, segmentTo, limit, projection, new ArrayList<>()));
+        }
+
+        return CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> assemble(partitionKey, lower, upper,
+                        reads.stream().map(CompletableFuture::join).toList(), limit));
+    }
+
+    private int segmentCount(Double density, long span, int limit) {
+        if (density == null || density <= 0) {
+            return 1;
+        }
+        double expected = Math.min(limit, density * span);
+        int segments = (int) Math.min(settings.maxSegments(), Math.ceil(expected / settings.segmentItems()));
+        return (int) Math.max(1, Math.min(segments, Math.min(span, (long) Math.ceil(limit / density))));
+    }
+
+    private CompletableFuture<Segment<T>> readSegment(String partitionKey, String exclusiveStartSortKey,
+                                                      String from, String to, int limit,
+                                                      List<NestedAttributeName> projection, List<T> items) {
+        return limiter.submit(() -> pageQuery.query(partitionKey, exclusiveStartSortKey, from, to,
+                        limit - items.size(), projection))
+                .thenCompose(page -> {
+                    items.addAll(page.items());
+                    if (page.lastEvaluatedKey() == null) {
+                        return CompletableFuture.completedFuture(new Segment<>(items, true));
+                    }
+                    if (items.size() >= limit) {
+                        return CompletableFuture.completedFuture(new Segment<>(items, false));
+                    }
+                    return readSegment(partitionKey, page.lastEvaluatedKey().get("sk").s(), from, to, limit,
+                            projection, items);
+                });
+    }
+
+    private Page<T> assemble(String partitionKey, long lower, long upper, List<Segment<T>> segments, int limit) {
+        List<T> items = new ArrayList<>(limit);
+        boolean exhausted = true;
+        for (Segment<T> segment : segments) {
+            for (T item : segment.items()) {
+                if (items.size() == limit) {
+                    exhausted = false;
+                    break;
+                }
+                items.add(item);
+            }
+            if (!exhausted || !segment.exhausted()) {
+                exhausted = false;
+                break;
+            }
+        }
+
+        observe(partitionKey, lower, upper, items, exhausted);
+        Page.Builder<T> page = Page.builder(itemClass).items(items);
+        if (!exhausted) {
+            page.lastEvaluatedKey(Map.of(
+                    "pk", AttributeValue.builder().s(partitionKey).build(),
+                    "sk", AttributeValue.builder().s(sortKey.apply(items.getLast())).build()));
+        }
+        return page.build();
+    }
+
+    private void observe(String partitionKey, long lower, long upper, List<T> items, boolean exhausted) {
+        long covered = exhausted || items.isEmpty()
+                ? upper - lower + 1
+                : millis(sortKey.apply(items.getLast())) - lower + 1;
+        if (covered <= 0 || (densities.size() >= MAX_PARTITIONS && !densities.containsKey(partitionKey))) {
+            return;
+        }
+        double observed = (double) items.size() / covered;
+        densities.merge(partitionKey, observed,
+                (previous, current) -> previous * (1 - DENSITY_WEIGHT) + current * DENSITY_WEIGHT);
+    }
+
+    /**
+     * Epoch millis of a sort key or range bound, or -1 when it does not start with them.
+     */
+    static long millis(String value) {
+        if (value == null || value.length() < MILLIS_DIGITS
+                || (value.length() > MILLIS_DIGITS && value.charAt(MILLIS_DIGITS) != '-')) {
+            return -1;
+        }
+        long millis = 0;
+        for (int i = 0; i < MILLIS_DIGITS; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            millis = millis * 10 + (c - '0');
+        }
+        return millis;
+    }
+
+    static String format(long millis) {
+        String digits = Long.toString(millis);
+        return "0".repeat(Math.max(0, MILLIS_DIGITS - digits.length())).concat(digits);
+    }
+
+    private record Segment<T>(List<T> items, boolean exhausted) {}
+}
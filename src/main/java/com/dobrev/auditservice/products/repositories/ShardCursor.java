@@ -0,0 +1,54 @@
+package com.dobrev.auditservice.products.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pagination position across all shards of a partition. With a single shard the cursor is the plain
+ * sort key, so existing clients keep passing {@code lastEvaluatedTimeStamp} back unchanged. With more
+ * shards it is a URL-safe Base64 list of per-shard sort keys, where an empty entry means the shard
+ * has not been read yet and {@value #EXHAUSTED} means it has no more items.
+ */
+final class ShardCursor {
+    static final String EXHAUSTED = "!";
+    private static final String SEPARATOR = "|";
+
+    private ShardCursor() {
+    }
+
+    static List<String> decode(String cursor, int shards) {
+        if (cursor == null) {
+            return new ArrayList<>(Collections.nCopies(shards, ""));
+        }
+        if (shards == 1) {
+            return new ArrayList<>(List.of(cursor));
+        }
+
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed pagination cursor: " + cursor, e);
+        }
+        List<String> positions = new ArrayList<>(Arrays.asList(decoded.split("\\" + SEPARATOR, -1)));
+        if (positions.size() != shards) {
+            throw new IllegalArgumentException("Pagination cursor does not match the current shard count");
+        }
+        return positions;
+    }
+
+    static String encode(List<String> positions) {
+        if (positions.stream().allMatch(EXHAUSTED::equals)) {
+            return null;
+        }
+        if (positions.size() == 1) {
+            return positions.getFirst().isEmpty() ? null : positions.getFirst();
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(SEPARATOR, positions).getBytes(StandardCharsets.UTF_8));
+    }
+}
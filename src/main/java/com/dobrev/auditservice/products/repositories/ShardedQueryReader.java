@@ -0,0 +1,150 @@
+package com.dobrev.auditservice.products.repositories;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Reads one page across every shard of a partition: each shard is queried in parallel for up to
+ * {@code limit} items from its own cursor position, and the pages are k-way merged by sort key.
+ * Time ranges within a shard are read through a {@link SegmentedRangeReader}.
+ */
+public class ShardedQueryReader<T> {
+    private final DynamoDbAsyncTable<T> table;
+    private final Function<T, String> sortKey;
+    private final SegmentedRangeReader<T> rangeReader;
+
+    public ShardedQueryReader(DynamoDbAsyncTable<T> table, Function<T, String> sortKey,
+                              RangeReaderSettings rangeReaderSettings) {
+        this.table = table;
+        this.sortKey = sortKey;
+        this.rangeReader = new SegmentedRangeReader<>(this::querySinglePage, table.tableSchema().itemType().rawClass(),
+                sortKey, rangeReaderSettings);
+    }
+
+    public CompletableFuture<EventPage<T>> read(List<String> partitionKeys, String cursor,
+                                                String from, String to, int limit) {
+        return read(partitionKeys, cursor, from, to, limit, null);
+    }
+
+    /**
+     * Same as {@link #read(List, String, String, String, int)}, reading only the given attributes
+     * plus the key attributes. A {@code null} projection reads whole items.
+     */
+    public CompletableFuture<EventPage<T>> read(List<String> partitionKeys, String cursor,
+                                                String from, String to, int limit,
+                                                List<NestedAttributeName> projection) {
+        List<String> positions = ShardCursor.decode(cursor, partitionKeys.size());
+
+        List<CompletableFuture<Page<T>>> shardPages = new ArrayList<>(partitionKeys.size());
+        for (int shard = 0; shard < partitionKeys.size(); shard++) {
+            String position = positions.get(shard);
+            shardPages.add(ShardCursor.EXHAUSTED.equals(position)
+                    ? CompletableFuture.completedFuture(null)
+                    : queryPage(partitionKeys.get(shard), position.isEmpty() ? null : position, from, to, limit,
+                            projection));
+        }
+
+        return CompletableFuture.allOf(shardPages.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> merge(shardPages.stream().map(CompletableFuture::join).toList(),
+                        positions, limit));
+    }
+
+    CompletableFuture<Page<T>> queryPage(String partitionKey, String exclusiveStartSortKey,
+                                         String from, String to, int limit, List<NestedAttributeName> projection) {
+        if (from != null && to != null) {
+            return rangeReader.read(partitionKey, exclusiveStartSortKey, from, to, limit, projection);
+        }
+        return querySinglePage(partitionKey, exclusiveStartSortKey, null, null, limit, projection);
+    }
+
+    private CompletableFuture<Page<T>> querySinglePage(String partitionKey, String exclusiveStartSortKey,
+                                                       String from, String to, int limit,
+                                                       List<NestedAttributeName> projection) {
+        QueryConditional queryConditional = (from != null && to != null)
+                ? QueryConditional.sortBetween(
+                        Key.builder().partitionValue(partitionKey).sortValue(from).build(),
+                        Key.builder().partitionValue(partitionKey).sortValue(EventIdGenerator.rangeEnd(to)).build())
+                : QueryConditional.keyEqualTo(Key.builder().partitionValue(partitionKey).build());
+
+        QueryEnhancedRequest.Builder queryEnhancedRequest = QueryEnhancedRequest.builder()
+                .queryConditional(queryConditional)
+                .exclusiveStartKey(buildExclusiveStartKey(partitionKey, exclusiveStartSortKey))
+                .limit(limit);
+        if (projection != null) {
+            // Keys are always read: the merge orders by sort key and cursors are built from it.
+            queryEnhancedRequest.addNestedAttributesToProject(projection)
+                    .addAttributeToProject(table.tableSchema().tableMetadata().primaryPartitionKey())
+                    .addAttributeToProject(table.tableSchema().tableMetadata().primarySortKey().orElseThrow());
+        }
+
+        CompletableFuture<Page<T>> page = new CompletableFuture<>();
+        table.query(queryEnhancedRequest.build())
+                .limit(1)
+                .subscribe(page::complete)
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        page.completeExceptionally(throwable);
+                    } else {
+                        page.complete(Page.builder(table.tableSchema().itemType().rawClass())
+                                .items(List.of())
+                                .build());
+                    }
+                });
+        return page;
+    }
+
+    private EventPage<T> merge(List<Page<T>> shardPages, List<String> positions, int limit) {
+        PriorityQueue<ShardHead<T>> heads = new PriorityQueue<>(Comparator.comparing(ShardHead::sortKey));
+        for (int shard = 0; shard < shardPages.size(); shard++) {
+            Page<T> page = shardPages.get(shard);
+            if (page != null && !page.items().isEmpty()) {
+                heads.add(new ShardHead<>(shard, 0, page.items(), sortKey.apply(page.items().getFirst())));
+            }
+        }
+
+        int[] consumed = new int[shardPages.size()];
+        List<T> items = new ArrayList<>(limit);
+        while (items.size() < limit && !heads.isEmpty()) {
+            ShardHead<T> head = heads.poll();
+            items.add(head.items().get(head.index()));
+            positions.set(head.shard(), head.sortKey());
+            consumed[head.shard()]++;
+
+            int next = head.index() + 1;
+            if (next < head.items().size()) {
+                heads.add(new ShardHead<>(head.shard(), next, head.items(), sortKey.apply(head.items().get(next))));
+            }
+        }
+
+        for (int shard = 0; shard < shardPages.size(); shard++) {
+            Page<T> page = shardPages.get(shard);
+            if (page != null && consumed[shard] == page.items().size() && page.lastEvaluatedKey() == null) {
+                positions.set(shard, ShardCursor.EXHAUSTED);
+            }
+        }
+        return new EventPage<>(items, ShardCursor.encode(positions));
+    }
+
+    private Map<String, AttributeValue> buildExclusiveStartKey(String pk, String exclusiveStartSortKey) {
+        return (exclusiveStartSortKey != null) ?
+                Map.of(
+                        "pk", AttributeValue.builder().s(pk).build(),
+                        "sk", AttributeValue.builder().s(exclusiveStartSortKey).build())
+                : null;
+    }
+
+    private record ShardHead<T>(int shard, int index, List<T> items, String sortKey) {}
+}
@@ -0,0 +1,23 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+@Builder
+public record SpoolSettings(
+        boolean enabled,
+        String directory,
+        int segmentBytes,
+        long maxBytes,
+        int drainBatchSize,
+        long baseBackoffMillis,
+        long maxBackoffMillis
+) {
+    public SpoolSettings {
+        if (enabled && (directory == null || directory.isBlank())) {
+            throw new IllegalArgumentException("Spool directory is required when the spool is enabled");
+        }
+        if (segmentBytes <= WriteAheadSpool.RECORD_HEADER_BYTES || maxBytes < segmentBytes || drainBatchSize < 1) {
+            throw new IllegalArgumentException("Spool segment size, capacity and drain batch size must be positive");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Acknowledges writes once they are in a local {@link WriteAheadSpool} and replays them to the
+ * table from a background drainer, so DynamoDB throttling slows the drainer down instead of failing
+ * the source messages. The drainer hands the spool to the wrapped writer one batch at a time and
+ * commits the spool offset only after the whole batch is written; a failed batch is retried with
+ * backoff. After a restart the drainer resumes at the committed offset. Items carry their keys, so
+ * replaying a batch that was partly written before the restart overwrites the same items.
+ * <p>
+ * A record that does not deserialize is quarantined by the spool and counted in
+ * {@code spool.quarantined} before the offset moves past it, so it is never lost with the commit.
+ */
+@Slf4j
+public class SpooledItemWriter<T> implements ItemWriter<T> {
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ItemWriter<T> delegate;
+    private final WriteAheadSpool spool;
+    private final SpoolSettings settings;
+    private final ObjectWriter itemWriter;
+    private final ObjectReader itemReader;
+    private final Counter quarantined;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    SpooledItemWriter(ItemWriter<T> delegate, Class<T> itemClass, WriteAheadSpool spool,
+                      SpoolSettings settings, String name, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.spool = spool;
+        this.settings = settings;
+        // The spool holds items in their own JSON form; unknown properties are tolerated so that a
+        // spool written by a newer version still drains after a rollback.
+        JsonMapper jsonMapper = JsonMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.itemWriter = jsonMapper.writerFor(itemClass);
+        this.itemReader = jsonMapper.readerFor(itemClass);
+        this.quarantined = Counter.builder("spool.quarantined")
+                .tag("spool", name)
+                .register(meterRegistry);
+        this.drainer = Thread.ofPlatform().name(name + "-spool-drainer").daemon().start(this::drain);
+    }
+
+    /**
+     * Returns {@code delegate} unchanged when the spool is disabled, otherwise a writer spooling to
+     * {@code <directory>/<name>}.
+     */
+    public static <T> ItemWriter<T> wrap(ItemWriter<T> delegate, Class<T> itemClass, String name,
+                                         SpoolSettings settings, MeterRegistry meterRegistry) {
+        if (!settings.enabled()) {
+            return delegate;
+        }
+        try {
+            return new SpooledItemWriter<>(delegate, itemClass,
+                    WriteAheadSpool.open(Path.of(settings.directory(), name), settings.segmentBytes(),
+                            settings.maxBytes()),
+                    settings, name, meterRegistry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open spool " + name, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> write(T item) {
+        try {
+            spool.append(itemWriter.writeValueAsBytes(item));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        LockSupport.unpark(drainer);
+        // Whether the item is new is only known once it is drained to the wrapped writer.
+        return CompletableFuture.completedFuture(true);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.error("Failed to close spool", e);
+        }
+        delegate.close();
+    }
+
+    long pendingBytes() {
+        return spool.forcedOffset() - spool.committedOffset();
+    }
+
+    private void drain() {
+        long offset = spool.committedOffset();
+        int attempt = 0;
+        while (running) {
+            List<WriteAheadSpool.SpoolRecord> records = spool.read(offset, settings.drainBatchSize());
+            if (records.isEmpty()) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+
+            List<CompletableFuture<Boolean>> writes = new ArrayList<>(records.size());
+            List<WriteAheadSpool.SpoolRecord> unreadable = new ArrayList<>(0);
+            for (WriteAheadSpool.SpoolRecord record : records) {
+                try {
+                    writes.add(delegate.write(itemReader.readValue(record.payload())));
+                } catch (IOException e) {
+                    log.error("Unreadable spool record ending at offset {}", record.nextOffset(), e);
+                    unreadable.add(record);
+                }
+            }
+
+            try {
+                CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+                for (WriteAheadSpool.SpoolRecord record : unreadable) {
+                    log.error("Quarantined unreadable spool record as {}", spool.quarantine(record));
+                    quarantined.increment();
+                }
+                offset = records.getLast().nextOffset();
+                spool.commit(offset);
+                attempt = 0;
+            } catch (CompletionException | IOException e) {
+                attempt++;
+                log.warn("Failed to drain {} spooled items, attempt {}", records.size(), attempt, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMillis(attempt)));
+            }
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(settings.maxBackoffMillis(), settings.baseBackoffMillis() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
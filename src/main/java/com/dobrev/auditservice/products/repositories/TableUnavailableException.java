@@ -0,0 +1,7 @@
+package com.dobrev.auditservice.products.repositories;
+
+public class TableUnavailableException extends RuntimeException {
+    public TableUnavailableException(String table, long retryInMillis) {
+        super("Writes to %s are suspended for %d ms after repeated failures".formatted(table, retryInMillis));
+    }
+}
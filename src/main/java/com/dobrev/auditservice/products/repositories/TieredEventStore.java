@@ -0,0 +1,164 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import software.amazon.awssdk.enhanced.dynamodb.NestedAttributeName;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Events of one kind across the events table, which keeps them for the hot retention of their type,
+ * and the hourly archives they are compacted into before they expire from it.
+ * <p>
+ * A time range read whose {@code from} lies before the {@linkplain RetentionSettings#hotBoundary hot
+ * boundary} is first served from the archives up to the boundary, then from the table from the
+ * boundary on, so a page can hold events of both. Cursors of pages that end within the archives are
+ * the last sort key prefixed with {@value #ARCHIVE_CURSOR_PREFIX}; the prefix cannot start a table
+ * cursor, so other cursors continue in the table. An archive cursor replayed against a range or
+ * configuration that no longer reads the archives is rejected with {@link IllegalArgumentException}.
+ * Reads without a complete range only use the table, unless made through {@link #readAll}.
+ * A read over an hour that should have been archived but was not fails with
+ * {@link MissingArchiveException}.
+ */
+class TieredEventStore<T> {
+    static final String ARCHIVE_CURSOR_PREFIX = "~";
+    private static final String EARLIEST = SegmentedRangeReader.format(0);
+    private static final String LATEST = "9".repeat(EARLIEST.length());
+    private static final int ARCHIVE_PAGE_SIZE = 1000;
+
+    private final ShardedQueryReader<T> hotReader;
+    private final EventArchive<T> archive;
+    private final Function<T, String> sortKey;
+    private final RetentionSettings retentionSettings;
+    private final boolean archiveEnabled;
+    private final ExecutorService archiveExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("events-archive-", 0).factory());
+
+    TieredEventStore(ShardedQueryReader<T> hotReader, EventArchive<T> archive, Function<T, String> sortKey,
+                     RetentionSettings retentionSettings, ArchiveSettings archiveSettings) {
+        this.hotReader = hotReader;
+        this.archive = archive;
+        this.sortKey = sortKey;
+        this.retentionSettings = retentionSettings;
+        this.archiveEnabled = archiveSettings.enabled();
+    }
+
+    CompletableFuture<EventPage<T>> read(String eventType, List<String> partitionKeys,
+                                         String cursor, String from, String to, int limit,
+                                         List<NestedAttributeName> projection) {
+        boolean archiveCursor = cursor != null && cursor.startsWith(ARCHIVE_CURSOR_PREFIX);
+        ProductEventType productEventType = Arrays.stream(ProductEventType.values())
+                .filter(type -> type.name().equals(eventType))
+                .findFirst()
+                .orElse(null);
+        long lower = SegmentedRangeReader.millis(from);
+        long upper = SegmentedRangeReader.millis(to);
+        long boundary = productEventType != null
+                ? retentionSettings.hotBoundary(productEventType, System.currentTimeMillis())
+                : Long.MIN_VALUE;
+        if (!archiveEnabled || lower < 0 || upper < lower || lower >= boundary) {
+            if (archiveCursor) {
+                throw new IllegalArgumentException("Archive cursor used outside an archived range: " + cursor);
+            }
+            return hotReader.read(partitionKeys, cursor, from, to, limit, projection);
+        }
+
+        String hotFrom = SegmentedRangeReader.format(boundary);
+        if (cursor != null && !archiveCursor) {
+            // The archived part of the range has been read; events still in the table before the
+            // boundary were already returned from the archives.
+            return hotReader.read(partitionKeys, cursor, hotFrom, to, limit, projection);
+        }
+
+        String after = archiveCursor ? cursor.substring(ARCHIVE_CURSOR_PREFIX.length()) : null;
+        String archiveTo = EventIdGenerator.rangeEnd(upper < boundary
+                ? to
+                : SegmentedRangeReader.format(boundary - 1));
+        return CompletableFuture.supplyAsync(() -> readArchive(productEventType, from, after, archiveTo, limit),
+                        archiveExecutor)
+                .thenCompose(archived -> {
+                    if (archived.size() >= limit) {
+                        return CompletableFuture.completedFuture(new EventPage<>(archived,
+                                ARCHIVE_CURSOR_PREFIX + sortKey.apply(archived.getLast())));
+                    }
+                    if (upper < boundary) {
+                        return CompletableFuture.completedFuture(new EventPage<>(archived, null));
+                    }
+                    return hotReader.read(partitionKeys, null, hotFrom, to, limit - archived.size(), projection)
+                            .thenApply(hot -> {
+                                List<T> items = new ArrayList<>(archived.size() + hot.items().size());
+                                items.addAll(archived);
+                                items.addAll(hot.items());
+                                return new EventPage<>(items, hot.cursor());
+                            });
+                });
+    }
+
+    /**
+     * Same as {@link #read}, with a missing {@code from} or {@code to} taken as the earliest or latest
+     * possible time, so that open ranges are served from the archives as well as the table.
+     */
+    CompletableFuture<EventPage<T>> readAll(String eventType, List<String> partitionKeys,
+                                            String cursor, String from, String to, int limit,
+                                            List<NestedAttributeName> projection) {
+        return read(eventType, partitionKeys, cursor, from != null ? from : EARLIEST, to != null ? to : LATEST,
+                limit, projection);
+    }
+
+    /**
+     * Compacts the events of one hour from the table into its archive.
+     *
+     * @return the number of events archived
+     */
+    CompletableFuture<Integer> archive(ProductEventType productEventType, List<String> partitionKeys,
+                                       long hourStart) {
+        String from = SegmentedRangeReader.format(hourStart);
+        String to = SegmentedRangeReader.format(hourStart + EventArchive.HOUR_MILLIS - 1);
+        List<T> items = new ArrayList<>();
+        return readTable(partitionKeys, null, from, to, items)
+                .thenApplyAsync(ignored -> {
+                    try {
+                        archive.write(productEventType, hourStart, items);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return items.size();
+                }, archiveExecutor);
+    }
+
+    boolean isArchived(ProductEventType productEventType, long hourStart) throws IOException {
+        return archive.contains(productEventType, hourStart);
+    }
+
+    void close() {
+        archiveExecutor.shutdown();
+    }
+
+    private List<T> readArchive(ProductEventType productEventType, String from, String after, String to,
+                                int limit) {
+        try {
+            return archive.read(productEventType, from, after, to, limit);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private CompletableFuture<Void> readTable(List<String> partitionKeys, String cursor, String from, String to,
+                                            List<T> items) {
+        return hotReader.read(partitionKeys, cursor, from, to, ARCHIVE_PAGE_SIZE)
+                .thenCompose(page -> {
+                    items.addAll(page.items());
+                    return page.cursor() == null
+                            ? CompletableFuture.completedFuture(null)
+                            : readTable(partitionKeys, page.cursor(), from, to, items);
+                });
+    }
+}
@@ -0,0 +1,315 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files. Offsets are byte positions in
+ * one logical log: a segment is named after the offset of its first byte and ends where the next one
+ * starts. Each record is a length, a CRC32C of the payload and the payload; unused space in a segment
+ * is zero, so recovery finds the end of the last segment by reading records until the first one
+ * that is empty or fails its checksum.
+ * <p>
+ * {@link #append} returns once the record has been forced to disk. Appenders that arrive while a
+ * force is running are covered by the next one, so concurrent appends share fsyncs. The consumer's
+ * position is kept in a separate offset file, replaced atomically on {@link #commit}; segments wholly
+ * below it are deleted. Records the consumer cannot process are {@linkplain #quarantine copied aside}
+ * before it commits past them.
+ */
+@Slf4j
+class WriteAheadSpool implements AutoCloseable {
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String OFFSET_FILE = "committed.offset";
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private volatile long writeOffset;
+    private volatile long forcedOffset;
+    private volatile long committedOffset;
+
+    private WriteAheadSpool(Path directory, int segmentBytes, long maxBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    static WriteAheadSpool open(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        WriteAheadSpool spool = new WriteAheadSpool(directory, segmentBytes, maxBytes);
+        spool.recover();
+        return spool;
+    }
+
+    /**
+     * Appends a record and forces it to disk, returning the offset just past it.
+     */
+    long append(byte[] payload) throws IOException {
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a spool segment");
+        }
+
+        long end;
+        Segment segment;
+        appendLock.lock();
+        try {
+            if (writeOffset + recordBytes - committedOffset > maxBytes) {
+                throw new IOException("Spool " + directory + " is full: " + (writeOffset - committedOffset) + " bytes pending");
+            }
+            segment = segments.lastEntry().getValue();
+            if (writeOffset - segment.baseOffset() + recordBytes > segmentBytes) {
+                segment = roll();
+            }
+            int position = (int) (writeOffset - segment.baseOffset());
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            segment.buffer().putInt(position, payload.length)
+                    .putInt(position + Integer.BYTES, (int) crc.getValue())
+                    .put(position + RECORD_HEADER_BYTES, payload);
+            end = writeOffset + recordBytes;
+            writeOffset = end;
+        } finally {
+            appendLock.unlock();
+        }
+
+        force(end);
+        return end;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} complete, durable records starting at {@code offset}.
+     */
+    List<SpoolRecord> read(long offset, int maxRecords) {
+        long end = forcedOffset;
+        List<SpoolRecord> records = new ArrayList<>(Math.min(maxRecords, 64));
+        while (offset < end && records.size() < maxRecords) {
+            Segment segment = segments.floorEntry(offset).getValue();
+            ByteBuffer buffer = segment.buffer();
+            int position = (int) (offset - segment.baseOffset());
+            byte[] payload = new byte[buffer.getInt(position)];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            offset += RECORD_HEADER_BYTES + payload.length;
+            records.add(new SpoolRecord(payload, offset));
+        }
+        return records;
+    }
+
+    long committedOffset() {
+        return committedOffset;
+    }
+
+    long forcedOffset() {
+        return forcedOffset;
+    }
+
+    /**
+     * Durably records that everything before {@code offset} has been consumed.
+     */
+    void commit(long offset) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(offset);
+        CRC32C crc = new CRC32C();
+        crc.update(content.array(), 0, Long.BYTES);
+        content.putInt((int) crc.getValue()).flip();
+
+        Path temporary = directory.resolve(OFFSET_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(content);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(OFFSET_FILE), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+        committedOffset = offset;
+
+        Map.Entry<Long, Segment> active = segments.floorEntry(offset);
+        for (Segment consumed : segments.headMap(active.getKey()).values()) {
+            segments.remove(consumed.baseOffset());
+            consumed.channel().close();
+            Files.deleteIfExists(segmentPath(consumed.baseOffset()));
+        }
+    }
+
+    /**
+     * Durably copies a record to {@code quarantine/<offset>.record}, named after the offset it starts
+     * at, so it survives the commit that moves past it. Quarantining the same record again replaces
+     * the copy.
+     */
+    Path quarantine(SpoolRecord record) throws IOException {
+        Path quarantine = directory.resolve(QUARANTINE_DIRECTORY);
+        Files.createDirectories(quarantine);
+        long offset = record.nextOffset() - RECORD_HEADER_BYTES - record.payload().length;
+        Path file = quarantine.resolve(String.format("%020d.record", offset));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(record.payload()));
+            channel.force(true);
+        }
+        try (FileChannel channel = FileChannel.open(quarantine, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer().force();
+                segment.channel().close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void force(long end) {
+        if (forcedOffset >= end) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (forcedOffset >= end) {
+                return;
+            }
+            long target = writeOffset;
+            for (Segment segment : segments.tailMap(segments.floorKey(forcedOffset)).values()) {
+                int from = (int) Math.max(0, forcedOffset - segment.baseOffset());
+                int to = (int) Math.min(segmentBytes, target - segment.baseOffset());
+                if (to > from) {
+                    segment.buffer().force(from, to - from);
+                }
+            }
+            forcedOffset = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    private Segment roll() throws IOException {
+        Segment segment = map(writeOffset);
+        forceDirectory();
+        segments.put(segment.baseOffset(), segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        committedOffset = readCommittedOffset();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(baseOffset, map(baseOffset));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(committedOffset, map(committedOffset));
+            forceDirectory();
+            writeOffset = committedOffset;
+        } else {
+            Segment last = segments.lastEntry().getValue();
+            int end = scan(last.buffer());
+            writeOffset = last.baseOffset() + end;
+            clearTail(last.buffer(), end);
+        }
+        if (committedOffset < segments.firstKey() || committedOffset > writeOffset) {
+            throw new IOException("Committed offset " + committedOffset + " is outside spool " + directory
+                    + " [" + segments.firstKey() + ", " + writeOffset + "]");
+        }
+        forcedOffset = writeOffset;
+        log.info("Opened spool {} with {} bytes pending from offset {}", directory, writeOffset - committedOffset,
+                committedOffset);
+    }
+
+    private int scan(ByteBuffer buffer) {
+        int position = 0;
+        while (position + RECORD_HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Zeroes whatever follows the last complete record. It was never acknowledged to a writer, and
+     * left in place it could be mistaken for records once new appends reach it.
+     */
+    private void clearTail(MappedByteBuffer buffer, int from) {
+        int dirtyEnd = segmentBytes;
+        while (dirtyEnd > from && buffer.get(dirtyEnd - 1) == 0) {
+            dirtyEnd--;
+        }
+        if (dirtyEnd > from) {
+            log.warn("Discarding {} bytes of incomplete records in spool {}", dirtyEnd - from, directory);
+            buffer.put(from, new byte[dirtyEnd - from]);
+            buffer.force(from, dirtyEnd - from);
+        }
+    }
+
+    private long readCommittedOffset() throws IOException {
+        Path file = directory.resolve(OFFSET_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32C crc = new CRC32C();
+        crc.update(content.array(), 0, Long.BYTES);
+        if (content.capacity() != Long.BYTES + Integer.BYTES
+                || (int) crc.getValue() != content.getInt(Long.BYTES)) {
+            throw new IOException("Corrupt committed offset in " + file);
+        }
+        return content.getLong(0);
+    }
+
+    private Segment map(long baseOffset) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(baseOffset), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(baseOffset, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    record SpoolRecord(byte[] payload, long nextOffset) {}
+
+    private record Segment(long baseOffset, FileChannel channel, MappedByteBuffer buffer) {}
+}
@@ -0,0 +1,26 @@
+package com.dobrev.auditservice.products.repositories;
+
+import lombok.Builder;
+
+@Builder
+public record WriteLimiterSettings(
+        int initialLimit,
+        int minLimit,
+        int maxLimit,
+        double backoffRatio,
+        long latencyThresholdMillis,
+        int failureThreshold,
+        long openMillis
+) {
+    public WriteLimiterSettings {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Write limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Write limit backoff ratio must be between 0 and 1: " + backoffRatio);
+        }
+        if (failureThreshold < 1 || openMillis < 0) {
+            throw new IllegalArgumentException("Circuit failure threshold must be positive and open time non-negative");
+        }
+    }
+}
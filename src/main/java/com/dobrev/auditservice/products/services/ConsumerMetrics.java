@@ -0,0 +1,79 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stage meters of one consumer. Every meter is registered up front, per event type the consumer
+ * handles, so recording a stage is an {@link EnumMap} lookup and a timer update: no tags, samples or
+ * boxed values are created on the message path. Timers publish percentile histograms.
+ * <ul>
+ *     <li>{@code events.consumer.parse}: decoding the SNS envelope, tagged by {@code queue} only</li>
+ *     <li>{@code events.consumer.persist}: handing the event to the repository until it is durable</li>
+ *     <li>{@code events.consumer.ack}: deleting the message from the queue</li>
+ *     <li>{@code events.consumer.lag}: SNS publish time to persisted</li>
+ *     <li>{@code events.consumer.failures}: messages that were not persisted and acknowledged</li>
+ * </ul>
+ * All but the parse timer are tagged with {@code queue} and {@code eventType}.
+ */
+public class ConsumerMetrics {
+    private final Timer parse;
+    private final Map<ProductEventType, Stages> stages = new EnumMap<>(ProductEventType.class);
+
+    public ConsumerMetrics(String queue, Set<ProductEventType> eventTypes, MeterRegistry meterRegistry) {
+        this.parse = timer("events.consumer.parse", queue, null, meterRegistry);
+        for (ProductEventType eventType : eventTypes) {
+            stages.put(eventType, new Stages(
+                    timer("events.consumer.persist", queue, eventType, meterRegistry),
+                    timer("events.consumer.ack", queue, eventType, meterRegistry),
+                    timer("events.consumer.lag", queue, eventType, meterRegistry),
+                    Counter.builder("events.consumer.failures")
+                            .tag("queue", queue)
+                            .tag("eventType", eventType.name())
+                            .register(meterRegistry)));
+        }
+    }
+
+    public void parsed(long startNanos) {
+        parse.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void persisted(ProductEventType eventType, long startNanos, Instant publishedAt) {
+        Stages eventStages = stages.get(eventType);
+        eventStages.persist().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (publishedAt != null) {
+            eventStages.lag().record(System.currentTimeMillis() - publishedAt.toEpochMilli(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void acknowledged(ProductEventType eventType, long startNanos) {
+        stages.get(eventType).ack().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void failed(ProductEventType eventType) {
+        Stages eventStages = stages.get(eventType);
+        if (eventStages != null) {
+            eventStages.failures().increment();
+        }
+    }
+
+    private static Timer timer(String name, String queue, ProductEventType eventType, MeterRegistry meterRegistry) {
+        Timer.Builder timer = Timer.builder(name)
+                .tag("queue", queue)
+                .publishPercentileHistogram();
+        if (eventType != null) {
+            timer.tag("eventType", eventType.name());
+        }
+        return timer.register(meterRegistry);
+    }
+
+    private record Stages(Timer persist, Timer ack, Timer lag, Counter failures) {}
+}
@@ -0,0 +1,95 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.repositories.ArchiveSettings;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.dobrev.auditservice.products.repositories.ProductFailureEventsRepository;
+import com.dobrev.auditservice.products.repositories.RetentionSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Compacts every hour of events into its archive once the hour has ended at least the archive delay
+ * ago, so late writes are in, and before its events expire from the events table. Each run archives
+ * the hours still in the table that have no archive yet, so hours missed while no node ran are caught
+ * up as long as their events have not started to expire.
+ */
+@Component
+@Slf4j
+public class EventArchiver {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    private final ProductEventsRepository productEventsRepository;
+    private final ProductFailureEventsRepository productFailureEventsRepository;
+    private final RetentionSettings retentionSettings;
+    private final ArchiveSettings archiveSettings;
+    private final Counter archivedHours;
+    private final Counter failures;
+
+    public EventArchiver(ProductEventsRepository productEventsRepository,
+                         ProductFailureEventsRepository productFailureEventsRepository,
+                         RetentionSettings retentionSettings,
+                         ArchiveSettings archiveSettings,
+                         MeterRegistry meterRegistry) {
+        if (archiveSettings.enabled()) {
+            for (ProductEventType productEventType : ProductEventType.values()) {
+                if (retentionSettings.hotSeconds(productEventType) <= HOUR_MILLIS / 1000
+                        + archiveSettings.delaySeconds()) {
+                    throw new IllegalArgumentException("Hot retention of " + productEventType
+                            + " must exceed an hour plus the archive delay to archive every hour");
+                }
+            }
+        }
+        this.productEventsRepository = productEventsRepository;
+        this.productFailureEventsRepository = productFailureEventsRepository;
+        this.retentionSettings = retentionSettings;
+        this.archiveSettings = archiveSettings;
+        this.archivedHours = Counter.builder("events.archive.hours")
+                .register(meterRegistry);
+        this.failures = Counter.builder("events.archive.failures")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${aws.events.archive.interval-ms}")
+    public void archive() {
+        if (!archiveSettings.enabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ProductEventType productEventType : ProductEventType.values()) {
+            archive(productEventType, now);
+        }
+    }
+
+    void archive(ProductEventType productEventType, long now) {
+        long firstHour = retentionSettings.hotBoundary(productEventType, now);
+        long settled = now - archiveSettings.delaySeconds() * 1000;
+        for (long hour = firstHour; hour + HOUR_MILLIS <= settled; hour += HOUR_MILLIS) {
+            try {
+                if (isArchived(productEventType, hour)) {
+                    continue;
+                }
+                int events = productEventType == ProductEventType.PRODUCT_FAILURE
+                        ? productFailureEventsRepository.archive(productEventType, hour).join()
+                        : productEventsRepository.archive(productEventType, hour).join();
+                archivedHours.increment();
+                log.info("Archived {} {} events of the hour starting at {}", events, productEventType, hour);
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                log.warn("Failed to archive {} events of the hour starting at {}", productEventType, hour, e);
+                return;
+            }
+        }
+    }
+
+    private boolean isArchived(ProductEventType productEventType, long hour) throws IOException {
+        return productEventType == ProductEventType.PRODUCT_FAILURE
+                ? productFailureEventsRepository.isArchived(productEventType, hour)
+                : productEventsRepository.isArchived(productEventType, hour);
+    }
+}
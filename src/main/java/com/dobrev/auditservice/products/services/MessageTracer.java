@@ -0,0 +1,52 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.entities.Segment;
+import com.amazonaws.xray.entities.TraceID;
+import com.amazonaws.xray.strategy.sampling.SamplingRequest;
+
+import java.time.Instant;
+
+/**
+ * Runs a consumer's message handler inside an X-Ray segment that continues the trace ID carried by
+ * the message. With sampling on, the recorder's sampling strategy is asked first, matching the
+ * message as host {@code segmentName}, method {@code RECEIVE} and URL path {@code /sqs/<queue>}; a
+ * message that is not sampled runs the handler directly, with no segment in context, so
+ * {@code XRayInspector} skips its subsegments as well. With sampling off every message is traced.
+ */
+public class MessageTracer {
+    private static final String RECEIVE = "RECEIVE";
+    private static final String SERVICE_TYPE = "AWS::ECS::Container";
+
+    private final String segmentName;
+    private final boolean sampling;
+    private final SamplingRequest samplingRequest;
+
+    public MessageTracer(String segmentName, String queueName, boolean sampling) {
+        this.segmentName = segmentName;
+        this.sampling = sampling;
+        this.samplingRequest = new SamplingRequest(segmentName, segmentName, "/sqs/" + queueName, RECEIVE,
+                SERVICE_TYPE);
+    }
+
+    public void run(String traceId, Runnable handler) {
+        AWSXRayRecorder recorder = AWSXRay.getGlobalRecorder();
+        if (sampling && !recorder.getSamplingStrategy().shouldTrace(samplingRequest).isSampled()) {
+            handler.run();
+            return;
+        }
+
+        Segment segment = recorder.beginSegment(segmentName);
+        segment.setOrigin(SERVICE_TYPE);
+        segment.setStartTime(Instant.now().getEpochSecond());
+        segment.setTraceId(TraceID.fromString(traceId));
+        try {
+            handler.run();
+        } finally {
+            segment.setEndTime(Instant.now().getEpochSecond());
+            segment.end();
+            segment.close();
+        }
+    }
+}
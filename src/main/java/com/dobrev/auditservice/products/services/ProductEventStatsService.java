@@ -0,0 +1,43 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.dto.ProductEventStatsBucketDto;
+import com.dobrev.auditservice.products.dto.ProductEventStatsDto;
+import com.dobrev.auditservice.products.repositories.EventRollupsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@XRayEnabled
+@RequiredArgsConstructor
+public class ProductEventStatsService {
+    private final EventRollupsRepository eventRollupsRepository;
+
+    /**
+     * Event counts per bucket between {@code from} and {@code to}, for one event type or, without
+     * one, for every type, read in parallel.
+     */
+    public CompletableFuture<ProductEventStatsDto> getStats(ProductEventType eventType, int bucketSeconds,
+                                                            long from, long to) {
+        List<ProductEventType> eventTypes = eventType != null
+                ? List.of(eventType)
+                : Arrays.asList(ProductEventType.values());
+        List<CompletableFuture<List<ProductEventStatsBucketDto>>> buckets = eventTypes.stream()
+                .map(type -> eventRollupsRepository.findBuckets(type, bucketSeconds, from, to)
+                        .thenApply(rollups -> rollups.stream()
+                                .map(rollup -> new ProductEventStatsBucketDto(type.name(),
+                                        Long.parseLong(rollup.getSk()), rollup.getCount()))
+                                .toList()))
+                .toList();
+
+        return CompletableFuture.allOf(buckets.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new ProductEventStatsDto(bucketSeconds, buckets.stream()
+                        .flatMap(typeBuckets -> typeBuckets.join().stream())
+                        .toList()));
+    }
+}
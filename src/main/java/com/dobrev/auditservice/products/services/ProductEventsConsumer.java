@@ -1,120 +1,158 @@
 package com.dobrev.auditservice.products.services;
 
-import com.amazonaws.xray.AWSXRay;
-import com.amazonaws.xray.entities.Segment;
-import com.amazonaws.xray.entities.TraceID;
+import com.dobrev.auditservice.events.SnsEnvelopeDecoder;
+import com.dobrev.auditservice.events.SnsEnvelopeException;
 import com.dobrev.auditservice.events.dto.ProductEventDto;
 import com.dobrev.auditservice.events.dto.ProductEventType;
-import com.dobrev.auditservice.events.dto.SnsMessageDto;
+import com.dobrev.auditservice.events.dto.SnsEnvelope;
 import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dobrev.auditservice.sqs.DedupSettings;
+import com.dobrev.auditservice.sqs.MessageDedupWindow;
+import com.dobrev.auditservice.sqs.PoisonMessageException;
+import com.dobrev.auditservice.sqs.PoisonMessageStore;
+import com.dobrev.auditservice.sqs.RedeliverySettings;
+import com.dobrev.auditservice.sqs.SqsAckBatcher;
+import com.dobrev.auditservice.sqs.SqsFlowControl;
+import com.dobrev.auditservice.sqs.SqsQueuePoller;
+import com.dobrev.auditservice.sqs.SqsQueueSettings;
+import com.dobrev.auditservice.sqs.SqsRedelivery;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.ThreadContext;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
 import software.amazon.awssdk.services.sqs.model.Message;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
-import java.time.Instant;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
-public class ProductEventsConsumer {
-    private final ObjectMapper objectMapper;
-    private final SqsAsyncClient sqsAsyncClient;
+public class ProductEventsConsumer implements SmartLifecycle {
+    private final SnsEnvelopeDecoder snsEnvelopeDecoder;
+    private final SqsAckBatcher sqsAckBatcher;
     private final String productEventsQueueUrl;
-    private final ReceiveMessageRequest receiveMessageRequest;
     private final ProductEventsRepository productEventsRepository;
+    private final ProductEventsQueryCache productEventsQueryCache;
+    private final SqsQueuePoller sqsQueuePoller;
+    private final ConsumerMetrics consumerMetrics;
+    private final MessageTracer messageTracer;
+    private final MessageDedupWindow dedupWindow;
+    private final ProductEventsTail productEventsTail;
 
-    public ProductEventsConsumer(ObjectMapper objectMapper,
+    public ProductEventsConsumer(SnsEnvelopeDecoder snsEnvelopeDecoder,
                                  SqsAsyncClient sqsAsyncClient,
-                                 @Value("${aws.sqs.queue.product.events.url}") String productEventsQueueUrl,
-                                 ProductEventsRepository productEventsRepository) {
+                                 @Qualifier("productEventsQueueSettings") SqsQueueSettings productEventsQueueSettings,
+                                 ProductEventsRepository productEventsRepository,
+                                 ProductEventsQueryCache productEventsQueryCache,
+                                 SqsAckBatcher sqsAckBatcher,
+                                 SqsFlowControl eventsTableFlowControl,
+                                 MeterRegistry meterRegistry,
+                                 @Qualifier("productEventsTracer") MessageTracer messageTracer,
+                                 DedupSettings dedupSettings,
+                                 PoisonMessageStore poisonMessageStore,
+                                 RedeliverySettings redeliverySettings,
+                                 ProductEventsTail productEventsTail) {
 
-        this.objectMapper = objectMapper;
-        this.sqsAsyncClient = sqsAsyncClient;
-        this.productEventsQueueUrl = productEventsQueueUrl;
-
-        this.receiveMessageRequest = ReceiveMessageRequest.builder()
-                .maxNumberOfMessages(5)
-                .queueUrl(productEventsQueueUrl)
-                .build();
+        this.snsEnvelopeDecoder = snsEnvelopeDecoder;
+        this.sqsAckBatcher = sqsAckBatcher;
+        this.productEventsQueueUrl = productEventsQueueSettings.queueUrl();
         this.productEventsRepository = productEventsRepository;
+        this.productEventsQueryCache = productEventsQueryCache;
+        this.sqsQueuePoller = new SqsQueuePoller("product-events", sqsAsyncClient,
+                productEventsQueueSettings, this::receiveProductEventMessage, eventsTableFlowControl,
+                new SqsRedelivery(productEventsQueueSettings, sqsAsyncClient, sqsAckBatcher, poisonMessageStore,
+                        redeliverySettings, meterRegistry),
+                meterRegistry);
+        this.messageTracer = messageTracer;
+        this.productEventsTail = productEventsTail;
+        this.dedupWindow = new MessageDedupWindow(productEventsQueueSettings.queueName(), dedupSettings, meterRegistry);
+        this.consumerMetrics = new ConsumerMetrics(productEventsQueueSettings.queueName(),
+                EnumSet.of(ProductEventType.PRODUCT_CREATED, ProductEventType.PRODUCT_UPDATED,
+                        ProductEventType.PRODUCT_DELETED), meterRegistry);
     }
 
-    @Scheduled(fixedDelay = 1000)
-    public void receiveProductEventsMessages() {
-        List<Message> messages;
-        while (!(messages = sqsAsyncClient.receiveMessage(receiveMessageRequest).join().messages()).isEmpty()) {
-            log.info("Reading {} messages", messages.size());
-            messages.parallelStream().forEach(message -> {
-                SnsMessageDto snsMessageDto;
-                try {
-                    snsMessageDto = objectMapper.readValue(message.body(), SnsMessageDto.class);
-                } catch (JsonProcessingException e){
-                    throw new RuntimeException(e);
-                }
+    @Override
+    public void start() {
+        sqsQueuePoller.start();
+    }
 
-                String requestId = snsMessageDto.messageAttributes().requestId().value();
-                String messageId = snsMessageDto.messageId();
-                String traceId = snsMessageDto.messageAttributes().traceId().value();
-
-                Segment segment = AWSXRay.beginSegment("product-events-consumer");
-                segment.setOrigin("AWS::ECS::Container");
-                segment.setStartTime(Instant.now().getEpochSecond());
-                segment.setTraceId(TraceID.fromString(traceId));
-                segment.run(() -> {
-                    try {
-                        ThreadContext.put("messageId", messageId);
-                        ThreadContext.put("requestId", requestId);
-                        ProductEventType eventType = ProductEventType
-                                .valueOf(snsMessageDto.messageAttributes().eventType().value());
-
-                        CompletableFuture<Void> productEventFuture;
-                        switch (eventType) {
-                            case PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED -> {
-                                ProductEventDto productEventDto =
-                                        objectMapper.readValue(snsMessageDto.message(), ProductEventDto.class);
-
-                                productEventFuture = productEventsRepository.create(productEventDto, eventType,
-                                        messageId, requestId, traceId);
-
-                                log.info("Product event: {} - Id: {}", eventType, productEventDto.id());
-                            }
-                            default -> {
-                                log.error("Invalid product event: {}", eventType);
-                                throw new Exception("Invalid product event");
-                            }
-                        }
-
-                        CompletableFuture<DeleteMessageResponse> deleteMessageCompletableFuture =
-                                sqsAsyncClient.deleteMessage(DeleteMessageRequest.builder()
-                                        .queueUrl(productEventsQueueUrl)
-                                        .receiptHandle(message.receiptHandle())
-                                        .build());
-
-                        CompletableFuture.allOf(productEventFuture, deleteMessageCompletableFuture).join();
-
-                        log.info("Message deleted...");
-                    } catch (Exception e) {
-                        log.error("Failed to parse product event message");
-                        throw new RuntimeException(e);
-                    } finally {
-                        ThreadContext.clearAll();
-                        segment.setEndTime(Instant.now().getEpochSecond());
-                        segment.end();
-                        segment.close();
-                    }
-                }, AWSXRay.getGlobalRecorder());
-            });
+    @Override
+    public void stop() {
+        sqsQueuePoller.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return sqsQueuePoller.isRunning();
+    }
+
+    void receiveProductEventMessage(Message message) {
+        SnsEnvelope<ProductEventDto> snsEnvelope;
+        long parseStart = System.nanoTime();
+        try {
+            snsEnvelope = snsEnvelopeDecoder.decode(message.body(), ProductEventDto.class);
+            consumerMetrics.parsed(parseStart);
+        } catch (SnsEnvelopeException e) {
+            throw new PoisonMessageException("Malformed product event message: " + e.getMessage(), e);
+        }
+
+        String requestId = snsEnvelope.requestId();
+        String messageId = snsEnvelope.messageId();
+        String traceId = snsEnvelope.traceId();
+
+        if (dedupWindow.seen(messageId)) {
+            log.debug("Acknowledging redelivered message {}", messageId);
+            sqsAckBatcher.acknowledge(productEventsQueueUrl, message.receiptHandle()).join();
+            return;
         }
-        AWSXRay.endSegment();
+
+        messageTracer.run(traceId, () -> {
+            try {
+                ThreadContext.put("messageId", messageId);
+                ThreadContext.put("requestId", requestId);
+                ProductEventType eventType = snsEnvelope.eventType();
+
+                CompletableFuture<Void> productEventFuture;
+                switch (eventType) {
+                    case PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED -> {
+                        ProductEventDto productEventDto = snsEnvelope.payload();
+
+                        long persistStart = System.nanoTime();
+                        productEventFuture = productEventsRepository.create(productEventDto, eventType,
+                                        messageId, snsEnvelope.timestamp(), requestId, traceId)
+                                .thenAccept(productEvent -> {
+                                    consumerMetrics.persisted(eventType, persistStart, snsEnvelope.timestamp());
+                                    dedupWindow.remember(messageId);
+                                    productEventsTail.publish(eventType, productEvent);
+                                    productEventsQueryCache.invalidate(eventType.name(), productEvent.getSk());
+                                });
+
+                        log.info("Product event: {} - Id: {}", eventType, productEventDto.id());
+                    }
+                    default -> {
+                        throw new PoisonMessageException("Invalid product event: " + eventType, null);
+                    }
+                }
+
+                productEventFuture
+                        .thenCompose(created -> {
+                            long ackStart = System.nanoTime();
+                            return sqsAckBatcher.acknowledge(productEventsQueueUrl, message.receiptHandle())
+                                    .thenRun(() -> consumerMetrics.acknowledged(eventType, ackStart));
+                        })
+                        .join();
+
+                log.info("Message deleted...");
+            } catch (Exception e) {
+                consumerMetrics.failed(snsEnvelope.eventType());
+                log.error("Failed to handle {} product event message {}", snsEnvelope.eventType(), messageId, e);
+                throw new RuntimeException(e);
+            } finally {
+                ThreadContext.clearAll();
+            }
+        });
     }
-}
\ No newline at end of file
+}
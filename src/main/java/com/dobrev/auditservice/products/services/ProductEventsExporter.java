@@ -0,0 +1,62 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductEventApiDto;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.repositories.EventPage;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes every event of a type, optionally limited to a time range, as newline-delimited JSON.
+ * Pages are read one at a time and the next page is only requested after the previous one has
+ * been written and flushed, so a slow client holds back the DynamoDB reads instead of letting
+ * pages pile up in memory. Events that have expired from the table are read from their archives.
+ */
+@Service
+@Slf4j
+public class ProductEventsExporter {
+    private final ProductEventsRepository productEventsRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter productEventWriter;
+    private final int pageSize;
+
+    public ProductEventsExporter(ProductEventsRepository productEventsRepository,
+                                 ObjectMapper objectMapper,
+                                 @Value("${aws.events.export.page-size}") int pageSize) {
+        this.productEventsRepository = productEventsRepository;
+        this.objectMapper = objectMapper;
+        this.productEventWriter = objectMapper.writerFor(ProductEventApiDto.class);
+        this.pageSize = pageSize;
+    }
+
+    public void export(String eventType, String from, String to, OutputStream outputStream) throws IOException {
+        ProductEventsQuery query = new ProductEventsQuery(eventType, null, from, to, pageSize);
+        long exported = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            String cursor = null;
+            do {
+                EventPage<ProductEvent> page = productEventsRepository.findPageAcrossTiers(query.eventType(),
+                        cursor, query.from(), query.to(), query.limit()).join();
+                for (ProductEvent productEvent : page.items()) {
+                    productEventWriter.writeValue(generator, new ProductEventApiDto(productEvent));
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                exported += page.items().size();
+                cursor = page.cursor();
+            } while (cursor != null);
+        }
+        log.info("Exported {} {} events", exported, eventType);
+    }
+}
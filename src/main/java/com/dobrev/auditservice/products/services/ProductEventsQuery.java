@@ -0,0 +1,48 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductEventField;
+import com.dobrev.auditservice.products.repositories.EventIdGenerator;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Normalized form of an events query, used as the cache key. A range is only applied when both
+ * bounds are given, so a half-open range is the same query as no range at all.
+ */
+public record ProductEventsQuery(
+        String eventType,
+        String cursor,
+        String from,
+        String to,
+        int limit,
+        Set<ProductEventField> fields
+) {
+    public ProductEventsQuery {
+        if (from == null || to == null) {
+            from = null;
+            to = null;
+        }
+        fields = (fields == null || fields.isEmpty())
+                ? EnumSet.allOf(ProductEventField.class)
+                : EnumSet.copyOf(fields);
+    }
+
+    public ProductEventsQuery(String eventType, String cursor, String from, String to, int limit) {
+        this(eventType, cursor, from, to, limit, null);
+    }
+
+    public boolean ranged() {
+        return from != null;
+    }
+
+    /**
+     * Whether an event with the given sort key could appear in this query's result.
+     */
+    public boolean covers(String eventType, String sortKey) {
+        if (!this.eventType.equals(eventType)) {
+            return false;
+        }
+        return !ranged() || (from.compareTo(sortKey) <= 0 && sortKey.compareTo(EventIdGenerator.rangeEnd(to)) <= 0);
+    }
+}
@@ -0,0 +1,168 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductEventApiPageDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, least-recently-used cache of query results with a short time to live. Pending loads are
+ * cached too, so concurrent identical queries share one DynamoDB read. When an event is written,
+ * every cached query whose result it could belong to is dropped, including loads still in flight.
+ * <p>
+ * Queries are kept in one segment per event type, each with its own lock and recency order, so
+ * dropping the queries of a written event only scans and locks that type's segment, and queries of
+ * other types are served meanwhile. Once the cache holds more than {@code maxEntries} queries, the
+ * least recently used query of the segment just added to is evicted, or of another segment if that
+ * one holds only the new query.
+ * <p>
+ * Meters follow Micrometer's cache conventions: {@code cache.gets}, {@code cache.evictions} and
+ * {@code cache.size}, tagged with {@code cache=product-events}.
+ */
+@Component
+public class ProductEventsQueryCache {
+    private static final String CACHE_NAME = "product-events";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ProductEventsQueryCache(@Value("${aws.events.cache.max-entries}") int maxEntries,
+                                   @Value("${aws.events.cache.ttl-ms}") long ttlMillis,
+                                   MeterRegistry meterRegistry) {
+        if (maxEntries < 1 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Query cache size must be positive and TTL non-negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.hits = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, ProductEventsQueryCache::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<ProductEventApiPageDto> get(ProductEventsQuery query,
+                                                        Supplier<CompletableFuture<ProductEventApiPageDto>> loader) {
+        long now = System.nanoTime();
+        Segment segment = segments.computeIfAbsent(query.eventType(), eventType -> new Segment());
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.entries.get(query);
+            if (entry != null && now - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+                return entry.value();
+            }
+            Entry expired = entry;
+            entry = new Entry(new CompletableFuture<>(), now);
+            segment.entries.put(query, entry);
+            if (expired == null) {
+                size.incrementAndGet();
+            }
+        }
+        misses.increment();
+        evictOverflow(segment);
+
+        Entry loading = entry;
+        CompletableFuture<ProductEventApiPageDto> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                remove(query, loading);
+                loading.value().completeExceptionally(throwable);
+            } else {
+                loading.value().complete(value);
+            }
+        });
+        return loading.value();
+    }
+
+    public void invalidate(String eventType, String sortKey) {
+        Segment segment = segments.get(eventType);
+        if (segment == null) {
+            return;
+        }
+        synchronized (segment) {
+            Iterator<ProductEventsQuery> queries = segment.entries.keySet().iterator();
+            while (queries.hasNext()) {
+                if (queries.next().covers(eventType, sortKey)) {
+                    queries.remove();
+                    size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void evictOverflow(Segment added) {
+        while (size.get() > maxEntries) {
+            if (!evictEldest(added, 1) && segments.values().stream()
+                    .noneMatch(segment -> segment != added && evictEldest(segment, 0))) {
+                return;
+            }
+        }
+    }
+
+    private boolean evictEldest(Segment segment, int keep) {
+        synchronized (segment) {
+            if (segment.entries.size() <= keep) {
+                return false;
+            }
+            Iterator<ProductEventsQuery> eldest = segment.entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        size.decrementAndGet();
+        evictions.increment();
+        return true;
+    }
+
+    private void remove(ProductEventsQuery query, Entry entry) {
+        Segment segment = segments.get(query.eventType());
+        if (segment == null) {
+            return;
+        }
+        synchronized (segment) {
+            if (segment.entries.remove(query, entry)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final Map<ProductEventsQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private record Entry(CompletableFuture<ProductEventApiPageDto> value, long loadedAt) {}
+}
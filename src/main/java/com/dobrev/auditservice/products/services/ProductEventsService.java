@@ -3,39 +3,39 @@ package com.dobrev.auditservice.products.services;
 import com.amazonaws.xray.spring.aop.XRayEnabled;
 import com.dobrev.auditservice.products.dto.ProductEventApiDto;
 import com.dobrev.auditservice.products.dto.ProductEventApiPageDto;
-import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.dto.ProductEventField;
 import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.core.async.SdkPublisher;
-import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @XRayEnabled
 @RequiredArgsConstructor
 public class ProductEventsService {
     private final ProductEventsRepository productEventsRepository;
+    private final ProductEventsQueryCache productEventsQueryCache;
 
-    public ProductEventApiPageDto getAll(String eventType, String exclusiveStartTimeStamp,
-                                         String from, String to, int limit){
-        List<ProductEventApiDto> productEventApiDtoList = new ArrayList<>();
+    public CompletableFuture<ProductEventApiPageDto> getAll(String eventType, String exclusiveStartTimeStamp,
+                                                            String from, String to, int limit,
+                                                            Set<ProductEventField> fields){
+        ProductEventsQuery query = new ProductEventsQuery(eventType, exclusiveStartTimeStamp, from, to, limit, fields);
 
-        SdkPublisher<Page<ProductEvent>> productEventsPublisher = (from != null && to != null) ?
-                productEventsRepository.findByTypeAndRange(eventType, exclusiveStartTimeStamp, from, to, limit)
-                : productEventsRepository.findByType(eventType, exclusiveStartTimeStamp, limit);
-
-        AtomicReference<String> lastEvaluatedTimeStamp = new AtomicReference<>();
-        productEventsPublisher.subscribe(productEventPage -> {
-            productEventApiDtoList.addAll(productEventPage.items().stream().map(ProductEventApiDto::new).toList());
-            if (productEventPage.lastEvaluatedKey() != null){
-                lastEvaluatedTimeStamp.set(productEventPage.lastEvaluatedKey().get("sk").s());
-            }
-        }).join();
+        return productEventsQueryCache.get(query, () -> find(query));
+    }
 
-        return new ProductEventApiPageDto(productEventApiDtoList, lastEvaluatedTimeStamp.get(), productEventApiDtoList.size());
+    private CompletableFuture<ProductEventApiPageDto> find(ProductEventsQuery query) {
+        return productEventsRepository.findPage(query.eventType(), query.cursor(), query.from(), query.to(),
+                        query.limit(), ProductEventField.attributesToProject(query.fields()))
+                .thenApply(productEventPage -> {
+                    List<ProductEventApiDto> productEventApiDtoList = productEventPage.items().stream()
+                            .map(ProductEventApiDto::new)
+                            .toList();
+                    return new ProductEventApiPageDto(productEventApiDtoList, productEventPage.cursor(),
+                            productEventApiDtoList.size());
+                });
     }
-}
\ No newline at end of file
+}
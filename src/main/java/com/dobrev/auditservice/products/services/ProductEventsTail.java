@@ -0,0 +1,263 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.dto.ProductTimelineEntryDto;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.repositories.EventPage;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.dobrev.auditservice.products.repositories.ProductFailureEventsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pushes product and failure events to Server-Sent Events subscribers as the consumers persist them.
+ * Publishing only offers the event to the bounded buffer of each subscriber of its type, so ingestion
+ * never waits for a subscriber; a subscriber whose buffer is full is dropped, and its stream ends once
+ * the events already buffered are sent. Each subscriber has a virtual thread that writes its stream.
+ * <p>
+ * Event IDs are the events' sort keys. A subscriber that passes the last ID it saw is first sent the
+ * events of its types written since, read from the events table, then the live events after them.
+ * It subscribes before that read, so nothing written in between is missed. At most
+ * {@code maxReplay} events are replayed per connection; the stream then ends and the client resumes
+ * from the last one.
+ */
+@Component
+@Slf4j
+public class ProductEventsTail {
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    private static final int MILLIS_DIGITS = 13;
+
+    private final ProductEventsRepository productEventsRepository;
+    private final ProductFailureEventsRepository productFailureEventsRepository;
+    private final int bufferCapacity;
+    private final long timeoutMillis;
+    private final int maxReplay;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+
+    public ProductEventsTail(ProductEventsRepository productEventsRepository,
+                             ProductFailureEventsRepository productFailureEventsRepository,
+                             @Value("${aws.events.tail.buffer-capacity}") int bufferCapacity,
+                             @Value("${aws.events.tail.timeout-ms}") long timeoutMillis,
+                             @Value("${aws.events.tail.max-replay}") int maxReplay,
+                             MeterRegistry meterRegistry) {
+        if (bufferCapacity < 1 || maxReplay < 1) {
+            throw new IllegalArgumentException("Tail buffer capacity and replay limit must be positive");
+        }
+        this.productEventsRepository = productEventsRepository;
+        this.productFailureEventsRepository = productFailureEventsRepository;
+        this.bufferCapacity = bufferCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.maxReplay = maxReplay;
+        this.dropped = Counter.builder("events.tail.dropped")
+                .register(meterRegistry);
+        Gauge.builder("events.tail.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the given event types, resuming after {@code lastEventId} when it is set.
+     *
+     * @throws IllegalArgumentException if {@code lastEventId} is not an event ID
+     */
+    public SseEmitter subscribe(Set<ProductEventType> eventTypes, String lastEventId) {
+        if (lastEventId != null && !isEventId(lastEventId)) {
+            throw new IllegalArgumentException("Malformed Last-Event-ID: " + lastEventId);
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribe(eventTypes, lastEventId, emitter);
+        return emitter;
+    }
+
+    void subscribe(Set<ProductEventType> eventTypes, String lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(eventTypes, emitter, new ArrayBlockingQueue<>(bufferCapacity));
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(throwable -> close(subscriber));
+        subscribers.add(subscriber);
+        Thread.ofVirtual()
+                .name("events-tail")
+                .start(() -> stream(subscriber, lastEventId));
+    }
+
+    public void publish(ProductEventType eventType, ProductEvent productEvent) {
+        publish(eventType, productEvent.getSk(), () -> ProductTimelineEntryDto.of(productEvent));
+    }
+
+    public void publish(ProductEventType eventType, ProductFailureEvent productFailureEvent) {
+        publish(eventType, productFailureEvent.getSk(), () -> ProductTimelineEntryDto.of(productFailureEvent));
+    }
+
+    private void publish(ProductEventType eventType, String id, Supplier<ProductTimelineEntryDto> entry) {
+        TailEvent event = null;
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.eventTypes().contains(eventType)) {
+                continue;
+            }
+            if (event == null) {
+                event = new TailEvent(id, eventType, entry.get());
+            }
+            if (!subscriber.buffer().offer(event)) {
+                dropped.increment();
+                log.warn("Dropping live tail subscriber of {} with {} events buffered", subscriber.eventTypes(),
+                        bufferCapacity);
+                close(subscriber);
+            }
+        }
+    }
+
+    private void stream(Subscriber subscriber, String lastEventId) {
+        try {
+            // Live events that were also read from the table are sent once.
+            Set<String> replayed = new HashSet<>();
+            if (lastEventId != null) {
+                List<TailEvent> missed = replay(subscriber.eventTypes(), lastEventId);
+                for (int i = 0; i < missed.size() && i < maxReplay; i++) {
+                    send(subscriber, missed.get(i));
+                    replayed.add(missed.get(i).id());
+                }
+                if (missed.size() > maxReplay) {
+                    subscriber.emitter().complete();
+                    return;
+                }
+            }
+
+            while (subscriber.open() || !subscriber.buffer().isEmpty()) {
+                TailEvent event = subscriber.buffer().poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    if (subscriber.open()) {
+                        subscriber.emitter().send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } else if (!replayed.remove(event.id())) {
+                    send(subscriber, event);
+                }
+            }
+            subscriber.emitter().complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Live tail subscriber disconnected: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Live tail stream failed", e);
+            subscriber.emitter().completeWithError(e);
+        } finally {
+            close(subscriber);
+        }
+    }
+
+    private List<TailEvent> replay(Set<ProductEventType> eventTypes, String lastEventId) {
+        String from = lastEventId.substring(0, MILLIS_DIGITS);
+        String to = String.valueOf(System.currentTimeMillis());
+        List<TailEvent> missed = new ArrayList<>();
+        for (ProductEventType eventType : eventTypes) {
+            if (eventType == ProductEventType.PRODUCT_FAILURE) {
+                read(cursor -> productFailureEventsRepository.findPage(eventType.name(), cursor, from, to, maxReplay)
+                                .join(), lastEventId, missed,
+                        productFailureEvent -> new TailEvent(productFailureEvent.getSk(), eventType,
+                                ProductTimelineEntryDto.of(productFailureEvent)));
+            } else {
+                read(cursor -> productEventsRepository.findPage(eventType.name(), cursor, from, to, maxReplay, null)
+                                .join(), lastEventId, missed,
+                        productEvent -> new TailEvent(productEvent.getSk(), eventType,
+                                ProductTimelineEntryDto.of(productEvent)));
+            }
+        }
+        missed.sort(Comparator.comparing(TailEvent::id));
+        return missed;
+    }
+
+    private <T> void read(Function<String, EventPage<T>> pages, String lastEventId,
+                          List<TailEvent> missed, Function<T, TailEvent> toEvent) {
+        int read = 0;
+        String cursor = null;
+        do {
+            EventPage<T> page = pages.apply(cursor);
+            for (T item : page.items()) {
+                TailEvent event = toEvent.apply(item);
+                if (event.id().compareTo(lastEventId) > 0) {
+                    missed.add(event);
+                    read++;
+                }
+            }
+            cursor = page.cursor();
+        } while (cursor != null && read <= maxReplay);
+    }
+
+    private static void send(Subscriber subscriber, TailEvent event) throws IOException {
+        subscriber.emitter().send(SseEmitter.event()
+                .id(event.id())
+                .name(event.eventType().name())
+                .data(event.entry()));
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.close();
+        subscribers.remove(subscriber);
+    }
+
+    private static boolean isEventId(String id) {
+        if (id.length() < MILLIS_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < MILLIS_DIGITS; i++) {
+            if (!Character.isDigit(id.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record TailEvent(String id, ProductEventType eventType, ProductTimelineEntryDto entry) {}
+
+    private static final class Subscriber {
+        private final Set<ProductEventType> eventTypes;
+        private final SseEmitter emitter;
+        private final BlockingQueue<TailEvent> buffer;
+        private volatile boolean open = true;
+
+        private Subscriber(Set<ProductEventType> eventTypes, SseEmitter emitter, BlockingQueue<TailEvent> buffer) {
+            this.eventTypes = eventTypes;
+            this.emitter = emitter;
+            this.buffer = buffer;
+        }
+
+        Set<ProductEventType> eventTypes() {
+            return eventTypes;
+        }
+
+        SseEmitter emitter() {
+            return emitter;
+        }
+
+        BlockingQueue<TailEvent> buffer() {
+            return buffer;
+        }
+
+        boolean open() {
+            return open;
+        }
+
+        void close() {
+            open = false;
+        }
+    }
+}
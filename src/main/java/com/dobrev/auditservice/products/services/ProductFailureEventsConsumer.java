@@ -1,116 +1,150 @@
 package com.dobrev.auditservice.products.services;
 
-import com.amazonaws.xray.AWSXRay;
-import com.amazonaws.xray.entities.Segment;
-import com.amazonaws.xray.entities.TraceID;
+import com.dobrev.auditservice.events.SnsEnvelopeDecoder;
+import com.dobrev.auditservice.events.SnsEnvelopeException;
 import com.dobrev.auditservice.events.dto.ProductEventType;
 import com.dobrev.auditservice.events.dto.ProductFailureEventDto;
-import com.dobrev.auditservice.events.dto.SnsMessageDto;
+import com.dobrev.auditservice.events.dto.SnsEnvelope;
 import com.dobrev.auditservice.products.repositories.ProductFailureEventsRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dobrev.auditservice.sqs.DedupSettings;
+import com.dobrev.auditservice.sqs.MessageDedupWindow;
+import com.dobrev.auditservice.sqs.PoisonMessageException;
+import com.dobrev.auditservice.sqs.PoisonMessageStore;
+import com.dobrev.auditservice.sqs.RedeliverySettings;
+import com.dobrev.auditservice.sqs.SqsAckBatcher;
+import com.dobrev.auditservice.sqs.SqsFlowControl;
+import com.dobrev.auditservice.sqs.SqsQueuePoller;
+import com.dobrev.auditservice.sqs.SqsQueueSettings;
+import com.dobrev.auditservice.sqs.SqsRedelivery;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.ThreadContext;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
 import software.amazon.awssdk.services.sqs.model.Message;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
-import java.time.Instant;
-import java.util.List;
+import java.util.EnumSet;
 import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
-public class ProductFailureEventsConsumer {
-    private final ObjectMapper objectMapper;
-    private final SqsAsyncClient sqsAsyncClient;
+public class ProductFailureEventsConsumer implements SmartLifecycle {
+    private final SnsEnvelopeDecoder snsEnvelopeDecoder;
+    private final SqsAckBatcher sqsAckBatcher;
     private final String productFailureEventsQueueUrl;
-    private final ReceiveMessageRequest receiveMessageRequest;
     private final ProductFailureEventsRepository productFailureEventsRepository;
+    private final SqsQueuePoller sqsQueuePoller;
+    private final ConsumerMetrics consumerMetrics;
+    private final MessageTracer messageTracer;
+    private final MessageDedupWindow dedupWindow;
+    private final ProductEventsTail productEventsTail;
 
-    public ProductFailureEventsConsumer(ObjectMapper objectMapper,
+    public ProductFailureEventsConsumer(SnsEnvelopeDecoder snsEnvelopeDecoder,
                                         SqsAsyncClient sqsAsyncClient,
-                                        @Value("${aws.sqs.queue.product.failure.events.url}")
-                                        String productFailureEventsQueueUrl, ProductFailureEventsRepository productFailureEventsRepository) {
-        this.objectMapper = objectMapper;
-        this.sqsAsyncClient = sqsAsyncClient;
-        this.productFailureEventsQueueUrl = productFailureEventsQueueUrl;
-
-        this.receiveMessageRequest = ReceiveMessageRequest.builder()
-                .maxNumberOfMessages(10)
-                .queueUrl(productFailureEventsQueueUrl)
-                .build();
+                                        @Qualifier("productFailureEventsQueueSettings")
+                                        SqsQueueSettings productFailureEventsQueueSettings,
+                                        ProductFailureEventsRepository productFailureEventsRepository,
+                                        SqsAckBatcher sqsAckBatcher,
+                                        SqsFlowControl eventsTableFlowControl,
+                                        MeterRegistry meterRegistry,
+                                        @Qualifier("productFailureEventsTracer") MessageTracer messageTracer,
+                                        DedupSettings dedupSettings,
+                                        PoisonMessageStore poisonMessageStore,
+                                        RedeliverySettings redeliverySettings,
+                                        ProductEventsTail productEventsTail) {
+        this.snsEnvelopeDecoder = snsEnvelopeDecoder;
+        this.sqsAckBatcher = sqsAckBatcher;
+        this.productFailureEventsQueueUrl = productFailureEventsQueueSettings.queueUrl();
         this.productFailureEventsRepository = productFailureEventsRepository;
+        this.sqsQueuePoller = new SqsQueuePoller("product-failure-events", sqsAsyncClient,
+                productFailureEventsQueueSettings, this::receiveProductFailureEventMessage, eventsTableFlowControl,
+                new SqsRedelivery(productFailureEventsQueueSettings, sqsAsyncClient, sqsAckBatcher,
+                        poisonMessageStore, redeliverySettings, meterRegistry),
+                meterRegistry);
+        this.messageTracer = messageTracer;
+        this.productEventsTail = productEventsTail;
+        this.dedupWindow = new MessageDedupWindow(productFailureEventsQueueSettings.queueName(), dedupSettings, meterRegistry);
+        this.consumerMetrics = new ConsumerMetrics(productFailureEventsQueueSettings.queueName(),
+                EnumSet.of(ProductEventType.PRODUCT_FAILURE), meterRegistry);
     }
 
-    @Scheduled(fixedDelay = 5000)
-    public void receiveProductFailureEventsMessages() {
-        List<Message> messages;
-        while (!(messages = sqsAsyncClient.receiveMessage(receiveMessageRequest).join().messages()).isEmpty()) {
-            log.info("Reading {} messages", messages.size());
-            messages.parallelStream().forEach(message -> {
-                SnsMessageDto snsMessageDto;
-                try {
-                    snsMessageDto = objectMapper.readValue(message.body(), SnsMessageDto.class);
-                } catch (JsonProcessingException e) {
-                    throw new RuntimeException(e);
-                }
+    @Override
+    public void start() {
+        sqsQueuePoller.start();
+    }
+
+    @Override
+    public void stop() {
+        sqsQueuePoller.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return sqsQueuePoller.isRunning();
+    }
+
+    private void receiveProductFailureEventMessage(Message message) {
+        SnsEnvelope<ProductFailureEventDto> snsEnvelope;
+        long parseStart = System.nanoTime();
+        try {
+            snsEnvelope = snsEnvelopeDecoder.decode(message.body(), ProductFailureEventDto.class);
+            consumerMetrics.parsed(parseStart);
+        } catch (SnsEnvelopeException e) {
+            throw new PoisonMessageException("Malformed product failure event message: " + e.getMessage(), e);
+        }
 
-                String requestId = snsMessageDto.messageAttributes().requestId().value();
-                String messageId = snsMessageDto.messageId();
-                String traceId = snsMessageDto.messageAttributes().traceId().value();
-
-                Segment segment = AWSXRay.beginSegment("product-failure-events-consumer");
-                segment.setOrigin("AWS::ECS::Container");
-                segment.setStartTime(Instant.now().getEpochSecond());
-                segment.setTraceId(TraceID.fromString(traceId));
-                segment.run(() -> {
-                    try {
-                        ThreadContext.put("messageId", messageId);
-                        ThreadContext.put("requestId", requestId);
-                        ProductEventType eventType = ProductEventType
-                                .valueOf(snsMessageDto.messageAttributes().eventType().value());
-
-                        CompletableFuture<Void> productFailureEventFuture;
-                        if (ProductEventType.PRODUCT_FAILURE == eventType) {
-                            ProductFailureEventDto productFailureEventDto =
-                                    objectMapper.readValue(snsMessageDto.message(), ProductFailureEventDto.class);
-
-                            productFailureEventFuture = productFailureEventsRepository.create(productFailureEventDto,
-                                    eventType, messageId, requestId, traceId);
-
-                            log.info("Product failure event: {} - Id: {}", eventType, productFailureEventDto.id());
-                        } else {
-                            log.error("Invalid product failure event: {}", eventType);
-                            throw new Exception("Invalid product failure event");
-                        }
-
-                        CompletableFuture<DeleteMessageResponse> deleteMessageCompletableFuture = sqsAsyncClient
-                                .deleteMessage(DeleteMessageRequest.builder()
-                                        .queueUrl(productFailureEventsQueueUrl)
-                                        .receiptHandle(message.receiptHandle())
-                                        .build());
-
-                        CompletableFuture.allOf(productFailureEventFuture, deleteMessageCompletableFuture).join();
-
-                        log.info("Message deleted...");
-                    } catch (Exception e) {
-                        log.error("Failed to parse product failure event message");
-                        throw new RuntimeException(e);
-                    } finally {
-                        ThreadContext.clearAll();
-                        segment.setEndTime(Instant.now().getEpochSecond());
-                        segment.end();
-                        segment.close();
-                    }
-                }, AWSXRay.getGlobalRecorder());
-            });
+        String requestId = snsEnvelope.requestId();
+        String messageId = snsEnvelope.messageId();
+        String traceId = snsEnvelope.traceId();
+
+        if (dedupWindow.seen(messageId)) {
+            log.debug("Acknowledging redelivered message {}", messageId);
+            sqsAckBatcher.acknowledge(productFailureEventsQueueUrl, message.receiptHandle()).join();
+            return;
         }
-        AWSXRay.endSegment();
+
+        messageTracer.run(traceId, () -> {
+            try {
+                ThreadContext.put("messageId", messageId);
+                ThreadContext.put("requestId", requestId);
+                ProductEventType eventType = snsEnvelope.eventType();
+
+                CompletableFuture<Void> productFailureEventFuture;
+                if (ProductEventType.PRODUCT_FAILURE == eventType) {
+                    ProductFailureEventDto productFailureEventDto = snsEnvelope.payload();
+
+                    long persistStart = System.nanoTime();
+                    productFailureEventFuture = productFailureEventsRepository.create(productFailureEventDto,
+                                    eventType, messageId, snsEnvelope.timestamp(), requestId, traceId)
+                            .thenAccept(productFailureEvent -> {
+                                consumerMetrics.persisted(eventType, persistStart, snsEnvelope.timestamp());
+                                dedupWindow.remember(messageId);
+                                productEventsTail.publish(eventType, productFailureEvent);
+                            });
+
+                    log.info("Product failure event: {} - Id: {}", eventType, productFailureEventDto.id());
+                } else {
+                    throw new PoisonMessageException("Invalid product failure event: " + eventType, null);
+                }
+
+                productFailureEventFuture
+                        .thenCompose(created -> {
+                            long ackStart = System.nanoTime();
+                            return sqsAckBatcher.acknowledge(productFailureEventsQueueUrl, message.receiptHandle())
+                                    .thenRun(() -> consumerMetrics.acknowledged(eventType, ackStart));
+                        })
+                        .join();
+
+                log.info("Message deleted...");
+            } catch (Exception e) {
+                consumerMetrics.failed(snsEnvelope.eventType());
+                log.error("Failed to handle {} product failure event message {}", snsEnvelope.eventType(), messageId, e);
+                throw new RuntimeException(e);
+            } finally {
+                ThreadContext.clearAll();
+            }
+        });
     }
-}
\ No newline at end of file
+}
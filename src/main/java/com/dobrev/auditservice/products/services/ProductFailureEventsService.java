@@ -0,0 +1,41 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.dobrev.auditservice.products.dto.ProductFailureEventApiDto;
+import com.dobrev.auditservice.products.dto.ProductFailureEventApiPageDto;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.repositories.EventPage;
+import com.dobrev.auditservice.products.repositories.ProductFailureEventsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@XRayEnabled
+@RequiredArgsConstructor
+public class ProductFailureEventsService {
+    private final ProductFailureEventsRepository productFailureEventsRepository;
+
+    public CompletableFuture<ProductFailureEventApiPageDto> getAll(String eventType, String exclusiveStartTimeStamp,
+                                                                   String from, String to, int limit) {
+        return productFailureEventsRepository.findPage(eventType, exclusiveStartTimeStamp, from, to, limit)
+                .thenApply(ProductFailureEventsService::toPage);
+    }
+
+    public CompletableFuture<ProductFailureEventApiPageDto> getByProductId(String productId,
+                                                                           String exclusiveStartTimeStamp,
+                                                                           String from, String to, int limit) {
+        return productFailureEventsRepository.findPageByProductId(productId, exclusiveStartTimeStamp, from, to, limit)
+                .thenApply(ProductFailureEventsService::toPage);
+    }
+
+    private static ProductFailureEventApiPageDto toPage(EventPage<ProductFailureEvent> productFailureEventPage) {
+        List<ProductFailureEventApiDto> productFailureEventApiDtoList = productFailureEventPage.items().stream()
+                .map(ProductFailureEventApiDto::new)
+                .toList();
+        return new ProductFailureEventApiPageDto(productFailureEventApiDtoList, productFailureEventPage.cursor(),
+                productFailureEventApiDtoList.size());
+    }
+}
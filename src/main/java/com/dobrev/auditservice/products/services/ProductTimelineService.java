@@ -0,0 +1,76 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.spring.aop.XRayEnabled;
+import com.dobrev.auditservice.products.dto.ProductTimelineEntryDto;
+import com.dobrev.auditservice.products.dto.ProductTimelinePageDto;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.repositories.EventPage;
+import com.dobrev.auditservice.products.repositories.ProductEventsRepository;
+import com.dobrev.auditservice.products.repositories.ProductFailureEventsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds a product's timeline from both product-ID indexes. Each page queries the two indexes in
+ * parallel for up to {@code limit} items after the cursor and merges them by sort key, which both
+ * kinds of event share. The merge stops early once one side runs out of read items while more
+ * remain in its index, since the next entry could be one not read yet. The cursor is the sort key
+ * of the last entry returned.
+ */
+@Service
+@XRayEnabled
+@RequiredArgsConstructor
+public class ProductTimelineService {
+    private final ProductEventsRepository productEventsRepository;
+    private final ProductFailureEventsRepository productFailureEventsRepository;
+
+    public CompletableFuture<ProductTimelinePageDto> getTimeline(String productId, String exclusiveStartTimeStamp,
+                                                                 String from, String to, int limit) {
+        CompletableFuture<EventPage<ProductEvent>> productEvents = productEventsRepository
+                .findPageByProductId(productId, exclusiveStartTimeStamp, from, to, limit);
+        CompletableFuture<EventPage<ProductFailureEvent>> productFailureEvents = productFailureEventsRepository
+                .findPageByProductId(productId, exclusiveStartTimeStamp, from, to, limit);
+
+        return productEvents.thenCombine(productFailureEvents,
+                (productEventPage, productFailureEventPage) -> merge(productEventPage, productFailureEventPage, limit));
+    }
+
+    static ProductTimelinePageDto merge(EventPage<ProductEvent> productEventPage,
+                                        EventPage<ProductFailureEvent> productFailureEventPage, int limit) {
+        List<ProductEvent> productEvents = productEventPage.items();
+        List<ProductFailureEvent> productFailureEvents = productFailureEventPage.items();
+        List<ProductTimelineEntryDto> entries = new ArrayList<>(limit);
+        String lastSortKey = null;
+        int events = 0;
+        int failures = 0;
+
+        while (entries.size() < limit) {
+            boolean eventsLeft = events < productEvents.size();
+            boolean failuresLeft = failures < productFailureEvents.size();
+            if ((!eventsLeft && productEventPage.cursor() != null)
+                    || (!failuresLeft && productFailureEventPage.cursor() != null)
+                    || (!eventsLeft && !failuresLeft)) {
+                break;
+            }
+            if (!failuresLeft || (eventsLeft && productEvents.get(events).getSk()
+                    .compareTo(productFailureEvents.get(failures).getSk()) < 0)) {
+                ProductEvent productEvent = productEvents.get(events++);
+                entries.add(ProductTimelineEntryDto.of(productEvent));
+                lastSortKey = productEvent.getSk();
+            } else {
+                ProductFailureEvent productFailureEvent = productFailureEvents.get(failures++);
+                entries.add(ProductTimelineEntryDto.of(productFailureEvent));
+                lastSortKey = productFailureEvent.getSk();
+            }
+        }
+
+        boolean more = events < productEvents.size() || productEventPage.cursor() != null
+                || failures < productFailureEvents.size() || productFailureEventPage.cursor() != null;
+        return new ProductTimelinePageDto(entries, more ? lastSortKey : null, entries.size());
+    }
+}
@@ -0,0 +1,16 @@
+package com.dobrev.auditservice.sqs;
+
+import lombok.Builder;
+
+@Builder
+public record DedupSettings(
+        boolean enabled,
+        int capacity,
+        long windowMillis
+) {
+    public DedupSettings {
+        if (capacity < 1 || windowMillis < 1) {
+            throw new IllegalArgumentException("Dedup capacity and window must be positive");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recently processed message IDs of one queue, so that redeliveries can be acknowledged without
+ * being processed again. IDs are kept as 64-bit hashes in two open-addressing {@code long[]} tables,
+ * the current generation and the previous one. Inserts go to the current generation, lookups check
+ * both, and the generations rotate once the current one is {@code windowMillis} old or holds
+ * {@code capacity} IDs, dropping the previous one. An ID is therefore remembered for at least one
+ * window unless more than {@code capacity} IDs arrive within it, and memory stays at the two tables
+ * whatever the message rate. A hash collision can make an unseen ID look seen; against 200k
+ * remembered IDs the chance per lookup is about 10^-14.
+ * <p>
+ * Meters, tagged with {@code queue}: {@code sqs.dedup.entries}, {@code sqs.dedup.bytes} and
+ * {@code sqs.dedup.duplicates}.
+ */
+public class MessageDedupWindow {
+    private static final long EMPTY = 0;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long windowNanos;
+    private final int mask;
+    private final Counter duplicates;
+    private long[] current;
+    private long[] previous;
+    private int currentSize;
+    private int previousSize;
+    private long currentStartedAt;
+
+    public MessageDedupWindow(String queue, DedupSettings settings, MeterRegistry meterRegistry) {
+        this.enabled = settings.enabled();
+        this.capacity = settings.capacity();
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(settings.windowMillis());
+        int tableSize = enabled ? Integer.highestOneBit(Math.max(2, settings.capacity()) * 2 - 1) << 1 : 0;
+        this.mask = tableSize - 1;
+        this.current = new long[tableSize];
+        this.previous = new long[tableSize];
+        this.currentStartedAt = System.nanoTime();
+        Gauge.builder("sqs.dedup.entries", this, MessageDedupWindow::size)
+                .tag("queue", queue)
+                .register(meterRegistry);
+        Gauge.builder("sqs.dedup.bytes", this, MessageDedupWindow::bytes)
+                .tag("queue", queue)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("sqs.dedup.duplicates")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether {@code messageId} was remembered within the window; counts it as a duplicate if so.
+     */
+    public boolean seen(String messageId) {
+        if (!enabled) {
+            return false;
+        }
+        long hash = hash(messageId);
+        boolean seen;
+        synchronized (this) {
+            rotateIfDue(System.nanoTime());
+            seen = contains(current, hash) || contains(previous, hash);
+        }
+        if (seen) {
+            duplicates.increment();
+        }
+        return seen;
+    }
+
+    /**
+     * Remembers {@code messageId}, to be called once the message has been processed successfully.
+     */
+    public void remember(String messageId) {
+        if (!enabled) {
+            return;
+        }
+        long hash = hash(messageId);
+        synchronized (this) {
+            long now = System.nanoTime();
+            rotateIfDue(now);
+            if (currentSize >= capacity) {
+                rotate(now);
+            }
+            int slot = (int) hash & mask;
+            while (current[slot] != EMPTY) {
+                if (current[slot] == hash) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            current[slot] = hash;
+            currentSize++;
+        }
+    }
+
+    public synchronized int size() {
+        return currentSize + previousSize;
+    }
+
+    public long bytes() {
+        return 2L * Long.BYTES * current.length;
+    }
+
+    private boolean contains(long[] table, long hash) {
+        int slot = (int) hash & mask;
+        long value;
+        while ((value = table[slot]) != EMPTY) {
+            if (value == hash) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rotateIfDue(long now) {
+        long age = now - currentStartedAt;
+        if (age >= 2 * windowNanos) {
+            rotate(now);
+            rotate(now);
+        } else if (age >= windowNanos) {
+            rotate(now);
+        }
+    }
+
+    private void rotate(long now) {
+        long[] recycled = previous;
+        Arrays.fill(recycled, EMPTY);
+        previous = current;
+        previousSize = currentSize;
+        current = recycled;
+        currentSize = 0;
+        currentStartedAt = now;
+    }
+
+    /**
+     * FNV-1a over the characters followed by a 64-bit finalizer, so that message IDs differing in a
+     * few characters spread over the whole table. Never returns the empty marker.
+     */
+    static long hash(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash = (hash ^ messageId.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
@@ -0,0 +1,11 @@
+package com.dobrev.auditservice.sqs;
+
+/**
+ * Thrown by a {@link SqsMessageHandler} for a message that will fail however often it is retried,
+ * such as one that cannot be parsed.
+ */
+public class PoisonMessageException extends RuntimeException {
+    public PoisonMessageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.dobrev.auditservice.sqs;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps messages that were taken off their queue because they could not be processed. The message
+ * is deleted from the queue only once the returned future completes.
+ */
+public interface PoisonMessageStore {
+    CompletableFuture<Void> store(String queueName, Message message, String reason);
+}
@@ -0,0 +1,19 @@
+package com.dobrev.auditservice.sqs;
+
+import lombok.Builder;
+
+@Builder
+public record RedeliverySettings(
+        int baseVisibilitySeconds,
+        int maxVisibilitySeconds,
+        int poisonAfterReceives
+) {
+    public RedeliverySettings {
+        if (baseVisibilitySeconds < 0 || maxVisibilitySeconds < baseVisibilitySeconds || maxVisibilitySeconds > 43200) {
+            throw new IllegalArgumentException("Visibility backoff must be between 0 and 43200 seconds");
+        }
+        if (poisonAfterReceives < 1) {
+            throw new IllegalArgumentException("Poison receive count must be positive: " + poisonAfterReceives);
+        }
+    }
+}
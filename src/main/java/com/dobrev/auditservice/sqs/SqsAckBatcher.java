@@ -0,0 +1,222 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects receipt handles per queue and deletes them with DeleteMessageBatch once ten are pending
+ * or the flush interval has passed since the first one arrived, whichever comes first. Entries that
+ * fail without a sender fault are added back after a jittered exponential backoff, waited out on the
+ * flush scheduler, until {@code maxAttempts} is reached.
+ */
+@Component
+@Slf4j
+public class SqsAckBatcher {
+    private static final int MAX_BATCH_SIZE = 10;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final MeterRegistry meterRegistry;
+    private final long flushIntervalMillis;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, QueueAcks> queueAcks = new ConcurrentHashMap<>();
+
+    public SqsAckBatcher(SqsAsyncClient sqsAsyncClient,
+                         MeterRegistry meterRegistry,
+                         @Value("${aws.sqs.ack.flush-interval-ms}") long flushIntervalMillis,
+                         @Value("${aws.sqs.ack.max-attempts}") int maxAttempts,
+                         @Value("${aws.sqs.ack.base-backoff-ms}") long baseBackoffMillis,
+                         @Value("${aws.sqs.ack.max-backoff-ms}") long maxBackoffMillis) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.meterRegistry = meterRegistry;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("sqs-ack-flush").daemon().factory());
+    }
+
+    public CompletableFuture<Void> acknowledge(String queueUrl, String receiptHandle) {
+        PendingAck pendingAck = new PendingAck(receiptHandle, new CompletableFuture<>(), 1);
+        queueAcks.computeIfAbsent(queueUrl, QueueAcks::new).add(pendingAck);
+        return pendingAck.future();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<CompletableFuture<Void>> outstanding = new ArrayList<>();
+        queueAcks.values().forEach(acks -> outstanding.addAll(acks.flushPending()));
+        try {
+            CompletableFuture.allOf(outstanding.toArray(CompletableFuture[]::new))
+                    .get(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Not all pending acknowledgements were flushed before shutdown");
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private record PendingAck(String receiptHandle, CompletableFuture<Void> future, int attempt) {
+        PendingAck nextAttempt() {
+            return new PendingAck(receiptHandle, future, attempt + 1);
+        }
+    }
+
+    private class QueueAcks {
+        private final String queueUrl;
+        private final DistributionSummary flushSize;
+        private final Timer flushLatency;
+        private final Counter retriedEntries;
+        private final Counter failedEntries;
+        private List<PendingAck> pending = new ArrayList<>(MAX_BATCH_SIZE);
+        private ScheduledFuture<?> scheduledFlush;
+
+        QueueAcks(String queueUrl) {
+            this.queueUrl = queueUrl;
+            String queue = queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+            this.flushSize = DistributionSummary.builder("sqs.ack.flush.size")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            this.flushLatency = Timer.builder("sqs.ack.flush.latency")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            this.retriedEntries = Counter.builder("sqs.ack.entries.retried")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            this.failedEntries = Counter.builder("sqs.ack.entries.failed")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+        }
+
+        void add(PendingAck pendingAck) {
+            List<PendingAck> batch = null;
+            synchronized (this) {
+                pending.add(pendingAck);
+                if (pending.size() >= MAX_BATCH_SIZE) {
+                    batch = drain();
+                } else if (scheduledFlush == null) {
+                    scheduledFlush = scheduler.schedule(this::flushPending, flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (batch != null) {
+                send(batch);
+            }
+        }
+
+        List<CompletableFuture<Void>> flushPending() {
+            List<PendingAck> batch;
+            synchronized (this) {
+                scheduledFlush = null;
+                if (pending.isEmpty()) {
+                    return List.of();
+                }
+                batch = drain();
+            }
+            send(batch);
+            return batch.stream().map(PendingAck::future).toList();
+        }
+
+        private List<PendingAck> drain() {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            List<PendingAck> batch = pending;
+            pending = new ArrayList<>(MAX_BATCH_SIZE);
+            return batch;
+        }
+
+        private void send(List<PendingAck> batch) {
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .receiptHandle(batch.get(i).receiptHandle())
+                        .build());
+            }
+
+            flushSize.record(batch.size());
+            long start = System.nanoTime();
+            sqsAsyncClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
+                            .queueUrl(queueUrl)
+                            .entries(entries)
+                            .build())
+                    .whenComplete((response, throwable) -> {
+                        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        if (throwable != null) {
+                            log.error("Failed to delete {} messages from {}", batch.size(), queueUrl, throwable);
+                            batch.forEach(pendingAck -> retry(pendingAck, throwable));
+                        } else {
+                            complete(batch, response);
+                        }
+                    });
+        }
+
+        private void complete(List<PendingAck> batch, DeleteMessageBatchResponse response) {
+            for (DeleteMessageBatchResultEntry successful : response.successful()) {
+                batch.get(Integer.parseInt(successful.id())).future().complete(null);
+            }
+            for (BatchResultErrorEntry failed : response.failed()) {
+                PendingAck pendingAck = batch.get(Integer.parseInt(failed.id()));
+                SqsAckException exception = new SqsAckException(queueUrl, failed.code(), failed.message());
+                if (Boolean.TRUE.equals(failed.senderFault())) {
+                    fail(pendingAck, exception);
+                } else {
+                    retry(pendingAck, exception);
+                }
+            }
+        }
+
+        private void retry(PendingAck pendingAck, Throwable cause) {
+            if (pendingAck.attempt() >= maxAttempts) {
+                fail(pendingAck, cause);
+                return;
+            }
+            retriedEntries.increment();
+            try {
+                scheduler.schedule(() -> add(pendingAck.nextAttempt()), backoffMillis(pendingAck.attempt()),
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(pendingAck, cause);
+            }
+        }
+
+        private long backoffMillis(int attempt) {
+            long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+            return ThreadLocalRandom.current().nextLong(ceiling + 1);
+        }
+
+        private void fail(PendingAck pendingAck, Throwable cause) {
+            failedEntries.increment();
+            pendingAck.future().completeExceptionally(cause);
+        }
+    }
+}
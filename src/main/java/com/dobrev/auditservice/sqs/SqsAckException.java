@@ -0,0 +1,7 @@
+package com.dobrev.auditservice.sqs;
+
+public class SqsAckException extends RuntimeException {
+    public SqsAckException(String queueUrl, String code, String message) {
+        super("Failed to delete message from %s: %s - %s".formatted(queueUrl, code, message));
+    }
+}
@@ -0,0 +1,28 @@
+package com.dobrev.auditservice.sqs;
+
+/**
+ * Lets whatever a queue's messages are written to slow the {@link SqsQueuePoller} down.
+ */
+public interface SqsFlowControl {
+    SqsFlowControl NONE = new SqsFlowControl() {
+        @Override
+        public int concurrencyLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean paused() {
+            return false;
+        }
+    };
+
+    /**
+     * Messages that may be in progress at once. The poller never exceeds its configured concurrency.
+     */
+    int concurrencyLimit();
+
+    /**
+     * Whether to stop receiving and dispatching messages for now.
+     */
+    boolean paused();
+}
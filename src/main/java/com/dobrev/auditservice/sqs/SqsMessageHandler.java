@@ -0,0 +1,8 @@
+package com.dobrev.auditservice.sqs;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+
+@FunctionalInterface
+public interface SqsMessageHandler {
+    void handle(Message message) throws Exception;
+}
@@ -0,0 +1,28 @@
+package com.dobrev.auditservice.sqs;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+/**
+ * Told by the {@link SqsQueuePoller} how handling each message ended. A handler acknowledges the
+ * messages it processes itself; what happens to the ones it fails on is up to the outcomes.
+ */
+public interface SqsMessageOutcomes {
+    SqsMessageOutcomes LOG_FAILURES = new LogFailures();
+
+    void succeeded(Message message);
+
+    void failed(Message message, Exception exception);
+
+    @Slf4j
+    final class LogFailures implements SqsMessageOutcomes {
+        @Override
+        public void succeeded(Message message) {
+        }
+
+        @Override
+        public void failed(Message message, Exception exception) {
+            log.error("Failed to process message {}", message.messageId(), exception);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code receivers} long-poll receives outstanding against one queue and hands the messages
+ * through a bounded buffer to a dispatcher, which runs each message on its own virtual thread with
+ * at most {@code concurrency} messages in progress. A receive only starts once the buffer has room
+ * for a full batch, and that room is given back when the message has been handled, so at most
+ * {@code bufferCapacity} messages are buffered or being processed at any time. An
+ * {@link SqsFlowControl} can lower the concurrency further, or pause receiving and dispatching
+ * altogether while the downstream store is unavailable. Every message is settled on its own: how
+ * its handler ended is passed to the {@link SqsMessageOutcomes}, so one failing message never holds
+ * back the rest of its batch.
+ * <p>
+ * Meters, tagged with {@code queue}: {@code sqs.receive.latency}, {@code sqs.receive.batch.fill}
+ * (messages received over the batch size), {@code sqs.messages.buffered} and
+ * {@code sqs.messages.in-flight}.
+ */
+@Slf4j
+public class SqsQueuePoller {
+    private static final long RECEIVE_ERROR_BACKOFF_MILLIS = 1000;
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+    private static final long DISPATCH_POLL_MILLIS = 500;
+    private static final long FLOW_CONTROL_POLL_MILLIS = 10;
+
+    private final String name;
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueSettings settings;
+    private final SqsMessageHandler messageHandler;
+    private final SqsFlowControl flowControl;
+    private final SqsMessageOutcomes outcomes;
+    private final ReceiveMessageRequest receiveMessageRequest;
+    private final BlockingQueue<Message> buffer;
+    private final Semaphore capacity;
+    private final Semaphore concurrency;
+    private final Timer receiveLatency;
+    private final DistributionSummary batchFill;
+    private final List<Thread> receivers = new ArrayList<>();
+    private Thread dispatcher;
+    private ExecutorService handlerExecutor;
+    private volatile boolean running;
+
+    public SqsQueuePoller(String name, SqsAsyncClient sqsAsyncClient, SqsQueueSettings settings,
+                          SqsMessageHandler messageHandler) {
+        this(name, sqsAsyncClient, settings, messageHandler, SqsFlowControl.NONE, SqsMessageOutcomes.LOG_FAILURES,
+                Metrics.globalRegistry);
+    }
+
+    public SqsQueuePoller(String name, SqsAsyncClient sqsAsyncClient, SqsQueueSettings settings,
+                          SqsMessageHandler messageHandler, SqsFlowControl flowControl,
+                          SqsMessageOutcomes outcomes, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.settings = settings;
+        this.messageHandler = messageHandler;
+        this.flowControl = flowControl;
+        this.outcomes = outcomes;
+        this.receiveMessageRequest = ReceiveMessageRequest.builder()
+                .queueUrl(settings.queueUrl())
+                .messageSystemAttributeNames(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT)
+                .maxNumberOfMessages(settings.batchSize())
+                .waitTimeSeconds(settings.waitTimeSeconds())
+                .build();
+        this.buffer = new LinkedBlockingQueue<>(settings.bufferCapacity());
+        this.capacity = new Semaphore(settings.bufferCapacity());
+        this.concurrency = new Semaphore(settings.concurrency());
+        this.receiveLatency = Timer.builder("sqs.receive.latency")
+                .tag("queue", settings.queueName())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchFill = DistributionSummary.builder("sqs.receive.batch.fill")
+                .tag("queue", settings.queueName())
+                .register(meterRegistry);
+        Gauge.builder("sqs.messages.buffered", buffer, BlockingQueue::size)
+                .tag("queue", settings.queueName())
+                .register(meterRegistry);
+        Gauge.builder("sqs.messages.in-flight", this, SqsQueuePoller::inProgress)
+                .tag("queue", settings.queueName())
+                .register(meterRegistry);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        handlerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-handler-", 0).factory());
+        for (int i = 0; i < settings.receivers(); i++) {
+            receivers.add(Thread.ofPlatform().name(name + "-receiver-" + i).start(this::receiveLoop));
+        }
+        dispatcher = Thread.ofPlatform().name(name + "-dispatcher").start(this::dispatchLoop);
+        log.info("Started {} with {} receivers and concurrency {}", name, settings.receivers(), settings.concurrency());
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        receivers.forEach(Thread::interrupt);
+        joinAll(receivers);
+        joinAll(List.of(dispatcher));
+        handlerExecutor.close();
+        receivers.clear();
+        log.info("Stopped {}", name);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                while (flowControl.paused()) {
+                    Thread.sleep(FLOW_CONTROL_POLL_MILLIS);
+                }
+                capacity.acquire(settings.batchSize());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            List<Message> messages;
+            long receiveStart = System.nanoTime();
+            try {
+                messages = sqsAsyncClient.receiveMessage(receiveMessageRequest).get().messages();
+                receiveLatency.record(System.nanoTime() - receiveStart, TimeUnit.NANOSECONDS);
+                batchFill.record((double) messages.size() / settings.batchSize());
+            } catch (InterruptedException e) {
+                capacity.release(settings.batchSize());
+                return;
+            } catch (ExecutionException e) {
+                capacity.release(settings.batchSize());
+                log.error("Failed to receive messages from {}", settings.queueUrl(), e.getCause());
+                if (!pause()) {
+                    return;
+                }
+                continue;
+            }
+
+            capacity.release(settings.batchSize() - messages.size());
+            if (!messages.isEmpty()) {
+                log.info("Reading {} messages", messages.size());
+                buffer.addAll(messages);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running || !buffer.isEmpty()) {
+            Message message;
+            try {
+                message = buffer.poll(DISPATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    continue;
+                }
+                while (running && (flowControl.paused() || inProgress() >= flowControl.concurrencyLimit())) {
+                    Thread.sleep(FLOW_CONTROL_POLL_MILLIS);
+                }
+                concurrency.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            handlerExecutor.execute(() -> handle(message));
+        }
+    }
+
+    private void handle(Message message) {
+        try {
+            messageHandler.handle(message);
+            outcomes.succeeded(message);
+        } catch (Exception e) {
+            outcomes.failed(message, e);
+        } finally {
+            concurrency.release();
+            capacity.release();
+        }
+    }
+
+    private int inProgress() {
+        return settings.concurrency() - concurrency.availablePermits();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(RECEIVE_ERROR_BACKOFF_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void joinAll(List<Thread> threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dobrev.auditservice.sqs;
+
+import lombok.Builder;
+
+@Builder
+public record SqsQueueSettings(
+        String queueUrl,
+        int batchSize,
+        int waitTimeSeconds,
+        int receivers,
+        int bufferCapacity,
+        int concurrency
+) {
+    public SqsQueueSettings {
+        if (batchSize < 1 || batchSize > 10) {
+            throw new IllegalArgumentException("SQS batch size must be between 1 and 10: " + batchSize);
+        }
+        if (bufferCapacity < batchSize) {
+            throw new IllegalArgumentException("SQS buffer capacity must be at least the batch size: " + bufferCapacity);
+        }
+        if (receivers < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("SQS receivers and concurrency must be positive");
+        }
+    }
+
+    /**
+     * Last path segment of the queue URL, used to tag the queue's meters.
+     */
+    public String queueName() {
+        return queueUrl.substring(queueUrl.lastIndexOf('/') + 1);
+    }
+}
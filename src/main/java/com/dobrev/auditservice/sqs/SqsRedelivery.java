@@ -0,0 +1,112 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+/**
+ * Settles each message of one queue on its own. Failed messages are hidden for an exponential
+ * backoff of {@code baseVisibilitySeconds * 2^(receives - 1)}, capped at {@code maxVisibilitySeconds},
+ * via ChangeMessageVisibility instead of reappearing after the queue's full visibility timeout. A
+ * message whose handler threw {@link PoisonMessageException} is moved to the {@link PoisonMessageStore}
+ * and deleted once it has been received {@code poisonAfterReceives} times. Failures of other kinds
+ * keep backing off until the queue's redrive policy, if any, takes the message.
+ * <p>
+ * Counts every message in {@code sqs.messages.outcome}, tagged with {@code queue} and {@code outcome}
+ * ({@code succeeded}, {@code retried} or {@code poisoned}).
+ */
+@Slf4j
+public class SqsRedelivery implements SqsMessageOutcomes {
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsAckBatcher sqsAckBatcher;
+    private final PoisonMessageStore poisonMessageStore;
+    private final RedeliverySettings settings;
+    private final String queueUrl;
+    private final String queueName;
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter poisoned;
+
+    public SqsRedelivery(SqsQueueSettings queueSettings, SqsAsyncClient sqsAsyncClient, SqsAckBatcher sqsAckBatcher,
+                         PoisonMessageStore poisonMessageStore, RedeliverySettings settings,
+                         MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsAckBatcher = sqsAckBatcher;
+        this.poisonMessageStore = poisonMessageStore;
+        this.settings = settings;
+        this.queueUrl = queueSettings.queueUrl();
+        this.queueName = queueSettings.queueName();
+        this.succeeded = outcome("succeeded", meterRegistry);
+        this.retried = outcome("retried", meterRegistry);
+        this.poisoned = outcome("poisoned", meterRegistry);
+    }
+
+    @Override
+    public void succeeded(Message message) {
+        succeeded.increment();
+    }
+
+    @Override
+    public void failed(Message message, Exception exception) {
+        int receives = receiveCount(message);
+        PoisonMessageException poison = poisonCause(exception);
+        if (poison != null && receives >= settings.poisonAfterReceives()) {
+            poisoned.increment();
+            log.error("Moving message {} from {} to the poison store after {} receives: {}", message.messageId(),
+                    queueName, receives, poison.getMessage());
+            poisonMessageStore.store(queueName, message, poison.getMessage())
+                    .thenCompose(stored -> sqsAckBatcher.acknowledge(queueUrl, message.receiptHandle()))
+                    .whenComplete((deleted, throwable) -> {
+                        if (throwable != null) {
+                            log.error("Failed to move message {} to the poison store", message.messageId(), throwable);
+                        }
+                    });
+            return;
+        }
+
+        retried.increment();
+        int visibilitySeconds = visibilitySeconds(receives);
+        log.warn("Failed to process message {} from {} on receive {}, retrying in {} s", message.messageId(),
+                queueName, receives, visibilitySeconds, exception);
+        sqsAsyncClient.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                        .queueUrl(queueUrl)
+                        .receiptHandle(message.receiptHandle())
+                        .visibilityTimeout(visibilitySeconds)
+                        .build())
+                .whenComplete((changed, throwable) -> {
+                    if (throwable != null) {
+                        log.warn("Failed to change visibility of message {}", message.messageId(), throwable);
+                    }
+                });
+    }
+
+    int visibilitySeconds(int receives) {
+        long backoff = (long) settings.baseVisibilitySeconds() << Math.min(Math.max(receives - 1, 0), 20);
+        return (int) Math.min(settings.maxVisibilitySeconds(), backoff);
+    }
+
+    private Counter outcome(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("sqs.messages.outcome")
+                .tag("queue", queueName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static int receiveCount(Message message) {
+        String receives = message.attributes().get(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT);
+        return receives == null ? 1 : Integer.parseInt(receives);
+    }
+
+    private static PoisonMessageException poisonCause(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PoisonMessageException poison) {
+                return poison;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.dobrev.auditservice.config;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingDiscardPolicyTest {
+    private static final long BACKGROUND_THREAD_ID = -1;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void addRegistry() {
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void removeRegistry() {
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    @Test
+    void dropsAndCountsInfoAndBelowWhileTheQueueIsFull() {
+        CountingDiscardPolicy policy = new CountingDiscardPolicy();
+
+        assertThat(policy.getRoute(BACKGROUND_THREAD_ID, Level.INFO)).isEqualTo(EventRoute.DISCARD);
+        assertThat(policy.getRoute(BACKGROUND_THREAD_ID, Level.DEBUG)).isEqualTo(EventRoute.DISCARD);
+        assertThat(policy.getRoute(BACKGROUND_THREAD_ID, Level.WARN)).isEqualTo(EventRoute.ENQUEUE);
+        assertThat(policy.getRoute(BACKGROUND_THREAD_ID, Level.ERROR)).isEqualTo(EventRoute.ENQUEUE);
+
+        assertThat(discarded("INFO")).isEqualTo(1);
+        assertThat(discarded("DEBUG")).isEqualTo(1);
+        assertThat(meterRegistry.find("logging.events.discarded").tag("level", "WARN").counter()).isNull();
+    }
+
+    private double discarded(String level) {
+        return meterRegistry.get("logging.events.discarded").tag("level", level).counter().count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dobrev.auditservice.events;
+
+import com.dobrev.auditservice.events.dto.ProductEventDto;
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.events.dto.ProductFailureEventDto;
+import com.dobrev.auditservice.events.dto.SnsEnvelope;
+import com.dobrev.auditservice.events.dto.SnsMessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnsEnvelopeDecoderTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SnsEnvelopeDecoder decoder = new SnsEnvelopeDecoder(objectMapper);
+
+    @Test
+    void decodesTheSameFieldsAsTheTwoPassParse() throws Exception {
+        String body = envelope("PRODUCT_CREATED",
+                "{\"id\":\"p-1\",\"code\":\"COD\\\"1\",\"email\":\"matilda@dobrev.com\",\"price\":10.5}");
+
+        SnsEnvelope<ProductEventDto> envelope = decoder.decode(body, ProductEventDto.class);
+
+        SnsMessageDto snsMessageDto = objectMapper.readValue(body, SnsMessageDto.class);
+        assertThat(envelope.messageId()).isEqualTo(snsMessageDto.messageId());
+        assertThat(envelope.timestamp()).isEqualTo(Instant.parse(snsMessageDto.timestamp()));
+        assertThat(envelope.traceId()).isEqualTo(snsMessageDto.messageAttributes().traceId().value());
+        assertThat(envelope.requestId()).isEqualTo(snsMessageDto.messageAttributes().requestId().value());
+        assertThat(envelope.eventType()).isEqualTo(ProductEventType.PRODUCT_CREATED);
+        assertThat(envelope.payload())
+                .isEqualTo(objectMapper.readValue(snsMessageDto.message(), ProductEventDto.class));
+        assertThat(envelope.payload().code()).isEqualTo("COD\"1");
+    }
+
+    @Test
+    void decodesFailurePayloads() throws Exception {
+        SnsEnvelope<ProductFailureEventDto> envelope = decoder.decode(
+                envelope("PRODUCT_FAILURE", "{\"error\":\"Product not found\",\"email\":\"a@b.c\",\"status\":404}"),
+                ProductFailureEventDto.class);
+
+        assertThat(envelope.eventType()).isEqualTo(ProductEventType.PRODUCT_FAILURE);
+        assertThat(envelope.payload().status()).isEqualTo(404);
+        assertThat(envelope.payload().error()).isEqualTo("Product not found");
+    }
+
+    @Test
+    void rejectsMalformedEnvelopes() {
+        assertThatThrownBy(() -> decoder.decode("not json", ProductEventDto.class))
+                .isInstanceOf(SnsEnvelopeException.class);
+        assertThatThrownBy(() -> decoder.decode("[]", ProductEventDto.class))
+                .isInstanceOf(SnsEnvelopeException.class);
+        assertThatThrownBy(() -> decoder.decode("{\"MessageId\":\"m-1\",\"Message\":\"{}\"}", ProductEventDto.class))
+                .isInstanceOf(SnsEnvelopeException.class)
+                .hasMessageContaining("missing");
+        assertThatThrownBy(() -> decoder.decode(envelope("PRODUCT_RENAMED", "{}"), ProductEventDto.class))
+                .isInstanceOf(SnsEnvelopeException.class)
+                .hasMessageContaining("PRODUCT_RENAMED");
+        assertThatThrownBy(() -> decoder.decode(envelope("PRODUCT_CREATED", "{\"price\":"), ProductEventDto.class))
+                .isInstanceOf(SnsEnvelopeException.class);
+    }
+
+    private String envelope(String eventType, String payload) {
+        return "{" +
+                "\"Type\":\"Notification\"," +
+                "\"MessageId\":\"m-1\"," +
+                "\"TopicArn\":\"arn:aws:sns:eu-central-1:000000000000:product-events\"," +
+                "\"Message\":\"" + payload.replace("\\", "\\\\").replace("\"", "\\\"") + "\"," +
+                "\"Timestamp\":\"2024-11-05T10:15:30.123Z\"," +
+                "\"SignatureVersion\":\"1\"," +
+                "\"MessageAttributes\":{" +
+                "\"traceId\":{\"Type\":\"String\",\"Value\":\"1-5759e988-bd862e3fe1be46a994272793\"}," +
+                "\"eventType\":{\"Type\":\"String\",\"Value\":\"" + eventType + "\"}," +
+                "\"requestId\":{\"Type\":\"String\",\"Value\":\"r-1\"}," +
+                "\"other\":{\"Type\":\"Number\",\"Value\":\"1\"}" +
+                "}}";
+    }
+}
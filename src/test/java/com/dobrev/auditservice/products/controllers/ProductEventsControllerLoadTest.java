@@ -0,0 +1,167 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.dobrev.auditservice.products.services.ProductEventsConsumer;
+import com.dobrev.auditservice.products.services.ProductFailureEventsConsumer;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires many concurrent queries at a server with a small request thread pool while DynamoDB takes
+ * {@value #QUERY_LATENCY_MILLIS} ms per query. If request threads waited for DynamoDB, no more queries
+ * than request threads could be outstanding at once and the slowest requests would queue for
+ * {@code REQUESTS / REQUEST_THREADS * QUERY_LATENCY_MILLIS}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=" + ProductEventsControllerLoadTest.REQUEST_THREADS,
+        "server.tomcat.threads.min-spare=" + ProductEventsControllerLoadTest.REQUEST_THREADS,
+        "aws.events.cache.ttl-ms=0"
+})
+class ProductEventsControllerLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ProductEventsControllerLoadTest.class);
+    static final int REQUEST_THREADS = 8;
+    private static final int WARMUP_REQUESTS = 50;
+    private static final int REQUESTS = 200;
+    private static final long QUERY_LATENCY_MILLIS = 200;
+    private static final AtomicInteger inFlightQueries = new AtomicInteger();
+    private static final AtomicInteger peakInFlightQueries = new AtomicInteger();
+
+    @TestBean
+    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+
+    @MockitoBean
+    ProductEventsConsumer productEventsConsumer;
+
+    @MockitoBean
+    ProductFailureEventsConsumer productFailureEventsConsumer;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ServletWebServerApplicationContext applicationContext;
+
+    static DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient() {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new SlowDynamoDbAsyncClient())
+                .build();
+    }
+
+    @Test
+    void requestThreadsAreNotHeldWhileDynamoDbIsQueried() throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        run(httpClient, WARMUP_REQUESTS);
+        peakInFlightQueries.set(0);
+
+        ThreadPoolExecutor requestThreads = (ThreadPoolExecutor) ((TomcatWebServer) applicationContext.getWebServer())
+                .getTomcat().getConnector().getProtocolHandler().getExecutor();
+        AtomicInteger peakActiveRequestThreads = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakActiveRequestThreads.accumulateAndGet(requestThreads.getActiveCount(),
+                Math::max), 0, 1, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        List<Long> latencies = run(httpClient, REQUESTS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        sampler.shutdownNow();
+
+        long p50 = percentile(latencies, 0.50);
+        long p99 = percentile(latencies, 0.99);
+        long queuedBound = REQUESTS / REQUEST_THREADS * QUERY_LATENCY_MILLIS;
+        log.info("{} concurrent requests over {} request threads in {} ms: p50 {} ms, p99 {} ms, " +
+                        "peak busy request threads {}, peak outstanding DynamoDB queries {} " +
+                        "(blocking would need at least {} ms)",
+                REQUESTS, REQUEST_THREADS, elapsedMillis, p50, p99, peakActiveRequestThreads.get(),
+                peakInFlightQueries.get(), queuedBound);
+
+        assertThat(latencies).hasSize(REQUESTS);
+        assertThat(peakInFlightQueries.get()).isGreaterThan(REQUEST_THREADS);
+        assertThat(p99).isLessThan(queuedBound);
+    }
+
+    private List<Long> run(HttpClient httpClient, int requests) {
+        List<CompletableFuture<Long>> responses = IntStream.range(0, requests)
+                .mapToObj(i -> {
+                    long sent = System.nanoTime();
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port +
+                            "/api/products/events?eventType=PRODUCT_CREATED&limit=" + (1 + i % 5))).build();
+                    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                            .thenApply(response -> {
+                                assertThat(response.statusCode()).isEqualTo(200);
+                                assertThat(response.body()).contains("\"items\"");
+                                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+                            });
+                })
+                .toList();
+        return new ArrayList<>(responses.stream().map(CompletableFuture::join).toList());
+    }
+
+    private long percentile(List<Long> latencies, double percentile) {
+        List<Long> sorted = latencies.stream().sorted().toList();
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+    }
+
+    private static class SlowDynamoDbAsyncClient implements DynamoDbAsyncClient {
+        @Override
+        public CompletableFuture<QueryResponse> query(QueryRequest queryRequest) {
+            String pk = queryRequest.expressionAttributeValues().values().iterator().next().s();
+            List<Map<String, AttributeValue>> items = IntStream.range(0, queryRequest.limit())
+                    .mapToObj(i -> Map.of(
+                            "pk", AttributeValue.fromS(pk),
+                            "sk", AttributeValue.fromS(String.format("%013d-%05x-0001", 1700000000000L + i, i)),
+                            "createdAt", AttributeValue.fromN(String.valueOf(1700000000000L + i)),
+                            "email", AttributeValue.fromS("matilda@dobrev.com"),
+                            "info", AttributeValue.fromM(Map.of(
+                                    "id", AttributeValue.fromS("product-" + i),
+                                    "code", AttributeValue.fromS("COD" + i),
+                                    "price", AttributeValue.fromN("10.5"),
+                                    "requestId", AttributeValue.fromS("request-" + i)))))
+                    .toList();
+            peakInFlightQueries.accumulateAndGet(inFlightQueries.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlightQueries.decrementAndGet();
+                return QueryResponse.builder().items(items).count(items.size()).build();
+            }, CompletableFuture.delayedExecutor(QUERY_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
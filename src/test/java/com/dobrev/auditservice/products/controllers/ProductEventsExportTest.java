@@ -0,0 +1,124 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.repositories.InMemoryDynamoDbAsyncClient;
+import com.dobrev.auditservice.products.services.ProductEventsConsumer;
+import com.dobrev.auditservice.products.services.ProductFailureEventsConsumer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "aws.events.export.page-size=7",
+        "aws.events.archive.enabled=false"
+})
+class ProductEventsExportTest {
+    private static final long FIRST_TIMESTAMP = 1_700_000_000_000L;
+    private static final int EVENTS = 50;
+    private static final DynamoDbEnhancedAsyncClient enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+            .build();
+
+    @TestBean
+    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+
+    @MockitoBean
+    ProductEventsConsumer productEventsConsumer;
+
+    @MockitoBean
+    ProductFailureEventsConsumer productFailureEventsConsumer;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    static DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient() {
+        return enhancedClient;
+    }
+
+    @BeforeAll
+    static void writeEvents() {
+        DynamoDbAsyncTable<ProductEvent> table = enhancedClient.table("events", TableSchema.fromBean(ProductEvent.class));
+        for (int i = 0; i < EVENTS; i++) {
+            table.putItem(ProductEvent.builder()
+                    .pk("#product_PRODUCT_UPDATED")
+                    .sk(String.format("%013d-%05x-0001", FIRST_TIMESTAMP + i, i))
+                    .createdAt(FIRST_TIMESTAMP + i)
+                    .email("matilda@dobrev.com")
+                    .info(ProductInfoEvent.builder()
+                            .id("product-" + i)
+                            .code("COD" + i)
+                            .price(10f + i)
+                            .requestId("request-" + i)
+                            .build())
+                    .build()).join();
+        }
+    }
+
+    @Test
+    void streamsEveryPageOfTheRangeAsNdjson() throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                request("eventType=PRODUCT_UPDATED&from=" + (FIRST_TIMESTAMP + 10) + "&to=" + (FIRST_TIMESTAMP + 39))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/x-ndjson");
+        assertThat(response.headers().firstValue("Transfer-Encoding")).hasValue("chunked");
+        List<JsonNode> events = parse(response.body());
+        assertThat(events).hasSize(30);
+        assertThat(events.getFirst().get("productId").asText()).isEqualTo("product-10");
+        assertThat(events.getLast().get("productId").asText()).isEqualTo("product-39");
+        assertThat(response.body()).endsWith("}\n");
+    }
+
+    @Test
+    void gzipsTheStreamWhenTheClientAcceptsIt() throws Exception {
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                request("eventType=PRODUCT_UPDATED").header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            List<JsonNode> events = parse(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            assertThat(events).hasSize(EVENTS);
+        }
+    }
+
+    private HttpRequest.Builder request(String query) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products/events/export?" + query));
+    }
+
+    private List<JsonNode> parse(String ndjson) throws IOException {
+        List<JsonNode> events = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            events.add(objectMapper.readTree(line));
+        }
+        return events;
+    }
+}
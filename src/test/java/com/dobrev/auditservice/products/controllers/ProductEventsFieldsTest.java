@@ -0,0 +1,128 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.repositories.InMemoryDynamoDbAsyncClient;
+import com.dobrev.auditservice.products.services.ProductEventsConsumer;
+import com.dobrev.auditservice.products.services.ProductFailureEventsConsumer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ProductEventsFieldsTest {
+    private static final long FIRST_TIMESTAMP = 1_700_000_000_000L;
+    private static final InMemoryDynamoDbAsyncClient dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+    private static final DynamoDbEnhancedAsyncClient enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(dynamoDbAsyncClient)
+            .build();
+
+    @TestBean
+    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+
+    @MockitoBean
+    ProductEventsConsumer productEventsConsumer;
+
+    @MockitoBean
+    ProductFailureEventsConsumer productFailureEventsConsumer;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    static DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient() {
+        return enhancedClient;
+    }
+
+    @BeforeAll
+    static void writeEvents() {
+        DynamoDbAsyncTable<ProductEvent> table = enhancedClient.table("events", TableSchema.fromBean(ProductEvent.class));
+        for (int i = 0; i < 3; i++) {
+            table.putItem(ProductEvent.builder()
+                    .pk("#product_PRODUCT_CREATED")
+                    .sk(String.format("%013d-%05x-0001", FIRST_TIMESTAMP + i, i))
+                    .createdAt(FIRST_TIMESTAMP + i)
+                    .email("matilda@dobrev.com")
+                    .info(ProductInfoEvent.builder()
+                            .id("product-" + i)
+                            .code("COD" + i)
+                            .price(10f + i)
+                            .requestId("request-" + i)
+                            .build())
+                    .build()).join();
+        }
+    }
+
+    @Test
+    void readsAndWritesOnlyTheRequestedFields() throws Exception {
+        HttpResponse<String> response = get("eventType=PRODUCT_CREATED&limit=3&fields=productId,code,createdAt");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode page = objectMapper.readTree(response.body());
+        assertThat(page.get("items")).hasSize(3);
+        for (JsonNode item : page.get("items")) {
+            List<String> names = new ArrayList<>();
+            item.fieldNames().forEachRemaining(names::add);
+            assertThat(names).containsExactlyInAnyOrder("productId", "code", "createdAt");
+        }
+        assertThat(page.get("items").get(0).get("code").asText()).isEqualTo("COD0");
+        assertThat(dynamoDbAsyncClient.projectionExpressions).isNotEmpty()
+                .allSatisfy(expression -> assertThat(expression).doesNotContain("email"));
+    }
+
+    @Test
+    void writesEveryFieldWhenNoneAreRequested() throws Exception {
+        HttpResponse<String> response = get("eventType=PRODUCT_CREATED&limit=1");
+
+        JsonNode item = objectMapper.readTree(response.body()).get("items").get(0);
+        assertThat(item.has("email")).isTrue();
+        assertThat(item.get("price").floatValue()).isEqualTo(10f);
+    }
+
+    @Test
+    void rejectsUnknownFields() throws Exception {
+        HttpResponse<String> response = get("eventType=PRODUCT_CREATED&fields=productId,colour");
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsUnknownEventTypes() throws Exception {
+        HttpResponse<String> response = get("eventType=PRODUCT_" + System.nanoTime());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsCursorsTheReaderCannotResume() throws Exception {
+        HttpResponse<String> response = get("eventType=PRODUCT_CREATED&exclusiveStartTimeStamp=~0-0-1");
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    private HttpResponse<String> get(String query) throws Exception {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products/events?" + query)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
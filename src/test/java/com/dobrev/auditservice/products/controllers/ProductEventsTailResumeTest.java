@@ -0,0 +1,114 @@
+package com.dobrev.auditservice.products.controllers;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.repositories.InMemoryDynamoDbAsyncClient;
+import com.dobrev.auditservice.products.services.ProductEventsConsumer;
+import com.dobrev.auditservice.products.services.ProductEventsTail;
+import com.dobrev.auditservice.products.services.ProductFailureEventsConsumer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ProductEventsTailResumeTest {
+    private static final long FIRST_TIMESTAMP = System.currentTimeMillis() - 60_000;
+    private static final DynamoDbEnhancedAsyncClient enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+            .build();
+
+    @TestBean
+    DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+
+    @MockitoBean
+    ProductEventsConsumer productEventsConsumer;
+
+    @MockitoBean
+    ProductFailureEventsConsumer productFailureEventsConsumer;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ProductEventsTail productEventsTail;
+
+    static DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient() {
+        return enhancedClient;
+    }
+
+    @BeforeAll
+    static void writeEvents() {
+        DynamoDbAsyncTable<ProductEvent> table = enhancedClient.table("events", TableSchema.fromBean(ProductEvent.class));
+        for (int i = 0; i < 5; i++) {
+            table.putItem(event(i)).join();
+        }
+    }
+
+    @Test
+    void replaysEventsAfterTheLastEventIdThenStreamsLiveOnes() throws Exception {
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                                + "/api/products/events/tail?eventTypes=PRODUCT_UPDATED"))
+                        .header("Last-Event-ID", sortKey(1))
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                contentType -> assertThat(contentType).startsWith("text/event-stream"));
+        Iterator<String> lines = response.body().iterator();
+        List<String> ids = new ArrayList<>(List.of(nextId(lines), nextId(lines), nextId(lines)));
+
+        productEventsTail.publish(ProductEventType.PRODUCT_UPDATED, event(5));
+        ids.add(nextId(lines));
+        response.body().close();
+
+        assertThat(ids).containsExactly(sortKey(2), sortKey(3), sortKey(4), sortKey(5));
+    }
+
+    private static String nextId(Iterator<String> lines) {
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("id:")) {
+                return line.substring("id:".length());
+            }
+        }
+        throw new AssertionError("Stream ended");
+    }
+
+    private static ProductEvent event(int offset) {
+        return ProductEvent.builder()
+                .pk("#product_PRODUCT_UPDATED")
+                .sk(sortKey(offset))
+                .createdAt(FIRST_TIMESTAMP + offset)
+                .productId("product-" + offset)
+                .info(ProductInfoEvent.builder()
+                        .id("product-" + offset)
+                        .code("COD" + offset)
+                        .build())
+                .build();
+    }
+
+    private static String sortKey(int offset) {
+        return String.format("%013d-%05x-0001", FIRST_TIMESTAMP + offset, 0);
+    }
+}
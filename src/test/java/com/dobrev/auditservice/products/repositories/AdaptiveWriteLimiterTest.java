@@ -0,0 +1,79 @@
+package com.dobrev.auditservice.products.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveWriteLimiterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void halvesOnThrottlingAndGrowsBackAdditively() {
+        AdaptiveWriteLimiter limiter = limiter(1000);
+
+        limiter.release(limiter.acquire(), AdaptiveWriteLimiter.Outcome.THROTTLED);
+        limiter.release(limiter.acquire(), AdaptiveWriteLimiter.outcomeOf(
+                new CompletionException(ProvisionedThroughputExceededException.builder().build())));
+        assertThat(limiter.limit()).isEqualTo(4);
+
+        // Each success adds 1/limit, so a limit's worth of successes adds about one.
+        for (int i = 0; i < 5; i++) {
+            limiter.release(limiter.acquire(), AdaptiveWriteLimiter.Outcome.SUCCESS);
+        }
+        assertThat(limiter.limit()).isEqualTo(5);
+        assertThat(meterRegistry.get("dynamodb.write.limit").gauge().value()).isEqualTo(5);
+        assertThat(meterRegistry.get("dynamodb.write.throttles").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterASuccessfulProbe() throws InterruptedException {
+        AdaptiveWriteLimiter limiter = limiter(300);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.release(limiter.acquire(), AdaptiveWriteLimiter.Outcome.FAILED);
+        }
+        assertThat(limiter.isOpen()).isTrue();
+        assertThatThrownBy(limiter::acquire).isInstanceOf(TableUnavailableException.class);
+        assertThat(meterRegistry.get("dynamodb.write.circuit.state").gauge().value()).isEqualTo(2);
+
+        Thread.sleep(350);
+        assertThat(limiter.isOpen()).isFalse();
+        long probe = limiter.acquire();
+        assertThat(limiter.state()).isEqualTo(AdaptiveWriteLimiter.CircuitState.HALF_OPEN);
+        assertThat(limiter.limit()).isEqualTo(1);
+        limiter.release(probe, AdaptiveWriteLimiter.Outcome.SUCCESS);
+
+        assertThat(limiter.state()).isEqualTo(AdaptiveWriteLimiter.CircuitState.CLOSED);
+        assertThat(meterRegistry.get("dynamodb.write.rejections").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void reopensWhenTheProbeFails() throws InterruptedException {
+        AdaptiveWriteLimiter limiter = limiter(300);
+        for (int i = 0; i < 3; i++) {
+            limiter.release(limiter.acquire(), AdaptiveWriteLimiter.Outcome.FAILED);
+        }
+
+        Thread.sleep(350);
+        limiter.release(limiter.acquire(), AdaptiveWriteLimiter.Outcome.FAILED);
+
+        assertThat(limiter.isOpen()).isTrue();
+    }
+
+    private AdaptiveWriteLimiter limiter(long openMillis) {
+        return new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                .initialLimit(16)
+                .minLimit(1)
+                .maxLimit(32)
+                .backoffRatio(0.5)
+                .latencyThresholdMillis(1000)
+                .failureThreshold(3)
+                .openMillis(openMillis)
+                .build(), meterRegistry);
+    }
+}
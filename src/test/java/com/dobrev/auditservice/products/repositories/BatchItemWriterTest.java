@@ -0,0 +1,133 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchItemWriterTest {
+    private static final int EVENTS = 250;
+
+    private InMemoryDynamoDbAsyncClient dynamoDbAsyncClient;
+    private DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+        dynamoDbEnhancedAsyncClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+        eventsTable = dynamoDbEnhancedAsyncClient.table("events", TableSchema.fromBean(ProductEvent.class));
+    }
+
+    @Test
+    void groupsWritesIntoBatchWriteItemCalls() {
+        IntStream.range(0, EVENTS).mapToObj(this::productEvent)
+                .map(eventsTable::putItem)
+                .forEach(CompletableFuture::join);
+        int putItemCalls = dynamoDbAsyncClient.putItemCalls.get();
+
+        dynamoDbAsyncClient.clear();
+        BatchItemWriter<ProductEvent> writer = writer(25);
+        List<CompletableFuture<Boolean>> writes = IntStream.range(0, EVENTS).mapToObj(this::productEvent)
+                .map(writer::write)
+                .toList();
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(putItemCalls).isEqualTo(EVENTS);
+        assertThat(dynamoDbAsyncClient.batchWriteItemCalls.get()).isEqualTo(EVENTS / 25);
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(EVENTS);
+    }
+
+    @Test
+    void retriesUnprocessedItemsBeforeCompleting() {
+        dynamoDbAsyncClient.unprocessedToReturn.set(7);
+        BatchItemWriter<ProductEvent> writer = writer(10);
+
+        List<CompletableFuture<Boolean>> writes = IntStream.range(0, 10).mapToObj(this::productEvent)
+                .map(writer::write)
+                .toList();
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(dynamoDbAsyncClient.batchWriteItemCalls.get()).isEqualTo(2);
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(10);
+        // The retry may block on the write limiter, so it must not run on a pooled thread.
+        assertThat(dynamoDbAsyncClient.batchWriteItemThreads.getLast().isVirtual()).isTrue();
+    }
+
+    @Test
+    void flushesAfterLingerWhileTheOnlyInFlightBatchBacksOff() throws Exception {
+        dynamoDbAsyncClient.unprocessedToReturn.set(1);
+        BatchItemWriter<ProductEvent> writer = writer(25, 1, 100);
+
+        CompletableFuture<Boolean> retried = writer.write(productEvent(1));
+        while (dynamoDbAsyncClient.batchWriteItemCalls.get() == 0) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Boolean> lingering = writer.write(productEvent(2));
+
+        CompletableFuture.allOf(retried, lingering).orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(2);
+    }
+
+    @Test
+    void flushesPartialBatchAfterLinger() {
+        BatchItemWriter<ProductEvent> writer = writer(25);
+
+        writer.write(productEvent(1)).join();
+
+        assertThat(dynamoDbAsyncClient.batchWriteItemCalls.get()).isEqualTo(1);
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(1);
+    }
+
+    private BatchItemWriter<ProductEvent> writer(int flushSize) {
+        return writer(flushSize, 4, 5);
+    }
+
+    private BatchItemWriter<ProductEvent> writer(int flushSize, int maxInFlight, long baseBackoffMillis) {
+        return new BatchItemWriter<>(dynamoDbEnhancedAsyncClient, eventsTable, ProductEvent.class,
+                BatchWriterSettings.builder()
+                        .flushSize(flushSize)
+                        .lingerMillis(20)
+                        .maxInFlight(maxInFlight)
+                        .maxAttempts(5)
+                        .baseBackoffMillis(baseBackoffMillis)
+                        .maxBackoffMillis(10 * baseBackoffMillis)
+                        .build(),
+                new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                        .initialLimit(4)
+                        .minLimit(1)
+                        .maxLimit(4)
+                        .backoffRatio(0.5)
+                        .latencyThresholdMillis(1000)
+                        .failureThreshold(5)
+                        .openMillis(1000)
+                        .build(), new SimpleMeterRegistry()));
+    }
+
+    private ProductEvent productEvent(int i) {
+        return ProductEvent.builder()
+                .pk("#product_PRODUCT_UPDATED")
+                .sk(String.format("%013d", i))
+                .createdAt((long) i)
+                .email("user@example.com")
+                .info(ProductInfoEvent.builder()
+                        .id("product-" + i)
+                        .code("CODE-" + i)
+                        .price(9.99f)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.dobrev.auditservice.products.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarArchiveTest {
+    private static final List<String> COLUMNS = List.of("sk", "email");
+
+    @TempDir
+    Path directory;
+
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileSystemBlobStore(directory);
+    }
+
+    @Test
+    void readsRowsBackAcrossBlocks() throws IOException {
+        blobStore.put("archive", ColumnarArchive.write(COLUMNS, rows(25), 4));
+
+        ColumnarArchive.Reader reader = ColumnarArchive.open(blobStore, "archive");
+
+        assertThat(reader.columns()).isEqualTo(COLUMNS);
+        List<String[]> read = reader.read(null, null, null, 100);
+        assertThat(read).extracting(row -> row[0]).containsExactlyElementsOf(
+                rows(25).stream().map(row -> row[0]).toList());
+        assertThat(read.get(3)[1]).isNull();
+        assertThat(read.get(4)[1]).isEqualTo("user-4@example.com");
+    }
+
+    @Test
+    void readsOnlyTheRequestedRange() throws IOException {
+        blobStore.put("archive", ColumnarArchive.write(COLUMNS, rows(25), 4));
+        ColumnarArchive.Reader reader = ColumnarArchive.open(blobStore, "archive");
+
+        assertThat(reader.read(sortKey(6), null, sortKey(13) + "-fffff-ffff", 100))
+                .extracting(row -> row[0])
+                .containsExactly(rows(25).subList(6, 14).stream().map(row -> row[0]).toArray(String[]::new));
+        assertThat(reader.read(sortKey(0), rows(25).get(9)[0], null, 3))
+                .extracting(row -> row[0])
+                .containsExactly(rows(25).get(10)[0], rows(25).get(11)[0], rows(25).get(12)[0]);
+    }
+
+    @Test
+    void writesAnIndexForArchivesWithoutRows() throws IOException {
+        blobStore.put("archive", ColumnarArchive.write(COLUMNS, List.of(), 4));
+
+        assertThat(ColumnarArchive.open(blobStore, "archive").read(null, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void rejectsArchivesOfAnotherVersion() throws IOException {
+        byte[] archive = ColumnarArchive.write(COLUMNS, rows(5), 4);
+        archive[4] = 99;
+        blobStore.put("archive", archive);
+
+        assertThatThrownBy(() -> ColumnarArchive.open(blobStore, "archive"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("version 99");
+    }
+
+    private static List<String[]> rows(int count) {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new String[]{sortKey(i) + "-00000-0001", i % 4 == 3 ? null : "user-" + i + "@example.com"});
+        }
+        return rows;
+    }
+
+    private static String sortKey(int i) {
+        return String.format("%013d", 1_700_000_000_000L + i);
+    }
+}
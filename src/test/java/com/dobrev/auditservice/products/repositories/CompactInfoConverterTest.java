@@ -0,0 +1,122 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.dto.ProductEventField;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import com.dobrev.auditservice.products.models.ProductInfoFailureEvent;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactInfoConverterTest {
+    private static final String UUID = "95df01b4-ee98-5cb9-9903-4c221d41eb5e";
+    private static final String TRACE_ID = "1-5759e988-bd862e3fe1be46a994272793";
+
+    @Test
+    void roundTripsPackedAndTextValues() {
+        ProductInfoEvent info = ProductInfoEvent.builder()
+                .id("7A1C3E2F-58B4-4C8E-9A0D-000000000001")
+                .code("CÖD-1")
+                .price(129.99f)
+                .messageId(UUID)
+                .requestId(UUID)
+                .traceId(TRACE_ID)
+                .build();
+
+        AttributeValue encoded = CompactInfoConverter.PRODUCT_INFO.transformFrom(info);
+        ProductInfoEvent decoded = CompactInfoConverter.PRODUCT_INFO.transformTo(encoded);
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(info);
+        // version, presence, upper case ID as text, code as text, price, UUID, reference, trace ID
+        assertThat(encoded.b().asByteArray()).hasSize(1 + 1 + 38 + 8 + 4 + 17 + 2 + 17);
+    }
+
+    @Test
+    void leavesMissingFieldsNull() {
+        ProductInfoFailureEvent info = ProductInfoFailureEvent.builder()
+                .status(-404)
+                .error("Product not found")
+                .build();
+
+        ProductInfoFailureEvent decoded = CompactInfoConverter.PRODUCT_INFO_FAILURE.transformTo(
+                CompactInfoConverter.PRODUCT_INFO_FAILURE.transformFrom(info));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(info);
+        assertThat(decoded.getId()).isNull();
+    }
+
+    @Test
+    void rejectsUnknownVersions() {
+        byte[] encoded = CompactInfoConverter.PRODUCT_INFO.transformFrom(new ProductInfoEvent()).b().asByteArray();
+        encoded[0] = 2;
+
+        assertThatThrownBy(() -> CompactInfoConverter.PRODUCT_INFO.transformTo(
+                AttributeValue.fromB(SdkBytes.fromByteArray(encoded))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("version 2");
+    }
+
+    @Test
+    void readsItemsOfBothFormats() {
+        DynamoDbEnhancedAsyncClient enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+                .build();
+        DynamoDbAsyncTable<ProductFailureEvent> mapTable = enhancedClient.table("events",
+                TableSchema.fromBean(ProductFailureEvent.class));
+        DynamoDbAsyncTable<ProductFailureEvent> compactTable = enhancedClient.table("events",
+                new CompactInfoTableSchema<>(TableSchema.fromBean(ProductFailureEvent.class),
+                        CompactInfoConverter.PRODUCT_INFO_FAILURE, ProductFailureEvent::getInfo,
+                        ProductFailureEvent::setInfo, true));
+
+        mapTable.putItem(failureEvent("1700000000000-00000-0001", "map")).join();
+        compactTable.putItem(failureEvent("1700000000001-00000-0001", "compact")).join();
+
+        List<ProductFailureEvent> events = new ShardedQueryReader<>(compactTable, ProductFailureEvent::getSk,
+                RangeReaderSettings.builder()
+                        .segmentItems(100)
+                        .maxSegments(8)
+                        .maxParallel(16)
+                        .build())
+                .read(List.of("#product_PRODUCT_FAILURE"), null, null, null, 10)
+                .join()
+                .items();
+
+        assertThat(events).extracting(event -> event.getInfo().getError()).containsExactly("map", "compact");
+        assertThat(events).extracting(event -> event.getInfo().getTraceId()).containsOnly(TRACE_ID);
+    }
+
+    @Test
+    void projectsTheWholeBinaryInfoAttribute() {
+        CompactInfoTableSchema<ProductEvent, ProductInfoEvent> schema = new CompactInfoTableSchema<>(
+                TableSchema.fromBean(ProductEvent.class), CompactInfoConverter.PRODUCT_INFO,
+                ProductEvent::getInfo, ProductEvent::setInfo, true);
+
+        assertThat(schema.projection(List.of(ProductEventField.CODE.attribute(), ProductEventField.PRICE.attribute(),
+                ProductEventField.EMAIL.attribute())))
+                .extracting(attribute -> String.join(".", attribute.elements()))
+                .containsExactly("info", "email");
+    }
+
+    private static ProductFailureEvent failureEvent(String sortKey, String error) {
+        return ProductFailureEvent.builder()
+                .pk("#product_PRODUCT_FAILURE")
+                .sk(sortKey)
+                .info(ProductInfoFailureEvent.builder()
+                        .id("product-1")
+                        .status(500)
+                        .error(error)
+                        .messageId(UUID)
+                        .traceId(TRACE_ID)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalItemWriterTest {
+    private final InMemoryDynamoDbAsyncClient dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+    private final DynamoDbAsyncTable<ProductEvent> eventsTable = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(dynamoDbAsyncClient)
+            .build()
+            .table("events", TableSchema.fromBean(ProductEvent.class));
+
+    @Test
+    void keepsTheFirstWriteOfAKeyAndTreatsLaterOnesAsDone() {
+        AdaptiveWriteLimiter writeLimiter = new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                .initialLimit(4)
+                .minLimit(1)
+                .maxLimit(4)
+                .backoffRatio(0.5)
+                .latencyThresholdMillis(1000)
+                .failureThreshold(1)
+                .openMillis(1000)
+                .build(), new SimpleMeterRegistry());
+        ConditionalItemWriter<ProductEvent> writer = new ConditionalItemWriter<>(eventsTable, ProductEvent.class,
+                writeLimiter);
+        EventIdGenerator.EventId eventId = EventIdGenerator.forMessage(1_700_000_000_000L, "message-1");
+
+        assertThat(writer.write(productEvent(eventId, "first@example.com")).join()).isTrue();
+        assertThat(writer.write(productEvent(eventId, "second@example.com")).join()).isFalse();
+
+        assertThat(dynamoDbAsyncClient.putItemCalls.get()).isEqualTo(2);
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(1);
+        assertThat(dynamoDbAsyncClient.partitions.get("#product_PRODUCT_CREATED").get(eventId.value())
+                .get("email").s()).isEqualTo("first@example.com");
+        assertThat(writeLimiter.isOpen()).isFalse();
+    }
+
+    private ProductEvent productEvent(EventIdGenerator.EventId eventId, String email) {
+        return ProductEvent.builder()
+                .pk("#product_PRODUCT_CREATED")
+                .sk(eventId.value())
+                .createdAt(eventId.timestamp())
+                .email(email)
+                .info(ProductInfoEvent.builder()
+                        .id("product-1")
+                        .code("CODE-1")
+                        .price(9.99f)
+                        .messageId("message-1")
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.dobrev.auditservice.products.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventIdGeneratorTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void generatesUniqueIdsAcrossThreadsWithinTheSameMillisecond() throws Exception {
+        EventIdGenerator generator = new EventIdGenerator(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC), 0x2a);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(generator.next().value());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(ids).hasSize(80_000);
+    }
+
+    @Test
+    void idsAreMonotonicAndSortLexicographically() {
+        EventIdGenerator generator = new EventIdGenerator(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC), 0x2a);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(generator.next().value());
+        }
+
+        assertThat(ids).isSorted();
+        assertThat(ids.getFirst()).isEqualTo("1700000000000-00000-002a");
+    }
+
+    @Test
+    void idsFallWithinPlainMillisecondRanges() {
+        EventIdGenerator generator = new EventIdGenerator(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC), 0xffff);
+        EventIdGenerator.EventId eventId = generator.next();
+
+        assertThat(eventId.timestamp()).isEqualTo(NOW);
+        assertThat(eventId.value()).isGreaterThan(String.valueOf(NOW));
+        assertThat(eventId.value()).isLessThan(EventIdGenerator.rangeEnd(String.valueOf(NOW)));
+        assertThat(eventId.value()).isLessThan(String.valueOf(NOW + 1));
+    }
+
+    @Test
+    void messageIdsMapToTheSameKeyWithinTheirPublishMillisecond() {
+        EventIdGenerator.EventId eventId = EventIdGenerator.forMessage(NOW, "0b5f7c7d-4a4e-5b8d-9f3c-1e2d3c4b5a69");
+
+        assertThat(EventIdGenerator.forMessage(NOW, "0b5f7c7d-4a4e-5b8d-9f3c-1e2d3c4b5a69")).isEqualTo(eventId);
+        assertThat(EventIdGenerator.forMessage(NOW, "0b5f7c7d-4a4e-5b8d-9f3c-1e2d3c4b5a6a").value())
+                .isNotEqualTo(eventId.value());
+        assertThat(eventId.timestamp()).isEqualTo(NOW);
+        assertThat(eventId.value()).matches("1700000000000-[0-9a-f]{5}-[0-9a-f]{4}");
+        assertThat(eventId.value()).isLessThan(EventIdGenerator.rangeEnd(String.valueOf(NOW)));
+    }
+
+    @Test
+    void requiresAnExplicitHexNodeId() {
+        assertThat(EventIdGenerator.parseNodeId("00ff")).isEqualTo(0xff);
+        for (String nodeId : new String[] {null, "", " ", "12345", "node-1"}) {
+            assertThatThrownBy(() -> EventIdGenerator.parseNodeId(nodeId))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.models.EventRollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventRollupsRepositoryTest {
+    private static final long START = 1_700_000_040_000L;
+
+    private final InMemoryDynamoDbAsyncClient dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+    private final RollupSettings settings = RollupSettings.builder()
+            .enabled(true)
+            .flushIntervalMillis(1000)
+            .bucketSeconds(List.of(60, 3600))
+            .build();
+
+    @Test
+    void addsTheCountsOfEveryNodeIntoSharedBuckets() throws Exception {
+        List<EventRollupsRepository> nodes = List.of(rollups("1"), rollups("2"));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                EventRollupsRepository node = nodes.get(i % 2);
+                long createdAt = START + (i % 4) * 30_000L;
+                executor.submit(() -> node.count(ProductEventType.PRODUCT_CREATED, createdAt));
+            }
+        }
+        nodes.forEach(EventRollupsRepository::flush);
+        nodes.getFirst().count(ProductEventType.PRODUCT_CREATED, START);
+        nodes.getFirst().flush();
+
+        List<EventRollup> minutes = nodes.getFirst()
+                .findBuckets(ProductEventType.PRODUCT_CREATED, 60, START - 60_000, START + 120_000).join();
+        List<EventRollup> hours = nodes.getFirst()
+                .findBuckets(ProductEventType.PRODUCT_CREATED, 3600, 0, START).join();
+
+        assertThat(minutes).extracting(EventRollup::getCount).containsExactly(501L, 500L);
+        assertThat(hours).extracting(EventRollup::getCount).containsExactly(1001L);
+    }
+
+    @Test
+    void keepsCountsOfAFailedFlushForTheNextOne() {
+        EventRollupsRepository rollups = rollups();
+        rollups.count(ProductEventType.PRODUCT_DELETED, START);
+        dynamoDbAsyncClient.updateFailuresToReturn.set(2);
+
+        rollups.flush();
+        rollups.count(ProductEventType.PRODUCT_DELETED, START);
+        rollups.flush();
+
+        List<Long> counts = new ArrayList<>();
+        for (int bucketSeconds : List.of(60, 3600)) {
+            rollups.findBuckets(ProductEventType.PRODUCT_DELETED, bucketSeconds, 0, START).join()
+                    .forEach(rollup -> counts.add(rollup.getCount()));
+        }
+        assertThat(counts).containsExactly(2L, 2L);
+    }
+
+    @Test
+    void addsTheCountsOfAFlushThatFailedAfterItWasAppliedOnce() {
+        EventRollupsRepository rollups = rollups();
+        rollups.count(ProductEventType.PRODUCT_UPDATED, START);
+        dynamoDbAsyncClient.appliedUpdateFailuresToReturn.set(2);
+
+        rollups.flush();
+        rollups.count(ProductEventType.PRODUCT_UPDATED, START);
+        rollups.flush();
+        rollups.flush();
+
+        assertThat(rollups.findBuckets(ProductEventType.PRODUCT_UPDATED, 60, 0, START).join())
+                .extracting(EventRollup::getCount).containsExactly(2L);
+    }
+
+    @Test
+    void countsOnlyItemsTheWriterNewlyWrote() {
+        EventRollupsRepository rollups = rollups();
+        ItemWriter<EventRollup> writer = new RollupCountingItemWriter<>(new ItemWriter<>() {
+            @Override
+            public CompletableFuture<Boolean> write(EventRollup item) {
+                return CompletableFuture.completedFuture(item.getCount() == 1);
+            }
+
+            @Override
+            public void close() {
+            }
+        }, rollups, EventRollup::getPk, item -> START);
+
+        writer.write(EventRollup.builder().pk("#product_PRODUCT_CREATED#1").count(1L).build()).join();
+        writer.write(EventRollup.builder().pk("#product_PRODUCT_CREATED#1").count(2L).build()).join();
+        rollups.flush();
+
+        assertThat(rollups.findBuckets(ProductEventType.PRODUCT_CREATED, 60, 0, START).join())
+                .extracting(EventRollup::getCount).containsExactly(1L);
+    }
+
+    @Test
+    void addsTheCountsOfANodeThatRestarted() {
+        EventRollupsRepository rollups = rollups();
+        rollups.count(ProductEventType.PRODUCT_CREATED, START);
+        rollups.flush();
+
+        EventRollupsRepository restarted = rollups();
+        restarted.count(ProductEventType.PRODUCT_CREATED, START);
+        restarted.flush();
+
+        assertThat(restarted.findBuckets(ProductEventType.PRODUCT_CREATED, 60, 0, START).join())
+                .extracting(EventRollup::getCount).containsExactly(2L);
+    }
+
+    @Test
+    void rejectsBucketSizesThatAreNotRolledUp() {
+        assertThatThrownBy(() -> rollups().findBuckets(ProductEventType.PRODUCT_CREATED, 300, 0, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private EventRollupsRepository rollups() {
+        return rollups("1");
+    }
+
+    private EventRollupsRepository rollups(String nodeId) {
+        return new EventRollupsRepository("events", dynamoDbAsyncClient, DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build(), settings, nodeId, new SimpleMeterRegistry());
+    }
+}
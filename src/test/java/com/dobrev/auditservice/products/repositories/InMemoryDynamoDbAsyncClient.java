@@ -0,0 +1,234 @@
+package com.dobrev.auditservice.products.repositories;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class InMemoryDynamoDbAsyncClient implements DynamoDbAsyncClient {
+    private static final Pattern PARTITION_CONDITION = Pattern.compile("(#\\w+) = (:\\w+)");
+    private static final Pattern BETWEEN_CONDITION = Pattern.compile("(#\\w+) BETWEEN (:\\w+) AND (:\\w+)");
+    private static final Pattern ADD_UPDATE = Pattern.compile("ADD (#\\w+) (:\\w+)(?: SET (#\\w+) = (:\\w+))?");
+    private static final Pattern NOT_EXISTS_OR_LOWER = Pattern.compile(
+            "attribute_not_exists\\((#\\w+)\\) OR (#\\w+) < (:\\w+)");
+    private static final Pattern COMPARISON_CONDITION = Pattern.compile("(#\\w+) (<=|>=|<|>) (:\\w+)");
+
+    final Map<String, NavigableMap<String, Map<String, AttributeValue>>> partitions = new ConcurrentHashMap<>();
+    final AtomicInteger putItemCalls = new AtomicInteger();
+    final AtomicInteger batchWriteItemCalls = new AtomicInteger();
+    final List<Thread> batchWriteItemThreads = new CopyOnWriteArrayList<>();
+    final AtomicInteger queryCalls = new AtomicInteger();
+    final AtomicInteger unprocessedToReturn = new AtomicInteger();
+    final AtomicInteger updateFailuresToReturn = new AtomicInteger();
+    final AtomicInteger appliedUpdateFailuresToReturn = new AtomicInteger();
+    public final List<String> projectionExpressions = new CopyOnWriteArrayList<>();
+
+    int itemCount() {
+        return partitions.values().stream().mapToInt(Map::size).sum();
+    }
+
+    void clear() {
+        partitions.clear();
+    }
+
+    @Override
+    public CompletableFuture<PutItemResponse> putItem(PutItemRequest putItemRequest) {
+        putItemCalls.incrementAndGet();
+        Map<String, AttributeValue> item = putItemRequest.item();
+        String condition = putItemRequest.conditionExpression();
+        if (condition != null && condition.startsWith("attribute_not_exists")
+                && partitions.getOrDefault(item.get("pk").s(), new ConcurrentSkipListMap<>()).containsKey(item.get("sk").s())) {
+            return CompletableFuture.failedFuture(ConditionalCheckFailedException.builder()
+                    .message("The conditional request failed")
+                    .build());
+        }
+        store(item);
+        return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest batchWriteItemRequest) {
+        batchWriteItemCalls.incrementAndGet();
+        batchWriteItemThreads.add(Thread.currentThread());
+        Map<String, List<WriteRequest>> unprocessed = new ConcurrentHashMap<>();
+        batchWriteItemRequest.requestItems().forEach((tableName, writeRequests) -> {
+            if (writeRequests.size() > 25) {
+                throw new IllegalArgumentException("Too many items in batch: " + writeRequests.size());
+            }
+            for (WriteRequest writeRequest : writeRequests) {
+                if (unprocessedToReturn.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                    unprocessed.computeIfAbsent(tableName, name -> new ArrayList<>()).add(writeRequest);
+                } else {
+                    store(writeRequest.putRequest().item());
+                }
+            }
+        });
+        return CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+                .unprocessedItems(unprocessed)
+                .build());
+    }
+
+    @Override
+    public synchronized CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest updateItemRequest) {
+        if (updateFailuresToReturn.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Update failed"));
+        }
+        Matcher addMatcher = ADD_UPDATE.matcher(updateItemRequest.updateExpression());
+        if (!addMatcher.matches()) {
+            throw new IllegalArgumentException("Unsupported update: " + updateItemRequest.updateExpression());
+        }
+        Map<String, String> names = updateItemRequest.expressionAttributeNames();
+        Map<String, AttributeValue> values = updateItemRequest.expressionAttributeValues();
+        String attribute = names.get(addMatcher.group(1));
+        long increment = Long.parseLong(values.get(addMatcher.group(2)).n());
+
+        Map<String, AttributeValue> key = updateItemRequest.key();
+        Map<String, AttributeValue> item = new HashMap<>(partitions
+                .getOrDefault(key.get("pk").s(), new ConcurrentSkipListMap<>())
+                .getOrDefault(key.get("sk").s(), key));
+        String condition = updateItemRequest.conditionExpression();
+        if (condition != null) {
+            Matcher conditionMatcher = NOT_EXISTS_OR_LOWER.matcher(condition);
+            if (!conditionMatcher.matches()) {
+                throw new IllegalArgumentException("Unsupported condition: " + condition);
+            }
+            AttributeValue stored = item.get(names.get(conditionMatcher.group(1)));
+            if (stored != null && Long.parseLong(stored.n()) >= Long.parseLong(values.get(conditionMatcher.group(3)).n())) {
+                return CompletableFuture.failedFuture(ConditionalCheckFailedException.builder()
+                        .message("The conditional request failed")
+                        .build());
+            }
+        }
+        long current = item.containsKey(attribute) ? Long.parseLong(item.get(attribute).n()) : 0;
+        item.put(attribute, AttributeValue.fromN(Long.toString(current + increment)));
+        if (addMatcher.group(3) != null) {
+            item.put(names.get(addMatcher.group(3)), values.get(addMatcher.group(4)));
+        }
+        store(item);
+        if (appliedUpdateFailuresToReturn.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Update timed out"));
+        }
+        return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<QueryResponse> query(QueryRequest queryRequest) {
+        queryCalls.incrementAndGet();
+        String condition = queryRequest.keyConditionExpression();
+        Map<String, AttributeValue> values = queryRequest.expressionAttributeValues();
+
+        Matcher partitionMatcher = PARTITION_CONDITION.matcher(condition);
+        if (!partitionMatcher.find()) {
+            throw new IllegalArgumentException("Unsupported key condition: " + condition);
+        }
+        String partitionValue = values.get(partitionMatcher.group(2)).s();
+        NavigableMap<String, Map<String, AttributeValue>> partition = queryRequest.indexName() != null
+                ? index(queryRequest.expressionAttributeNames().get(partitionMatcher.group(1)), partitionValue)
+                : partitions.getOrDefault(partitionValue, new ConcurrentSkipListMap<>());
+
+        Matcher betweenMatcher = BETWEEN_CONDITION.matcher(condition);
+        if (betweenMatcher.find()) {
+            partition = partition.subMap(values.get(betweenMatcher.group(2)).s(), true,
+                    values.get(betweenMatcher.group(3)).s(), true);
+        }
+        Matcher comparisonMatcher = COMPARISON_CONDITION.matcher(condition);
+        if (comparisonMatcher.find()) {
+            String bound = values.get(comparisonMatcher.group(3)).s();
+            partition = switch (comparisonMatcher.group(2)) {
+                case "<" -> partition.headMap(bound, false);
+                case "<=" -> partition.headMap(bound, true);
+                case ">" -> partition.tailMap(bound, false);
+                default -> partition.tailMap(bound, true);
+            };
+        }
+        if (queryRequest.hasExclusiveStartKey()) {
+            partition = partition.tailMap(queryRequest.exclusiveStartKey().get("sk").s(), false);
+        }
+
+        int limit = queryRequest.limit() != null ? queryRequest.limit() : Integer.MAX_VALUE;
+        List<Map<String, AttributeValue>> items = partition.values().stream().limit(limit).toList();
+        QueryResponse.Builder response = QueryResponse.builder().count(items.size());
+        if (items.size() == limit) {
+            Map<String, AttributeValue> last = items.getLast();
+            response.lastEvaluatedKey(Map.of("pk", last.get("pk"), "sk", last.get("sk")));
+        }
+        if (queryRequest.projectionExpression() != null) {
+            projectionExpressions.add(queryRequest.projectionExpression());
+            items = items.stream()
+                    .map(item -> project(item, queryRequest.projectionExpression(),
+                            queryRequest.expressionAttributeNames()))
+                    .toList();
+        }
+        return CompletableFuture.completedFuture(response.items(items).build());
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projectionExpression,
+                                                       Map<String, String> names) {
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (String path : projectionExpression.split(",")) {
+            copy(item, projected, Arrays.stream(path.trim().split("\\."))
+                    .map(name -> names.getOrDefault(name, name))
+                    .toList());
+        }
+        return projected;
+    }
+
+    private static void copy(Map<String, AttributeValue> source, Map<String, AttributeValue> target, List<String> path) {
+        String name = path.getFirst();
+        AttributeValue value = source.get(name);
+        if (value == null) {
+            return;
+        }
+        if (path.size() == 1) {
+            target.put(name, value);
+            return;
+        }
+        Map<String, AttributeValue> child = target.containsKey(name) ? new HashMap<>(target.get(name).m()) : new HashMap<>();
+        copy(value.m(), child, path.subList(1, path.size()));
+        target.put(name, AttributeValue.fromM(child));
+    }
+
+    private NavigableMap<String, Map<String, AttributeValue>> index(String attributeName, String value) {
+        NavigableMap<String, Map<String, AttributeValue>> index = new ConcurrentSkipListMap<>();
+        partitions.values().forEach(partition -> partition.values().stream()
+                .filter(item -> item.containsKey(attributeName) && value.equals(item.get(attributeName).s()))
+                .forEach(item -> index.put(item.get("sk").s(), item)));
+        return index;
+    }
+
+    private void store(Map<String, AttributeValue> item) {
+        partitions.computeIfAbsent(item.get("pk").s(), pk -> new ConcurrentSkipListMap<>())
+                .put(item.get("sk").s(), item);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,33 @@
+package com.dobrev.auditservice.products.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionKeyStrategyTest {
+
+    @Test
+    void keepsRedeliveredMessagesOnTheirShardWhenRoundRobin() {
+        PartitionKeyStrategy strategy = new PartitionKeyStrategy(4, PartitionKeyStrategy.ShardStrategy.ROUND_ROBIN);
+
+        String first = strategy.partitionKeyFor("PRODUCT_CREATED", "product-1", "message-1");
+        String redelivered = strategy.partitionKeyFor("PRODUCT_CREATED", "product-1", "message-1");
+
+        assertThat(redelivered).isEqualTo(first);
+    }
+
+    @Test
+    void spreadsMessagesOverEveryShard() {
+        PartitionKeyStrategy strategy = new PartitionKeyStrategy(4, PartitionKeyStrategy.ShardStrategy.ROUND_ROBIN);
+
+        Set<String> partitionKeys = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            partitionKeys.add(strategy.partitionKeyFor("PRODUCT_CREATED", "product-1", "message-" + i));
+        }
+
+        assertThat(partitionKeys).containsExactlyInAnyOrderElementsOf(strategy.partitionKeys("PRODUCT_CREATED"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductIndexReaderTest {
+    private static final long START = 1_700_000_000_000L;
+
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+    private ProductIndexReader<ProductEvent> reader;
+
+    @BeforeEach
+    void setUp() {
+        eventsTable = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class));
+        reader = new ProductIndexReader<>(eventsTable, ProductEvent.PRODUCT_ID_INDEX, ProductEvent::getSk);
+    }
+
+    @Test
+    void pagesThroughOneProductAcrossEventTypes() {
+        List<String> partitionKeys = List.of("#product_PRODUCT_CREATED", "#product_PRODUCT_UPDATED");
+        for (int i = 0; i < 30; i++) {
+            put(partitionKeys.get(i % 2), i % 3 == 0 ? "product-2" : "product-1", START + i);
+        }
+
+        List<Long> createdAt = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage<ProductEvent> page = reader.read("product-1", cursor, null, null, 4).join();
+            page.items().forEach(productEvent -> createdAt.add(productEvent.getCreatedAt()));
+            cursor = page.cursor();
+        } while (cursor != null);
+
+        assertThat(createdAt).hasSize(20).isSorted().doesNotHaveDuplicates()
+                .allSatisfy(timestamp -> assertThat((timestamp - START) % 3).isNotZero());
+    }
+
+    @Test
+    void continuesAfterTheCursorWithinARange() {
+        for (int i = 0; i < 20; i++) {
+            put("#product_PRODUCT_UPDATED", "product-1", START + i);
+        }
+
+        EventPage<ProductEvent> first = reader.read("product-1", null,
+                String.valueOf(START + 5), String.valueOf(START + 9), 3).join();
+        EventPage<ProductEvent> second = reader.read("product-1", first.cursor(),
+                String.valueOf(START + 5), String.valueOf(START + 9), 3).join();
+
+        assertThat(first.items()).extracting(ProductEvent::getCreatedAt)
+                .containsExactly(START + 5, START + 6, START + 7);
+        assertThat(second.items()).extracting(ProductEvent::getCreatedAt)
+                .containsExactly(START + 8, START + 9);
+        assertThat(second.cursor()).isNull();
+    }
+
+    private void put(String partitionKey, String productId, long timestamp) {
+        eventsTable.putItem(ProductEvent.builder()
+                .pk(partitionKey)
+                .sk(String.format("%013d-%05x-0001", timestamp, 0))
+                .createdAt(timestamp)
+                .productId(productId)
+                .build()).join();
+    }
+}
@@ -0,0 +1,101 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedRangeReaderTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final List<String> PARTITION = List.of("#product_PRODUCT_UPDATED");
+
+    private InMemoryDynamoDbAsyncClient dynamoDbAsyncClient;
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+    private ShardedQueryReader<ProductEvent> reader;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+        eventsTable = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class));
+        reader = new ShardedQueryReader<>(eventsTable, ProductEvent::getSk, RangeReaderSettings.builder()
+                .segmentItems(50)
+                .maxSegments(4)
+                .maxParallel(3)
+                .build());
+    }
+
+    @Test
+    void splitsDenseRangesAndKeepsSortKeyOrder() {
+        LongStream.range(0, 3000).forEach(i -> put(START + i / 2, i));
+
+        List<String> sortKeys = new ArrayList<>();
+        List<Integer> queriesPerPage = new ArrayList<>();
+        String cursor = null;
+        do {
+            int queriesBefore = dynamoDbAsyncClient.queryCalls.get();
+            EventPage<ProductEvent> page = reader.read(PARTITION, cursor,
+                    String.valueOf(START + 100), String.valueOf(START + 1399), 200).join();
+            page.items().forEach(productEvent -> sortKeys.add(productEvent.getSk()));
+            queriesPerPage.add(dynamoDbAsyncClient.queryCalls.get() - queriesBefore);
+            cursor = page.cursor();
+        } while (cursor != null);
+
+        assertThat(sortKeys).hasSize(2600).isSorted().doesNotHaveDuplicates();
+        assertThat(sortKeys.getFirst()).startsWith(String.valueOf(START + 100));
+        assertThat(sortKeys.getLast()).startsWith(String.valueOf(START + 1399));
+        assertThat(queriesPerPage.getFirst()).isEqualTo(1);
+        assertThat(queriesPerPage.get(1)).isEqualTo(4);
+    }
+
+    @Test
+    void readsSparseRangesWithOneQuery() {
+        LongStream.range(0, 18).forEach(i -> put(START + i * 10_000, i));
+
+        String cursor = null;
+        int pages = 0;
+        do {
+            EventPage<ProductEvent> page = reader.read(PARTITION, cursor,
+                    String.valueOf(START), String.valueOf(START + 1_000_000), 5).join();
+            cursor = page.cursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(4);
+        assertThat(dynamoDbAsyncClient.queryCalls.get()).isEqualTo(pages);
+    }
+
+    @Test
+    void stopsTrackingDensitiesOncePartitionsAreCapped() {
+        for (int i = 0; i < SegmentedRangeReader.MAX_PARTITIONS; i++) {
+            reader.read(List.of("#product_UNKNOWN_" + i), null,
+                    String.valueOf(START), String.valueOf(START + 1399), 200).join();
+        }
+        LongStream.range(0, 3000).forEach(i -> put(START + i / 2, i));
+
+        EventPage<ProductEvent> first = reader.read(PARTITION, null,
+                String.valueOf(START + 100), String.valueOf(START + 1399), 200).join();
+        int queriesBefore = dynamoDbAsyncClient.queryCalls.get();
+        reader.read(PARTITION, first.cursor(), String.valueOf(START + 100), String.valueOf(START + 1399), 200).join();
+
+        assertThat(dynamoDbAsyncClient.queryCalls.get() - queriesBefore).isEqualTo(1);
+    }
+
+    private void put(long timestamp, long sequence) {
+        eventsTable.putItem(ProductEvent.builder()
+                .pk(PARTITION.getFirst())
+                .sk(String.format("%013d-%05x-0001", timestamp, sequence))
+                .createdAt(timestamp)
+                .build()).join();
+    }
+}
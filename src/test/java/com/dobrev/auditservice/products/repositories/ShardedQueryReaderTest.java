@@ -0,0 +1,91 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedQueryReaderTest {
+    private static final long START = 1_700_000_000_000L;
+
+    private InMemoryDynamoDbAsyncClient dynamoDbAsyncClient;
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+    private ShardedQueryReader<ProductEvent> reader;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+        eventsTable = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class));
+        reader = new ShardedQueryReader<>(eventsTable, ProductEvent::getSk, RangeReaderSettings.builder()
+                .segmentItems(100)
+                .maxSegments(8)
+                .maxParallel(16)
+                .build());
+    }
+
+    @Test
+    void mergesShardsInSortKeyOrderAcrossPages() {
+        List<String> partitionKeys = new PartitionKeyStrategy(3, PartitionKeyStrategy.ShardStrategy.ROUND_ROBIN)
+                .partitionKeys("PRODUCT_UPDATED");
+        for (int i = 0; i < 50; i++) {
+            put(partitionKeys.get(i % 3), START + i);
+        }
+
+        List<String> sortKeys = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage<ProductEvent> page = reader.read(partitionKeys, cursor, null, null, 7).join();
+            page.items().forEach(productEvent -> sortKeys.add(productEvent.getSk()));
+            cursor = page.cursor();
+        } while (cursor != null);
+
+        assertThat(sortKeys).hasSize(50).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void singleShardKeepsPlainSortKeyCursor() {
+        List<String> partitionKeys = List.of("#product_PRODUCT_CREATED");
+        for (int i = 0; i < 5; i++) {
+            put(partitionKeys.getFirst(), START + i);
+        }
+
+        EventPage<ProductEvent> page = reader.read(partitionKeys, null, null, null, 3).join();
+
+        assertThat(page.items()).hasSize(3);
+        assertThat(page.cursor()).isEqualTo(page.items().getLast().getSk());
+    }
+
+    @Test
+    void appliesRangeToEveryShard() {
+        List<String> partitionKeys = new PartitionKeyStrategy(2, PartitionKeyStrategy.ShardStrategy.ROUND_ROBIN)
+                .partitionKeys("PRODUCT_DELETED");
+        for (int i = 0; i < 20; i++) {
+            put(partitionKeys.get(i % 2), START + i);
+        }
+
+        EventPage<ProductEvent> page = reader.read(partitionKeys, null,
+                String.valueOf(START + 5), String.valueOf(START + 9), 100).join();
+
+        assertThat(page.items()).extracting(ProductEvent::getCreatedAt)
+                .containsExactly(START + 5, START + 6, START + 7, START + 8, START + 9);
+        assertThat(page.cursor()).isNull();
+    }
+
+    private void put(String partitionKey, long timestamp) {
+        eventsTable.putItem(ProductEvent.builder()
+                .pk(partitionKey)
+                .sk(timestamp + "-00000-0001")
+                .createdAt(timestamp)
+                .build()).join();
+    }
+}
@@ -0,0 +1,171 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class SpooledItemWriterTest {
+    private static final int EVENTS = 200;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InMemoryDynamoDbAsyncClient dynamoDbAsyncClient;
+    private DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbAsyncClient = new InMemoryDynamoDbAsyncClient();
+        dynamoDbEnhancedAsyncClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+        eventsTable = dynamoDbEnhancedAsyncClient.table("events", TableSchema.fromBean(ProductEvent.class));
+    }
+
+    @Test
+    void acknowledgesFromTheSpoolAndDrainsOnceTheTableAcceptsWrites() {
+        dynamoDbAsyncClient.unprocessedToReturn.set(Integer.MAX_VALUE);
+        ItemWriter<ProductEvent> writer = writer(batchItemWriter());
+
+        CompletableFuture.allOf(IntStream.range(0, EVENTS).mapToObj(this::productEvent)
+                .map(writer::write)
+                .toArray(CompletableFuture[]::new)).join();
+        assertThat(dynamoDbAsyncClient.itemCount()).isZero();
+
+        dynamoDbAsyncClient.unprocessedToReturn.set(0);
+        await().atMost(Duration.ofSeconds(10)).until(() -> dynamoDbAsyncClient.itemCount() == EVENTS);
+        writer.close();
+    }
+
+    @Test
+    void replaysUncommittedItemsAfterRestartWithoutDuplicates() {
+        AtomicBoolean failing = new AtomicBoolean();
+        BatchItemWriter<ProductEvent> batchItemWriter = batchItemWriter();
+        ItemWriter<ProductEvent> firstRun = writer(new ItemWriter<>() {
+            @Override
+            public CompletableFuture<Boolean> write(ProductEvent item) {
+                // Part of every batch lands before the failure, so the replayed batches overlap the table.
+                return batchItemWriter.write(item).thenApply(written -> {
+                    if (failing.get()) {
+                        throw new IllegalStateException("Throttled");
+                    }
+                    return written;
+                });
+            }
+
+            @Override
+            public void close() {
+                batchItemWriter.close();
+            }
+        });
+        IntStream.range(0, EVENTS / 2).mapToObj(this::productEvent).map(firstRun::write).forEach(CompletableFuture::join);
+        await().atMost(Duration.ofSeconds(10)).until(() -> dynamoDbAsyncClient.itemCount() == EVENTS / 2);
+        failing.set(true);
+        IntStream.range(EVENTS / 2, EVENTS).mapToObj(this::productEvent).map(firstRun::write).forEach(CompletableFuture::join);
+        // The drainer keeps retrying the first failed batch, which is in the table but never committed.
+        await().atMost(Duration.ofSeconds(10)).until(() -> dynamoDbAsyncClient.itemCount() > EVENTS / 2);
+        firstRun.close();
+        assertThat(dynamoDbAsyncClient.itemCount()).isLessThan(EVENTS);
+
+        int batchWritesBeforeRestart = dynamoDbAsyncClient.batchWriteItemCalls.get();
+        SpooledItemWriter<ProductEvent> secondRun = (SpooledItemWriter<ProductEvent>) writer(batchItemWriter());
+        await().atMost(Duration.ofSeconds(10)).until(() -> secondRun.pendingBytes() == 0);
+        secondRun.close();
+
+        assertThat(dynamoDbAsyncClient.batchWriteItemCalls.get()).isGreaterThan(batchWritesBeforeRestart);
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(EVENTS);
+    }
+
+    @Test
+    void quarantinesUnreadableRecordsBeforeCommittingPastThem() throws IOException {
+        try (WriteAheadSpool spool = WriteAheadSpool.open(directory.resolve("product-events"), 16 * 1024, 1 << 20)) {
+            spool.append("{\"pk\":".getBytes(StandardCharsets.UTF_8));
+        }
+        SpooledItemWriter<ProductEvent> writer = (SpooledItemWriter<ProductEvent>) writer(batchItemWriter());
+        IntStream.range(0, 10).mapToObj(this::productEvent).map(writer::write).forEach(CompletableFuture::join);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> writer.pendingBytes() == 0);
+        writer.close();
+
+        assertThat(dynamoDbAsyncClient.itemCount()).isEqualTo(10);
+        assertThat(meterRegistry.get("spool.quarantined").counter().count()).isEqualTo(1);
+        try (Stream<Path> files = Files.list(directory.resolve("product-events").resolve("quarantine"))) {
+            assertThat(files.map(file -> {
+                try {
+                    return Files.readString(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).containsExactly("{\"pk\":");
+        }
+    }
+
+    private ItemWriter<ProductEvent> writer(ItemWriter<ProductEvent> delegate) {
+        return SpooledItemWriter.wrap(delegate, ProductEvent.class, "product-events", SpoolSettings.builder()
+                .enabled(true)
+                .directory(directory.toString())
+                .segmentBytes(16 * 1024)
+                .maxBytes(1 << 20)
+                .drainBatchSize(50)
+                .baseBackoffMillis(5)
+                .maxBackoffMillis(20)
+                .build(), meterRegistry);
+    }
+
+    private BatchItemWriter<ProductEvent> batchItemWriter() {
+        return new BatchItemWriter<>(dynamoDbEnhancedAsyncClient, eventsTable, ProductEvent.class,
+                BatchWriterSettings.builder()
+                        .flushSize(25)
+                        .lingerMillis(5)
+                        .maxInFlight(4)
+                        .maxAttempts(2)
+                        .baseBackoffMillis(5)
+                        .maxBackoffMillis(20)
+                        .build(),
+                new AdaptiveWriteLimiter("events", WriteLimiterSettings.builder()
+                        .initialLimit(4)
+                        .minLimit(1)
+                        .maxLimit(4)
+                        .backoffRatio(0.5)
+                        .latencyThresholdMillis(1000)
+                        .failureThreshold(1000)
+                        .openMillis(0)
+                        .build(), new SimpleMeterRegistry()));
+    }
+
+    private ProductEvent productEvent(int i) {
+        return ProductEvent.builder()
+                .pk("#product_PRODUCT_UPDATED")
+                .sk(String.format("%013d", i))
+                .createdAt((long) i)
+                .email("user@example.com")
+                .info(ProductInfoEvent.builder()
+                        .id("product-" + i)
+                        .code("CODE-" + i)
+                        .price(9.99f)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,204 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductInfoEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TieredEventStoreTest {
+    private static final long HOUR = 3_600_000;
+    private static final List<String> PARTITION_KEYS = List.of("#product_PRODUCT_UPDATED");
+
+    @TempDir
+    Path directory;
+
+    private DynamoDbAsyncTable<ProductEvent> eventsTable;
+    private TieredEventStore<ProductEvent> store;
+    private long archivedHour;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        eventsTable = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class));
+        store = store(eventsTable);
+        now = System.currentTimeMillis();
+        archivedHour = now - 4 * HOUR - Math.floorMod(now, HOUR);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void servesEventsExpiredFromTheTableFromTheArchive() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            put(archivedHour + i * 60_000, i);
+        }
+
+        assertThat(store.archive(ProductEventType.PRODUCT_UPDATED, PARTITION_KEYS, archivedHour).join())
+                .isEqualTo(10);
+        assertThat(store.isArchived(ProductEventType.PRODUCT_UPDATED, archivedHour)).isTrue();
+        TieredEventStore<ProductEvent> expired = store(DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class)));
+
+        EventPage<ProductEvent> page = expired.read("PRODUCT_UPDATED", PARTITION_KEYS, null,
+                String.valueOf(archivedHour), String.valueOf(archivedHour + HOUR - 1), 100, null).join();
+
+        assertThat(page.items()).extracting(ProductEvent::getSk).hasSize(10).isSorted();
+        assertThat(page.items().get(2).getInfo().getPrice()).isEqualTo(2.5f);
+        assertThat(page.cursor()).isNull();
+        expired.close();
+    }
+
+    @Test
+    void pagesFromTheArchiveIntoTheTable() {
+        for (int i = 0; i < 7; i++) {
+            put(archivedHour + i * 60_000, i);
+        }
+        // The hours up to the hot boundary are archived as the archiver would, the later ones empty.
+        for (long hour = archivedHour; hour < now - 2 * HOUR; hour += HOUR) {
+            store.archive(ProductEventType.PRODUCT_UPDATED, PARTITION_KEYS, hour).join();
+        }
+        for (int i = 0; i < 6; i++) {
+            put(now - 10 * 60_000 + i, i);
+        }
+
+        List<String> sortKeys = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage<ProductEvent> page = store.read("PRODUCT_UPDATED", PARTITION_KEYS, cursor,
+                    String.valueOf(archivedHour), String.valueOf(now), 4, null).join();
+            page.items().forEach(productEvent -> sortKeys.add(productEvent.getSk()));
+            cursor = page.cursor();
+            cursors.add(cursor);
+        } while (cursor != null);
+
+        assertThat(sortKeys).hasSize(13).isSorted().doesNotHaveDuplicates();
+        assertThat(cursors.getFirst()).startsWith(TieredEventStore.ARCHIVE_CURSOR_PREFIX);
+    }
+
+    @Test
+    void failsReadsOverHoursThatWereNeverArchived() {
+        put(archivedHour + 60_000, 1);
+        store.archive(ProductEventType.PRODUCT_UPDATED, PARTITION_KEYS, archivedHour).join();
+        assertThat(store.archive(ProductEventType.PRODUCT_UPDATED, PARTITION_KEYS, archivedHour + 2 * HOUR).join())
+                .isZero();
+
+        EventPage<ProductEvent> beforeGap = store.read("PRODUCT_UPDATED", PARTITION_KEYS, null,
+                String.valueOf(archivedHour - 3 * HOUR), String.valueOf(archivedHour + HOUR - 1), 100, null).join();
+        assertThat(beforeGap.items()).hasSize(1);
+        EventPage<ProductEvent> emptyHour = store.read("PRODUCT_UPDATED", PARTITION_KEYS, null,
+                String.valueOf(archivedHour + 2 * HOUR), String.valueOf(archivedHour + 3 * HOUR - 1), 100, null)
+                .join();
+        assertThat(emptyHour.items()).isEmpty();
+
+        assertThatThrownBy(() -> store.read("PRODUCT_UPDATED", PARTITION_KEYS, null,
+                String.valueOf(archivedHour), String.valueOf(archivedHour + 3 * HOUR - 1), 100, null).join())
+                .hasCauseInstanceOf(MissingArchiveException.class);
+    }
+
+    @Test
+    void readsOpenRangesFromTheArchiveAndTheTable() {
+        for (int i = 0; i < 3; i++) {
+            put(archivedHour + i * 60_000, i);
+        }
+        for (long hour = archivedHour; hour < now - 2 * HOUR; hour += HOUR) {
+            store.archive(ProductEventType.PRODUCT_UPDATED, PARTITION_KEYS, hour).join();
+        }
+        // The archived events expire from the table.
+        eventsTable = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(new InMemoryDynamoDbAsyncClient())
+                .build()
+                .table("events", TableSchema.fromBean(ProductEvent.class));
+        store.close();
+        store = store(eventsTable);
+        put(now - 10 * 60_000, 3);
+
+        List<String> sortKeys = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage<ProductEvent> page = store.readAll("PRODUCT_UPDATED", PARTITION_KEYS, cursor, null, null, 2,
+                    null).join();
+            page.items().forEach(productEvent -> sortKeys.add(productEvent.getSk()));
+            cursor = page.cursor();
+        } while (cursor != null);
+
+        assertThat(sortKeys).hasSize(4).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void rejectsArchiveCursorsOutsideArchivedRanges() {
+        assertThatThrownBy(() -> store.read("PRODUCT_UPDATED", PARTITION_KEYS,
+                TieredEventStore.ARCHIVE_CURSOR_PREFIX + sortKey(now), String.valueOf(now - HOUR),
+                String.valueOf(now), 10, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readsRecentRangesFromTheTableOnly() {
+        put(now - 10 * 60_000, 1);
+
+        EventPage<ProductEvent> page = store.read("PRODUCT_UPDATED", PARTITION_KEYS, null,
+                String.valueOf(now - HOUR), String.valueOf(now), 10, null).join();
+
+        assertThat(page.items()).hasSize(1);
+    }
+
+    private TieredEventStore<ProductEvent> store(DynamoDbAsyncTable<ProductEvent> table) {
+        ShardedQueryReader<ProductEvent> hotReader = new ShardedQueryReader<>(table, ProductEvent::getSk,
+                RangeReaderSettings.builder()
+                        .segmentItems(100)
+                        .maxSegments(8)
+                        .maxParallel(16)
+                        .build());
+        return new TieredEventStore<>(hotReader,
+                new EventArchive<>("product-events", new LocalFileSystemBlobStore(directory),
+                        ArchiveSchema.PRODUCT_EVENTS, ProductEvent::getSk, 3),
+                ProductEvent::getSk,
+                RetentionSettings.builder()
+                        .hotSeconds(7200)
+                        .build(),
+                ArchiveSettings.builder()
+                        .enabled(true)
+                        .directory(directory.toString())
+                        .blockRows(3)
+                        .build());
+    }
+
+    private void put(long timestamp, int i) {
+        eventsTable.putItem(ProductEvent.builder()
+                .pk(PARTITION_KEYS.getFirst())
+                .sk(sortKey(timestamp))
+                .createdAt(timestamp)
+                .productId("product-" + i)
+                .info(ProductInfoEvent.builder()
+                        .id("product-" + i)
+                        .price(i + 0.5f)
+                        .build())
+                .build()).join();
+    }
+
+    private static String sortKey(long timestamp) {
+        return String.format("%013d-%05x-0001", timestamp, 0);
+    }
+}
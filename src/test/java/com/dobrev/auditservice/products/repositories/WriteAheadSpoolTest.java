@@ -0,0 +1,129 @@
+package com.dobrev.auditservice.products.repositories;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class WriteAheadSpoolTest {
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesFromTheCommittedOffsetAfterReopening() throws IOException {
+        try (WriteAheadSpool spool = open()) {
+            for (int i = 0; i < 10; i++) {
+                spool.append(payload(i));
+            }
+            List<WriteAheadSpool.SpoolRecord> records = spool.read(spool.committedOffset(), 4);
+            spool.commit(records.getLast().nextOffset());
+        }
+
+        try (WriteAheadSpool spool = open()) {
+            spool.append(payload(10));
+
+            assertThat(read(spool)).containsExactly("event-4", "event-5", "event-6", "event-7", "event-8",
+                    "event-9", "event-10");
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesThemOnceConsumed() throws IOException {
+        try (WriteAheadSpool spool = open()) {
+            for (int i = 0; i < 40; i++) {
+                spool.append(payload(i));
+            }
+            assertThat(segmentFiles()).hasSizeGreaterThan(2);
+
+            spool.commit(spool.forcedOffset());
+
+            assertThat(segmentFiles()).hasSize(1);
+            assertThat(spool.read(spool.committedOffset(), 100)).isEmpty();
+        }
+    }
+
+    @Test
+    void closesConsumedSegments() throws IOException {
+        assumeTrue(ManagementFactory.getOperatingSystemMXBean() instanceof UnixOperatingSystemMXBean);
+        UnixOperatingSystemMXBean os = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        try (WriteAheadSpool spool = open()) {
+            long openBefore = os.getOpenFileDescriptorCount();
+            for (int i = 0; i < 400; i++) {
+                spool.append(payload(i));
+                if (i % 10 == 9) {
+                    spool.commit(spool.forcedOffset());
+                }
+            }
+
+            assertThat(segmentFiles()).hasSize(1);
+            assertThat(os.getOpenFileDescriptorCount() - openBefore).isLessThan(10);
+        }
+    }
+
+    @Test
+    void discardsATornRecordAtTheEndOfTheLog() throws IOException {
+        long end;
+        try (WriteAheadSpool spool = open()) {
+            spool.append(payload(1));
+            end = spool.append(payload(2));
+        }
+        // A record whose payload never reached the disk: the header is there, the checksum does not match.
+        try (FileChannel channel = FileChannel.open(segmentFiles().getFirst(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(8).putInt(42).putInt(7).flip(), end);
+        }
+
+        try (WriteAheadSpool spool = open()) {
+            assertThat(spool.forcedOffset()).isEqualTo(end);
+            spool.append(payload(3));
+
+            assertThat(read(spool)).containsExactly("event-1", "event-2", "event-3");
+        }
+    }
+
+    @Test
+    void rejectsAppendsOnceFull() throws IOException {
+        try (WriteAheadSpool spool = WriteAheadSpool.open(directory, SEGMENT_BYTES, SEGMENT_BYTES)) {
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 100; i++) {
+                    spool.append(payload(i));
+                }
+            }).isInstanceOf(IOException.class).hasMessageContaining("is full");
+        }
+    }
+
+    private WriteAheadSpool open() throws IOException {
+        return WriteAheadSpool.open(directory, SEGMENT_BYTES, 1 << 20);
+    }
+
+    private List<String> read(WriteAheadSpool spool) {
+        return spool.read(spool.committedOffset(), 100).stream()
+                .map(record -> new String(record.payload(), StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+
+    private static byte[] payload(int i) {
+        return ("event-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
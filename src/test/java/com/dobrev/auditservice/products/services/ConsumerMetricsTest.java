@@ -0,0 +1,48 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsumerMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsumerMetrics consumerMetrics = new ConsumerMetrics("product-events",
+            EnumSet.of(ProductEventType.PRODUCT_CREATED, ProductEventType.PRODUCT_DELETED), meterRegistry);
+
+    @Test
+    void recordsStagesPerEventType() {
+        long start = System.nanoTime();
+        consumerMetrics.parsed(start);
+        consumerMetrics.persisted(ProductEventType.PRODUCT_CREATED, start, Instant.now().minusSeconds(2));
+        consumerMetrics.acknowledged(ProductEventType.PRODUCT_CREATED, start);
+        consumerMetrics.failed(ProductEventType.PRODUCT_DELETED);
+
+        assertThat(meterRegistry.get("events.consumer.parse").tag("queue", "product-events").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("events.consumer.persist").tag("eventType", "PRODUCT_CREATED").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("events.consumer.persist").tag("eventType", "PRODUCT_DELETED").timer().count())
+                .isZero();
+        assertThat(meterRegistry.get("events.consumer.lag").tag("eventType", "PRODUCT_CREATED").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(2000);
+        assertThat(meterRegistry.get("events.consumer.ack").tag("eventType", "PRODUCT_CREATED").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("events.consumer.failures").tag("eventType", "PRODUCT_DELETED").counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresFailuresOfEventTypesTheConsumerDoesNotHandle() {
+        consumerMetrics.failed(ProductEventType.PRODUCT_FAILURE);
+        consumerMetrics.failed(null);
+
+        assertThat(meterRegistry.find("events.consumer.failures").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+    }
+}
@@ -0,0 +1,65 @@
+package com.dobrev.auditservice.products.services;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.AWSXRayRecorder;
+import com.amazonaws.xray.AWSXRayRecorderBuilder;
+import com.amazonaws.xray.entities.Entity;
+import com.amazonaws.xray.strategy.sampling.AllSamplingStrategy;
+import com.amazonaws.xray.strategy.sampling.NoSamplingStrategy;
+import com.amazonaws.xray.strategy.sampling.SamplingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTracerTest {
+    private static final String TRACE_ID = "1-5759e988-bd862e3fe1be46a994272793";
+
+    private final AWSXRayRecorder previousRecorder = AWSXRay.getGlobalRecorder();
+    private final AtomicReference<Entity> entity = new AtomicReference<>();
+
+    @AfterEach
+    void restoreRecorder() {
+        AWSXRay.setGlobalRecorder(previousRecorder);
+    }
+
+    @Test
+    void runsUnsampledMessagesWithoutASegment() {
+        useSamplingStrategy(new NoSamplingStrategy());
+
+        new MessageTracer("test-consumer", "product-events", true)
+                .run(TRACE_ID, () -> entity.set(AWSXRay.getTraceEntity()));
+
+        assertThat(entity.get()).isNull();
+    }
+
+    @Test
+    void runsSampledMessagesInASegmentContinuingTheMessageTrace() {
+        useSamplingStrategy(new AllSamplingStrategy());
+
+        new MessageTracer("test-consumer", "product-events", true)
+                .run(TRACE_ID, () -> entity.set(AWSXRay.getTraceEntity()));
+
+        assertThat(entity.get().getName()).isEqualTo("test-consumer");
+        assertThat(entity.get().getParentSegment().getTraceId().toString()).isEqualTo(TRACE_ID);
+        assertThat(AWSXRay.getTraceEntity()).isNull();
+    }
+
+    @Test
+    void tracesEveryMessageWhenSamplingIsOff() {
+        useSamplingStrategy(new NoSamplingStrategy());
+
+        new MessageTracer("test-consumer", "product-events", false)
+                .run(TRACE_ID, () -> entity.set(AWSXRay.getTraceEntity()));
+
+        assertThat(entity.get()).isNotNull();
+    }
+
+    private void useSamplingStrategy(SamplingStrategy samplingStrategy) {
+        AWSXRay.setGlobalRecorder(AWSXRayRecorderBuilder.standard()
+                .withSamplingStrategy(samplingStrategy)
+                .build());
+    }
+}
@@ -0,0 +1,109 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductEventApiPageDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductEventsQueryCacheTest {
+    private static final String CREATED = "PRODUCT_CREATED";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesRepeatedQueriesFromCacheUntilTheyExpire() {
+        ProductEventsQueryCache cache = new ProductEventsQueryCache(10, 60_000, meterRegistry);
+        ProductEventsQuery query = new ProductEventsQuery(CREATED, null, "1700000000000", null, 5);
+
+        cache.get(query, this::load).join();
+        cache.get(new ProductEventsQuery(CREATED, null, null, null, 5), this::load).join();
+
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").counter().count()).isEqualTo(1);
+
+        ProductEventsQueryCache expiring = new ProductEventsQueryCache(10, 0, new SimpleMeterRegistry());
+        expiring.get(query, this::load).join();
+        expiring.get(query, this::load).join();
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedQueries() {
+        ProductEventsQueryCache cache = new ProductEventsQueryCache(2, 60_000, meterRegistry);
+        ProductEventsQuery first = new ProductEventsQuery(CREATED, null, null, null, 1);
+        ProductEventsQuery second = new ProductEventsQuery(CREATED, null, null, null, 2);
+        ProductEventsQuery third = new ProductEventsQuery(CREATED, null, null, null, 3);
+
+        cache.get(first, this::load).join();
+        cache.get(second, this::load).join();
+        cache.get(first, this::load).join();
+        cache.get(third, this::load).join();
+        cache.get(first, this::load).join();
+        cache.get(second, this::load).join();
+
+        assertThat(loads).hasValue(4);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsQueriesOfOtherEventTypesToMakeRoomForTheFirstOfAType() {
+        ProductEventsQueryCache cache = new ProductEventsQueryCache(2, 60_000, meterRegistry);
+        ProductEventsQuery first = new ProductEventsQuery(CREATED, null, null, null, 1);
+        ProductEventsQuery second = new ProductEventsQuery(CREATED, null, null, null, 2);
+        ProductEventsQuery deleted = new ProductEventsQuery("PRODUCT_DELETED", null, null, null, 1);
+
+        cache.get(first, this::load).join();
+        cache.get(second, this::load).join();
+        cache.get(deleted, this::load).join();
+        cache.get(deleted, this::load).join();
+        cache.get(second, this::load).join();
+
+        assertThat(loads).hasValue(3);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidatesOnlyQueriesAWrittenEventCanAppearIn() {
+        ProductEventsQueryCache cache = new ProductEventsQueryCache(10, 60_000, meterRegistry);
+        ProductEventsQuery unranged = new ProductEventsQuery(CREATED, null, null, null, 5);
+        ProductEventsQuery covering = new ProductEventsQuery(CREATED, null, "1700000000000", "1700000009999", 5);
+        ProductEventsQuery earlier = new ProductEventsQuery(CREATED, null, "1600000000000", "1600000009999", 5);
+        ProductEventsQuery otherType = new ProductEventsQuery("PRODUCT_DELETED", null, null, null, 5);
+        List.of(unranged, covering, earlier, otherType).forEach(query -> cache.get(query, this::load).join());
+
+        cache.invalidate(CREATED, "1700000009999-00003-0a1b");
+
+        assertThat(cache.size()).isEqualTo(2);
+        List.of(unranged, covering, earlier, otherType).forEach(query -> cache.get(query, this::load).join());
+        assertThat(loads).hasValue(6);
+    }
+
+    @Test
+    void doesNotCacheFailedLoads() {
+        ProductEventsQueryCache cache = new ProductEventsQueryCache(10, 60_000, meterRegistry);
+        ProductEventsQuery query = new ProductEventsQuery(CREATED, "bad-cursor", null, null, 5);
+
+        assertThatThrownBy(() -> cache.get(query, () -> {
+            throw new IllegalArgumentException("Malformed pagination cursor");
+        }).join()).hasCauseInstanceOf(IllegalArgumentException.class);
+
+        assertThat(cache.size()).isZero();
+        cache.get(query, this::load).join();
+        assertThat(loads).hasValue(1);
+    }
+
+    private CompletableFuture<ProductEventApiPageDto> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(new ProductEventApiPageDto(List.of(), null, 0));
+    }
+}
@@ -0,0 +1,98 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.events.dto.ProductEventType;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductEventsTailTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final int BUFFER_CAPACITY = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProductEventsTail tail = new ProductEventsTail(null, null, BUFFER_CAPACITY, 60_000, 100,
+            meterRegistry);
+
+    @Test
+    void sendsOnlyTheSubscribedEventTypes() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        tail.subscribe(EnumSet.of(ProductEventType.PRODUCT_CREATED), null, emitter);
+
+        tail.publish(ProductEventType.PRODUCT_UPDATED, event(ProductEventType.PRODUCT_UPDATED, 0));
+        tail.publish(ProductEventType.PRODUCT_CREATED, event(ProductEventType.PRODUCT_CREATED, 1));
+
+        assertThat(emitter.firstSent.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.sent).hasSize(1).first().asString().contains(sortKey(1));
+    }
+
+    @Test
+    void dropsASlowSubscriberWithoutBlockingPublishers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        tail.subscribe(EnumSet.allOf(ProductEventType.class), null, emitter);
+
+        tail.publish(ProductEventType.PRODUCT_CREATED, event(ProductEventType.PRODUCT_CREATED, 0));
+        assertThat(emitter.firstSent.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= BUFFER_CAPACITY + 5; i++) {
+            tail.publish(ProductEventType.PRODUCT_CREATED, event(ProductEventType.PRODUCT_CREATED, i));
+        }
+
+        assertThat(meterRegistry.get("events.tail.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("events.tail.subscribers").gauge().value()).isZero();
+        release.countDown();
+        assertThat(emitter.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.sent).hasSize(BUFFER_CAPACITY + 1);
+    }
+
+    private static ProductEvent event(ProductEventType eventType, int offset) {
+        return ProductEvent.builder()
+                .pk("#product_" + eventType.name())
+                .sk(sortKey(offset))
+                .createdAt(START + offset)
+                .productId("product-" + offset)
+                .build();
+    }
+
+    private static String sortKey(int offset) {
+        return String.format("%013d-%05x-0001", START + offset, 0);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        final CountDownLatch firstSent = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final List<String> sent = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder.build().stream()
+                    .map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining()));
+            firstSent.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dobrev.auditservice.products.services;
+
+import com.dobrev.auditservice.products.dto.ProductTimelineEntryDto;
+import com.dobrev.auditservice.products.dto.ProductTimelinePageDto;
+import com.dobrev.auditservice.products.models.ProductEvent;
+import com.dobrev.auditservice.products.models.ProductFailureEvent;
+import com.dobrev.auditservice.products.repositories.EventPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductTimelineServiceTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void mergesEventsAndFailuresInTimeOrder() {
+        ProductTimelinePageDto page = ProductTimelineService.merge(
+                new EventPage<>(List.of(event(0), event(2), event(3)), null),
+                new EventPage<>(List.of(failure(1), failure(4)), null), 10);
+
+        assertThat(page.items()).extracting(ProductTimelineEntryDto::createdAt)
+                .containsExactly(START, START + 1, START + 2, START + 3, START + 4);
+        assertThat(page.items()).extracting(ProductTimelineEntryDto::failed)
+                .containsExactly(false, true, false, false, true);
+        assertThat(page.items().get(1).eventType()).isEqualTo("PRODUCT_UPDATED");
+        assertThat(page.lastEvaluatedTimeStamp()).isNull();
+    }
+
+    @Test
+    void stopsWhereASideWithMoreItemsRunsOut() {
+        ProductTimelinePageDto page = ProductTimelineService.merge(
+                new EventPage<>(List.of(event(0), event(1)), sortKey(1)),
+                new EventPage<>(List.of(failure(2), failure(3)), null), 10);
+
+        assertThat(page.items()).extracting(ProductTimelineEntryDto::createdAt)
+                .containsExactly(START, START + 1);
+        assertThat(page.lastEvaluatedTimeStamp()).isEqualTo(sortKey(1));
+    }
+
+    @Test
+    void returnsACursorWhenTheLimitIsReached() {
+        ProductTimelinePageDto page = ProductTimelineService.merge(
+                new EventPage<>(List.of(event(0), event(2)), null),
+                new EventPage<>(List.of(failure(1), failure(3)), null), 3);
+
+        assertThat(page.count()).isEqualTo(3);
+        assertThat(page.lastEvaluatedTimeStamp()).isEqualTo(sortKey(2));
+    }
+
+    private static ProductEvent event(int offset) {
+        return ProductEvent.builder()
+                .pk("#product_PRODUCT_CREATED")
+                .sk(sortKey(offset))
+                .createdAt(START + offset)
+                .productId("product-1")
+                .build();
+    }
+
+    private static ProductFailureEvent failure(int offset) {
+        return ProductFailureEvent.builder()
+                .pk("#product_PRODUCT_UPDATED#2")
+                .sk(sortKey(offset))
+                .createdAt(START + offset)
+                .failedProductId("product-1")
+                .build();
+    }
+
+    private static String sortKey(int offset) {
+        return String.format("%013d-%05x-0001", START + offset, 0);
+    }
+}
@@ -0,0 +1,119 @@
+package com.dobrev.auditservice.sqs;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class InMemorySqsAsyncClient implements SqsAsyncClient {
+    private static final long EMPTY_RECEIVE_DELAY_MILLIS = 20;
+
+    final ConcurrentLinkedQueue<Message> queue = new ConcurrentLinkedQueue<>();
+    final AtomicInteger receiveCalls = new AtomicInteger();
+    final AtomicInteger deleteCalls = new AtomicInteger();
+    final AtomicInteger deletedMessages = new AtomicInteger();
+    final Map<String, Integer> visibilityTimeouts = new ConcurrentHashMap<>();
+    final List<List<String>> deletedBatches = new CopyOnWriteArrayList<>();
+    final List<Long> deleteBatchNanos = new CopyOnWriteArrayList<>();
+    final AtomicInteger deleteBatchFailuresToReturn = new AtomicInteger();
+    final Map<String, Boolean> failedDeletesToReturn = new ConcurrentHashMap<>();
+
+    void send(int count) {
+        for (int i = 0; i < count; i++) {
+            queue.add(Message.builder()
+                    .messageId("message-" + i)
+                    .receiptHandle("receipt-" + i)
+                    .body("{}")
+                    .build());
+        }
+    }
+
+    @Override
+    public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+        receiveCalls.incrementAndGet();
+        int max = receiveMessageRequest.maxNumberOfMessages() != null ? receiveMessageRequest.maxNumberOfMessages() : 1;
+        List<Message> messages = new ArrayList<>(max);
+        Message message;
+        while (messages.size() < max && (message = queue.poll()) != null) {
+            messages.add(message);
+        }
+        ReceiveMessageResponse response = ReceiveMessageResponse.builder().messages(messages).build();
+        if (!messages.isEmpty()) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return CompletableFuture.supplyAsync(() -> response,
+                CompletableFuture.delayedExecutor(EMPTY_RECEIVE_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public CompletableFuture<DeleteMessageResponse> deleteMessage(DeleteMessageRequest deleteMessageRequest) {
+        deleteCalls.incrementAndGet();
+        deletedMessages.incrementAndGet();
+        return CompletableFuture.completedFuture(DeleteMessageResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(DeleteMessageBatchRequest request) {
+        deleteCalls.incrementAndGet();
+        deleteBatchNanos.add(System.nanoTime());
+        deletedBatches.add(request.entries().stream().map(DeleteMessageBatchRequestEntry::receiptHandle).toList());
+        if (deleteBatchFailuresToReturn.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Delete failed"));
+        }
+        List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+        List<BatchResultErrorEntry> failed = new ArrayList<>();
+        for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+            Boolean senderFault = failedDeletesToReturn.remove(entry.receiptHandle());
+            if (senderFault != null) {
+                failed.add(BatchResultErrorEntry.builder()
+                        .id(entry.id())
+                        .code(senderFault ? "ReceiptHandleIsInvalid" : "InternalError")
+                        .message("Delete failed")
+                        .senderFault(senderFault)
+                        .build());
+            } else {
+                deletedMessages.incrementAndGet();
+                successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+            }
+        }
+        return CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder()
+                .successful(successful)
+                .failed(failed)
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<ChangeMessageVisibilityResponse> changeMessageVisibility(
+            ChangeMessageVisibilityRequest request) {
+        visibilityTimeouts.put(request.receiptHandle(), request.visibilityTimeout());
+        return CompletableFuture.completedFuture(ChangeMessageVisibilityResponse.builder().build());
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
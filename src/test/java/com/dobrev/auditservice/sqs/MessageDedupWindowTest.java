@@ -0,0 +1,71 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageDedupWindowTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void recognisesRememberedMessagesAndCountsThem() {
+        MessageDedupWindow window = window(1000, 60_000);
+
+        assertThat(window.seen("message-1")).isFalse();
+        window.remember("message-1");
+
+        assertThat(window.seen("message-1")).isTrue();
+        assertThat(window.seen("message-2")).isFalse();
+        assertThat(meterRegistry.get("sqs.dedup.duplicates").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("sqs.dedup.entries").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTwoGenerationsOfCapacityAndNoMore() {
+        MessageDedupWindow window = window(100, 60_000);
+
+        IntStream.range(0, 300).forEach(i -> window.remember("message-" + i));
+
+        assertThat(window.size()).isEqualTo(200);
+        assertThat(window.seen("message-0")).isFalse();
+        assertThat(window.seen("message-150")).isTrue();
+        assertThat(window.seen("message-299")).isTrue();
+        assertThat(meterRegistry.get("sqs.dedup.bytes").gauge().value()).isEqualTo(2 * 256 * Long.BYTES);
+    }
+
+    @Test
+    void forgetsMessagesAfterTwoWindows() throws InterruptedException {
+        MessageDedupWindow window = window(100, 50);
+        window.remember("message-1");
+
+        Thread.sleep(120);
+
+        assertThat(window.seen("message-1")).isFalse();
+        assertThat(window.size()).isZero();
+    }
+
+    @Test
+    void remembersNothingWhenDisabled() {
+        MessageDedupWindow window = new MessageDedupWindow("product-events", DedupSettings.builder()
+                .enabled(false)
+                .capacity(100)
+                .windowMillis(60_000)
+                .build(), meterRegistry);
+
+        window.remember("message-1");
+
+        assertThat(window.seen("message-1")).isFalse();
+        assertThat(window.bytes()).isZero();
+    }
+
+    private MessageDedupWindow window(int capacity, long windowMillis) {
+        return new MessageDedupWindow("product-events", DedupSettings.builder()
+                .enabled(true)
+                .capacity(capacity)
+                .windowMillis(windowMillis)
+                .build(), meterRegistry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqsAckBatcherTest {
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/000000000000/product-events";
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final long BACKOFF_MILLIS = 200;
+
+    private final InMemorySqsAsyncClient sqs = new InMemorySqsAsyncClient();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqsAckBatcher ackBatcher = new SqsAckBatcher(sqs, meterRegistry, FLUSH_INTERVAL_MILLIS, 3,
+            BACKOFF_MILLIS, BACKOFF_MILLIS);
+
+    @AfterEach
+    void shutdown() {
+        ackBatcher.shutdown();
+    }
+
+    @Test
+    void deletesFullBatchesAtOnceAndTheRestAfterTheFlushInterval() {
+        List<CompletableFuture<Void>> acks = acknowledge(0, 13);
+
+        assertThat(sqs.deletedBatches).hasSize(1);
+        assertThat(sqs.deletedBatches.getFirst()).hasSize(10);
+
+        CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).join();
+        assertThat(sqs.deletedBatches).extracting(List::size).containsExactly(10, 3);
+        assertThat(sqs.deletedMessages.get()).isEqualTo(13);
+    }
+
+    @Test
+    void retriesEntriesThatFailedOnTheServerSideAfterABackoff() {
+        sqs.failedDeletesToReturn.put("receipt-1", false);
+
+        CompletableFuture.allOf(acknowledge(0, 10).toArray(CompletableFuture[]::new)).join();
+
+        assertThat(sqs.deletedBatches).hasSize(2);
+        assertThat(sqs.deletedBatches.getLast()).containsExactly("receipt-1");
+        assertThat(sqs.deleteBatchNanos.getLast() - sqs.deleteBatchNanos.getFirst())
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+        assertThat(sqs.deletedMessages.get()).isEqualTo(10);
+        assertThat(meterRegistry.counter("sqs.ack.entries.retried", "queue", "product-events").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void failsEntriesRejectedAsSenderFaultsWithoutRetrying() {
+        sqs.failedDeletesToReturn.put("receipt-2", true);
+
+        List<CompletableFuture<Void>> acks = acknowledge(0, 10);
+
+        assertThatThrownBy(() -> acks.get(2).join()).hasCauseInstanceOf(SqsAckException.class);
+        acks.stream().filter(ack -> ack != acks.get(2)).forEach(CompletableFuture::join);
+        assertThat(sqs.deletedBatches).hasSize(1);
+        assertThat(meterRegistry.counter("sqs.ack.entries.failed", "queue", "product-events").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void retriesWholeBatchesThatFailedUntilTheAttemptsRunOut() {
+        sqs.deleteBatchFailuresToReturn.set(Integer.MAX_VALUE);
+
+        List<CompletableFuture<Void>> acks = acknowledge(0, 10);
+
+        for (CompletableFuture<Void> ack : acks) {
+            assertThatThrownBy(ack::join).hasMessageContaining("Delete failed");
+        }
+        assertThat(sqs.deletedBatches.stream().flatMap(List::stream).filter("receipt-4"::equals)).hasSize(3);
+        assertThat(sqs.deletedMessages.get()).isZero();
+        assertThat(meterRegistry.counter("sqs.ack.entries.failed", "queue", "product-events").count())
+                .isEqualTo(10);
+    }
+
+    private List<CompletableFuture<Void>> acknowledge(int from, int to) {
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            acks.add(ackBatcher.acknowledge(QUEUE_URL, "receipt-" + i));
+        }
+        return acks;
+    }
+}
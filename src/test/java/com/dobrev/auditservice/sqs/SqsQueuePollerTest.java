@@ -0,0 +1,89 @@
+package com.dobrev.auditservice.sqs;
+
+import com.amazonaws.xray.AWSXRay;
+import com.amazonaws.xray.entities.Segment;
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqsQueuePollerTest {
+    private static final Logger log = LoggerFactory.getLogger(SqsQueuePollerTest.class);
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/000000000000/product-events";
+    private static final int MESSAGES = 500;
+    private static final long HANDLING_MILLIS = 10;
+
+    private final AtomicInteger handled = new AtomicInteger();
+    private final AtomicInteger contextFailures = new AtomicInteger();
+
+    @Test
+    void virtualThreadPollerHandlesEveryMessageInItsOwnContext() throws Exception {
+        InMemorySqsAsyncClient parallelStreamSqs = new InMemorySqsAsyncClient();
+        parallelStreamSqs.send(MESSAGES);
+        long parallelStreamStart = System.nanoTime();
+        ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder()
+                .queueUrl(QUEUE_URL)
+                .maxNumberOfMessages(10)
+                .build();
+        List<Message> messages;
+        while (!(messages = parallelStreamSqs.receiveMessage(receiveMessageRequest).join().messages()).isEmpty()) {
+            messages.parallelStream().forEach(this::handle);
+        }
+        long parallelStreamNanos = System.nanoTime() - parallelStreamStart;
+
+        InMemorySqsAsyncClient pollerSqs = new InMemorySqsAsyncClient();
+        pollerSqs.send(MESSAGES);
+        handled.set(0);
+        SqsQueuePoller poller = new SqsQueuePoller("throughput-test", pollerSqs, SqsQueueSettings.builder()
+                .queueUrl(QUEUE_URL)
+                .batchSize(10)
+                .waitTimeSeconds(20)
+                .receivers(4)
+                .bufferCapacity(200)
+                .concurrency(200)
+                .build(), this::handle);
+        long pollerStart = System.nanoTime();
+        poller.start();
+        while (handled.get() < MESSAGES && System.nanoTime() - pollerStart < TimeUnit.SECONDS.toNanos(30)) {
+            Thread.sleep(5);
+        }
+        long pollerNanos = System.nanoTime() - pollerStart;
+        poller.stop();
+
+        // Throughput depends on the machine and its load, so it is logged rather than asserted.
+        log.info("Handled {} messages: parallel stream {} msg/s, virtual-thread poller {} msg/s", MESSAGES,
+                throughput(parallelStreamNanos), throughput(pollerNanos));
+        assertThat(handled.get()).isEqualTo(MESSAGES);
+        assertThat(contextFailures.get()).isZero();
+    }
+
+    private void handle(Message message) {
+        Segment segment = AWSXRay.beginSegment("poller-test");
+        try {
+            ThreadContext.put("messageId", message.messageId());
+            Thread.sleep(HANDLING_MILLIS);
+            if (!message.messageId().equals(ThreadContext.get("messageId"))
+                    || AWSXRay.getCurrentSegmentOptional().orElse(null) != segment) {
+                contextFailures.incrementAndGet();
+            }
+            handled.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ThreadContext.clearAll();
+            AWSXRay.clearTraceEntity();
+        }
+    }
+
+    private long throughput(long nanos) {
+        return MESSAGES * TimeUnit.SECONDS.toNanos(1) / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,115 @@
+package com.dobrev.auditservice.sqs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqsRedeliveryTest {
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/000000000000/product-events";
+
+    private final InMemorySqsAsyncClient sqs = new InMemorySqsAsyncClient();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqsAckBatcher ackBatcher = new SqsAckBatcher(sqs, meterRegistry, 5, 3, 10, 100);
+    private final List<String> poisoned = new CopyOnWriteArrayList<>();
+    private final SqsRedelivery redelivery = new SqsRedelivery(SqsQueueSettings.builder()
+            .queueUrl(QUEUE_URL)
+            .batchSize(10)
+            .waitTimeSeconds(20)
+            .receivers(1)
+            .bufferCapacity(10)
+            .concurrency(1)
+            .build(),
+            sqs, ackBatcher,
+            (queueName, message, reason) -> {
+                poisoned.add(queueName + ":" + message.messageId() + ":" + reason);
+                return CompletableFuture.completedFuture(null);
+            },
+            RedeliverySettings.builder()
+                    .baseVisibilitySeconds(5)
+                    .maxVisibilitySeconds(60)
+                    .poisonAfterReceives(3)
+                    .build(),
+            meterRegistry);
+
+    @AfterEach
+    void shutdown() {
+        ackBatcher.shutdown();
+    }
+
+    @Test
+    void backsOffVisibilityExponentiallyUpToTheMaximum() {
+        assertThat(redelivery.visibilitySeconds(1)).isEqualTo(5);
+        assertThat(redelivery.visibilitySeconds(2)).isEqualTo(10);
+        assertThat(redelivery.visibilitySeconds(4)).isEqualTo(40);
+        assertThat(redelivery.visibilitySeconds(5)).isEqualTo(60);
+        assertThat(redelivery.visibilitySeconds(1000)).isEqualTo(60);
+    }
+
+    @Test
+    void hidesFailedMessagesForTheBackoffOfTheirReceiveCount() {
+        redelivery.failed(message("message-1", 2), new RuntimeException("table unavailable"));
+
+        assertThat(sqs.visibilityTimeouts).containsEntry("receipt-message-1", 10);
+        assertThat(outcome("retried")).isEqualTo(1);
+        assertThat(sqs.deletedMessages).hasValue(0);
+    }
+
+    @Test
+    void retriesPoisonMessagesUntilTheReceiveLimit() {
+        redelivery.failed(message("message-1", 2), new PoisonMessageException("Malformed", null));
+
+        assertThat(sqs.visibilityTimeouts).containsKey("receipt-message-1");
+        assertThat(poisoned).isEmpty();
+    }
+
+    @Test
+    void storesAndDeletesPoisonMessagesAtTheReceiveLimit() throws Exception {
+        redelivery.failed(message("message-1", 3),
+                new RuntimeException(new PoisonMessageException("Malformed", null)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sqs.deletedMessages.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(poisoned).containsExactly("product-events:message-1:Malformed");
+        assertThat(sqs.deletedMessages).hasValue(1);
+        assertThat(sqs.visibilityTimeouts).isEmpty();
+        assertThat(outcome("poisoned")).isEqualTo(1);
+    }
+
+    @Test
+    void countsSucceededMessages() {
+        redelivery.succeeded(message("message-1", 1));
+
+        assertThat(outcome("succeeded")).isEqualTo(1);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("sqs.messages.outcome")
+                .tag("queue", "product-events")
+                .tag("outcome", outcome)
+                .counter()
+                .count();
+    }
+
+    private static Message message(String messageId, int receives) {
+        return Message.builder()
+                .messageId(messageId)
+                .receiptHandle("receipt-" + messageId)
+                .attributes(Map.of(MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT,
+                        String.valueOf(receives)))
+                .body("{}")
+                .build();
+    }
+}